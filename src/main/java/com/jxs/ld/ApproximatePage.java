@@ -0,0 +1,24 @@
+package com.jxs.ld;
+
+/**
+ * 允许使用估算总数的分页，用于数据量很大、精确count很慢的表。
+ * {@link BaseDao}分页查询时先通过EXPLAIN获取估算的行数，估算值小于{@link #getExactCountThreshold()}时才执行精确的count，
+ * 使用估算值时{@link #isApproximate()}返回true，界面可以显示为“约120万条”。
+ *
+ * @author jiangxingshang
+ * @see BaseDao#estimateCount(org.springframework.jdbc.core.JdbcOperations, String, Object...)
+ */
+public interface ApproximatePage<T> extends Page<T> {
+
+    /**
+     * @return 估算值小于这个数时执行精确的count。
+     */
+    int getExactCountThreshold();
+
+    void setApproximate(boolean approximate);
+
+    /**
+     * @return 总数是否是估算值。
+     */
+    boolean isApproximate();
+}
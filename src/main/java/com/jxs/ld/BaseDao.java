@@ -4,30 +4,83 @@ import com.jxs.ld.bean.BeanInfo;
 import com.jxs.ld.bean.Beans;
 import com.jxs.ld.bean.IdGenerator;
 import com.jxs.ld.bean.IgnoreColumnType;
+import com.jxs.ld.bean.PropertyAccessor;
+import com.jxs.ld.bean.TypeConverter;
+import com.jxs.ld.diag.SqlDiagnostics;
+import com.jxs.ld.sql.CompiledQuery;
+import com.jxs.ld.sql.FilterSpec;
 import com.jxs.ld.sql.SqlBuilder;
+import com.jxs.ld.stream.ColumnarReader;
+import com.jxs.ld.stream.CsvImporter;
+import com.jxs.ld.stream.PageIterator;
+import com.jxs.ld.stream.RowExporter;
+import com.jxs.ld.stream.TableScanner;
+import com.jxs.ld.utils.AssociationSetter;
 import com.jxs.ld.utils.BeanSetter;
+import com.jxs.ld.utils.LobValue;
 import org.apache.commons.lang3.StringUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
 import org.springframework.dao.EmptyResultDataAccessException;
+import org.springframework.jdbc.core.JdbcOperations;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.PreparedStatementCreator;
 import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.SqlTypeValue;
+import org.springframework.jdbc.core.StatementCreatorUtils;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterUtils;
+import org.springframework.jdbc.core.namedparam.ParsedSql;
+import org.springframework.jdbc.core.namedparam.SqlParameterSource;
 import org.springframework.jdbc.core.simple.SimpleJdbcInsert;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.sql.DataSource;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
 import java.sql.SQLException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * @author jiangxingshang
  */
 public abstract class BaseDao<T> {
 
+    /**
+     * in查询中每批最多的参数个数。
+     */
+    protected static final int IN_CHUNK_SIZE = 500;
+
     private String SQL_GET_BY_ID;
+    /**
+     * 默认的查询字段列表，不包括被忽略查询的字段。
+     */
+    private String selectColumns;
+    private volatile List<JdbcTemplate> readJdbcs = Collections.emptyList();
+    private volatile List<NamedParameterJdbcTemplate> readNamedJdbcs = Collections.emptyList();
+    private final AtomicInteger readIndex = new AtomicInteger();
+    private Map<Class<?>, RowMapper<?>> projectionMappers = new ConcurrentHashMap<>();
+    private volatile WriteBehindBuffer writeBehind;
+    private volatile SqlDiagnostics diagnostics;
+    private volatile RequestCoalescer coalescer;
 
     private SimpleJdbcInsert insert;
     protected JdbcTemplate jdbc;
@@ -37,6 +90,7 @@ public abstract class BaseDao<T> {
      */
     protected RowMapper<T> defaultRowMapper;
     protected Class<T> beanClass;
+    private String tableName;
     /**
      * 实体的属性-字段映射，key是属性名，value是表字段。
      */
@@ -49,24 +103,84 @@ public abstract class BaseDao<T> {
      * 实体属性对应字段的类型。
      */
     protected Map<String, Class<?>> columnTypes;
+    /**
+     * 原始类型（及包装类型）属性的读写快速通道，key是属性名。
+     */
+    protected Map<String, PropertyAccessor> accessors;
+    /**
+     * 属性的转换器，key是属性名。
+     */
+    protected Map<String, TypeConverter> converters;
+    //默认查询不读取的属性，查询出的实体上总是null
+    private Set<String> unloadedProperties;
+    //实体的无参构造方法，没有时在创建实体时抛出异常
+    private Constructor<T> constructor;
+    //是否有大字段属性，这样的实体不能在合并查询的调用者之间共享
+    private boolean lobEntity;
+    //不区分大小写的字段-属性映射，与ResultSet#findColumn的行为一致
+    private Map<String, String> columnsIgnoreCase;
     protected BeanInfo beanInfo;
+    /**
+     * 流式读取（发布、导出等）时游标的fetchSize，默认0表示使用{@link JdbcTemplate#getFetchSize()}。
+     */
+    protected int streamFetchSize;
 
     protected BaseDao(final Class<T> beanClass) {
+        this(beanClass, null);
+    }
+
+    /**
+     * @param beanClass
+     * @param tableName 代替{@link com.jxs.ld.bean.TableName}的表名，为空时使用注解的表名，如分表时的物理表名。
+     */
+    protected BaseDao(final Class<T> beanClass, String tableName) {
         this.beanClass = beanClass;
+        this.tableName = tableName;
         this.initModelInfo();
     }
 
     protected void initModelInfo() {
-        beanInfo = new BeanInfo(beanClass);
+        beanInfo = StringUtils.isBlank(tableName) ? new BeanInfo(beanClass) : new BeanInfo(beanClass, tableName);
         propertiesMapper = beanInfo.getPropertiesMapper();
         columnTypes = new HashMap<>();
         for(String prop : propertiesMapper.keySet()) {
             columnTypes.put(prop, Beans.getColumnType(beanClass, prop));
         }
         columnsMapper = Beans.reverse(propertiesMapper);
+        columnsIgnoreCase = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        columnsIgnoreCase.putAll(columnsMapper);
+        accessors = new HashMap<>();
+        converters = new HashMap<>();
+        for(String prop : propertiesMapper.keySet()) {
+            converters.put(prop, TypeConverter.of(beanInfo.getField(prop).getType(), columnTypes.get(prop)));
+            PropertyAccessor accessor = PropertyAccessor.of(beanInfo.getField(prop), columnTypes.get(prop));
+            if(accessor != null) accessors.put(prop, accessor);
+            if(LobValue.isLobType(beanInfo.getField(prop).getType())) lobEntity = true;
+        }
 
+        constructor = Beans.getConstructor(beanClass);
+        unloadedProperties = new HashSet<>(propertiesMapper.keySet());
+        unloadedProperties.removeAll(beanInfo.getQueryProperties());
+        unloadedProperties.remove(beanInfo.getPrimary().getName());
         defaultRowMapper = createRowMapper(null);
-        SQL_GET_BY_ID = String.format("select * from %s where %s = ?", beanInfo.getTableName(), beanInfo.getPrimaryColumn());
+        selectColumns = beanInfo.getSelectColumns(null);
+        SQL_GET_BY_ID = String.format("select %s from %s where %s = ?", selectColumns, beanInfo.getTableName(), beanInfo.getPrimaryColumn());
+    }
+
+    /**
+     * 设置流式读取时游标的fetchSize，mysql需要设置为{@link Integer#MIN_VALUE}才会真正的流式读取，
+     * 其他数据库设置为正数，如1000。
+     * @param streamFetchSize 0表示使用{@link JdbcTemplate#getFetchSize()}。
+     */
+    public void setStreamFetchSize(int streamFetchSize) {
+        this.streamFetchSize = streamFetchSize;
+    }
+
+    /**
+     * @return 流式读取实际使用的fetchSize，未设置时使用读库{@link JdbcTemplate#getFetchSize()}。
+     */
+    public int getStreamFetchSize() {
+        return streamFetchSize != 0 ? streamFetchSize : readJdbc().getFetchSize();
     }
 
     public RowMapper<T> getRowMapper() {
@@ -130,33 +244,32 @@ public abstract class BaseDao<T> {
     public RowMapper<T> createRowMapper(final BeanSetter<T> setter) {
         return new RowMapper<T>() {
 
+            //每个线程当前ResultSet的字段计划，同一个ResultSet只解析一次元数据，
+            //转换器被多个线程同时使用（并行扫描、分表查询等），不能共享一个计划
+            private final ThreadLocal<MappingPlan> plan = new ThreadLocal<>();
+
             @Override
             public T mapRow(ResultSet rs, int rowNum) throws SQLException {
                 T bean;
                 try {
-                    bean = beanClass.newInstance();
-                } catch (InstantiationException | IllegalAccessException e) {
+                    bean = newBean();
+                } catch (ReflectiveOperationException e) {
                     throw new SQLException(beanClass.getName() + " new fail", e);
                 }
-                for(Map.Entry<String, String> entry : columnsMapper.entrySet()) {
-                    if(beanInfo.isIgnore(entry.getValue(), IgnoreColumnType.QUERY)) continue;
-                    try {
-                        rs.findColumn(entry.getKey());
-                    } catch(SQLException e) {
+                MappingPlan p = plan.get();
+                if(p == null || p.resultSet.get() != rs) {
+                    p = new MappingPlan(rs);
+                    plan.set(p);
+                }
+                for(int i = 0; i < p.indexes.length; i++) {
+                    PropertyAccessor accessor = p.accessors[i];
+                    if(accessor != null) {
+                        accessor.read(rs, p.indexes[i], bean);
                         continue;
                     }
-                    Class<?> type = columnTypes.get(entry.getValue());
-                    Object value;
-                    if(type == null) {
-                        value = rs.getObject(entry.getKey());
-                    } else {
-                        value = rs.getObject(entry.getKey(), type);
-                        if(rs.wasNull()) {
-                            continue;
-                        }
-                    }
+                    Object value = p.converters[i].read(rs, p.indexes[i]);
                     if(value == null) continue;
-                    Beans.set(bean, Beans.getField(beanClass, entry.getValue()), value);
+                    Beans.set(bean, p.fields[i], value);
                 }
                 if(setter != null) {
                     setter.bean(bean, rs, rowNum);
@@ -166,9 +279,123 @@ public abstract class BaseDao<T> {
         };
     }
 
+    /**
+     * {@link ResultSet}中能映射到实体属性的字段，原始类型的属性使用{@link PropertyAccessor}按位置读取，
+     * 其他属性使用初始化时确定的{@link TypeConverter}读取。
+     */
+    private class MappingPlan {
+        final WeakReference<ResultSet> resultSet;
+        final int[] indexes;
+        final String[] columns;
+        final String[] properties;
+        final Field[] fields;
+        final PropertyAccessor[] accessors;
+        final TypeConverter[] converters;
+
+        MappingPlan(ResultSet rs) throws SQLException {
+            resultSet = new WeakReference<>(rs);
+            ResultSetMetaData md = rs.getMetaData();
+            int count = md.getColumnCount();
+            List<Integer> idx = new ArrayList<>(count);
+            List<String> cols = new ArrayList<>(count);
+            List<String> props = new ArrayList<>(count);
+            Set<String> found = new HashSet<>();
+            for(int i = 1; i <= count; i++) {
+                String label = md.getColumnLabel(i);
+                String prop = columnsIgnoreCase.get(label);
+                //与findColumn一致，同名字段只取第一个
+                if(prop == null || !found.add(prop)) continue;
+                if(beanInfo.isIgnore(prop, IgnoreColumnType.QUERY)) continue;
+                idx.add(i);
+                cols.add(label);
+                props.add(prop);
+            }
+            indexes = new int[idx.size()];
+            columns = cols.toArray(new String[cols.size()]);
+            properties = props.toArray(new String[props.size()]);
+            fields = new Field[idx.size()];
+            accessors = new PropertyAccessor[idx.size()];
+            converters = new TypeConverter[idx.size()];
+            for(int i = 0; i < indexes.length; i++) {
+                indexes[i] = idx.get(i);
+                fields[i] = beanInfo.getField(properties[i]);
+                accessors[i] = BaseDao.this.accessors.get(properties[i]);
+                converters[i] = BaseDao.this.converters.get(properties[i]);
+            }
+        }
+    }
+
+    /**
+     * 使用属性的{@link TypeConverter}从{@link ResultSet}中读取属性对应字段的值，大字段（{@link LobValue#isLobType(Class)}）会以流的方式读取。
+     * @param rs
+     * @param column 字段名。
+     * @param property 属性名。
+     * @return 字段为null时返回null。
+     * @throws SQLException
+     */
+    protected Object getValue(ResultSet rs, String column, String property) throws SQLException {
+        TypeConverter converter = converters.get(property);
+        if(converter == null) {
+            Object value = rs.getObject(column);
+            return rs.wasNull() ? null : value;
+        }
+        return converter.read(rs, rs.findColumn(column));
+    }
+
+    /**
+     * 创建一个轻量对象（DTO）的行转换器，DTO中与实体同名的属性会使用实体的字段映射来填充，
+     * 其他属性会被忽略，通常与{@link #select(String...)}或{@link #select(Class)}一起使用。
+     * @param dtoClass 有默认构造方法的类型。
+     * @param <D>
+     * @return
+     */
+    @SuppressWarnings("unchecked")
+    public <D> RowMapper<D> createProjectionMapper(final Class<D> dtoClass) {
+        RowMapper<D> mapper = (RowMapper<D>) projectionMappers.get(dtoClass);
+        if(mapper != null) return mapper;
+        final List<String> columns = new ArrayList<>();
+        final List<Field> fields = new ArrayList<>();
+        final List<TypeConverter> types = new ArrayList<>();
+        for(String prop : beanInfo.getQueryProperties()) {
+            Field f = Beans.getField(dtoClass, prop);
+            if(f == null) continue;
+            Class<?> type = columnTypes.get(prop);
+            columns.add(propertiesMapper.get(prop));
+            fields.add(f);
+            types.add(f.getType() == beanInfo.getField(prop).getType() ? converters.get(prop)
+                    : TypeConverter.of(f.getType(), type != null && f.getType().isAssignableFrom(type) ? type : f.getType()));
+        }
+        final Constructor<D> dtoConstructor = Beans.getConstructor(dtoClass);
+        mapper = new RowMapper<D>() {
+            @Override
+            public D mapRow(ResultSet rs, int rowNum) throws SQLException {
+                D bean;
+                try {
+                    bean = Beans.newInstance(dtoConstructor, dtoClass);
+                } catch (ReflectiveOperationException e) {
+                    throw new SQLException(dtoClass.getName() + " new fail", e);
+                }
+                for(int i = 0; i < columns.size(); i++) {
+                    int index;
+                    try {
+                        index = rs.findColumn(columns.get(i));
+                    } catch(SQLException e) {
+                        continue;
+                    }
+                    Object value = types.get(i).read(rs, index);
+                    if(value == null) continue;
+                    Beans.set(bean, fields.get(i), value);
+                }
+                return bean;
+            }
+        };
+        projectionMappers.put(dtoClass, mapper);
+        return mapper;
+    }
+
     @Autowired
     public void setDataSource(DataSource dataSource) {
-        jdbc = new JdbcTemplate(dataSource);
+        jdbc = new DaoJdbcTemplate(dataSource, this);
         insert = new SimpleJdbcInsert(jdbc);
         insert.withTableName(beanInfo.getTableName());
         if(beanInfo.getIdGenerator() == IdGenerator.AUTO_INCREMENT) {
@@ -177,9 +404,163 @@ public abstract class BaseDao<T> {
         namedJdbc = new NamedParameterJdbcTemplate(jdbc);
     }
 
-    public T getById(Object id) {
+    /**
+     * 设置只读的数据源（如从库），设置后{@link #getById(Object)}、query、{@link #getCount(String, Object...)}、
+     * {@link #getPropertyValue(Object, String, Class)}等读操作会轮询使用这些数据源，
+     * 写操作以及事务中的读操作仍然使用{@link #setDataSource(DataSource)}设置的主库。
+     * @param dataSources 为空时所有操作都使用主库。
+     */
+    public void setReadDataSources(DataSource...dataSources) {
+        List<JdbcTemplate> list = new ArrayList<>();
+        if(dataSources != null) {
+            for(DataSource ds : dataSources) {
+                JdbcTemplate t = new DaoJdbcTemplate(ds, this);
+                if(jdbc != null) {
+                    t.setFetchSize(jdbc.getFetchSize());
+                    t.setMaxRows(jdbc.getMaxRows());
+                    t.setQueryTimeout(jdbc.getQueryTimeout());
+                }
+                list.add(t);
+            }
+        }
+        List<NamedParameterJdbcTemplate> named = new ArrayList<>(list.size());
+        for(JdbcTemplate t : list) {
+            named.add(new NamedParameterJdbcTemplate(t));
+        }
+        readNamedJdbcs = named;
+        readJdbcs = list;
+    }
+
+    /**
+     * 设置主库和从库。
+     * @param writeDataSource 主库。
+     * @param readDataSources 从库。
+     * @see #setReadDataSources(DataSource...)
+     */
+    public void setDataSources(DataSource writeDataSource, DataSource...readDataSources) {
+        setDataSource(writeDataSource);
+        setReadDataSources(readDataSources);
+    }
+
+    /**
+     * 开启执行计划诊断，之后每种新的查询sql第一次执行前都会分析执行计划。
+     * @param diagnostics 为null时关闭诊断。
+     * @see SqlDiagnostics
+     */
+    public void setDiagnostics(SqlDiagnostics diagnostics) {
+        this.diagnostics = diagnostics;
+    }
+
+    /**
+     * 开启或关闭合并查询：并发的相同{@link #getById(Object)}和{@link #getPropertyValue(Object, String, Class)}
+     * 只执行一次查询，其他调用者等待并共享结果，用于缓存失效时大量线程同时查询同一条记录。事务中的查询不会被合并。
+     * 每个调用者得到结果的拷贝，数组和可克隆的属性值（如Date、Calendar、ArrayList）也会被复制（见{@link Beans#copyValue(Object)}），
+     * 其他可变的属性值仍然被共享。大字段（{@link LobValue}）的流不能共享，有大字段属性的实体和大字段属性的查询不会被合并。
+     * @param coalescing
+     * @see RequestCoalescer
+     */
+    public void setCoalescing(boolean coalescing) {
+        this.coalescer = coalescing ? new RequestCoalescer() : null;
+    }
+
+    /**
+     * @return 合并查询的统计，没有开启时返回null。
+     */
+    public RequestCoalescer getCoalescer() {
+        return coalescer;
+    }
+
+    //事务中需要读到自己未提交的数据，不合并
+    private RequestCoalescer coalescer() {
+        RequestCoalescer c = coalescer;
+        if(c == null || TransactionSynchronizationManager.isActualTransactionActive()) return null;
+        return c;
+    }
+
+    T newBean() throws ReflectiveOperationException {
+        return Beans.newInstance(constructor, beanClass);
+    }
+
+    private T copyBean(T bean) {
+        T copy;
+        try {
+            copy = newBean();
+        } catch(ReflectiveOperationException e) {
+            throw new RuntimeException(beanClass.getName() + " new fail", e);
+        }
+        for(String prop : propertiesMapper.keySet()) {
+            Field f = beanInfo.getField(prop);
+            Beans.set(copy, f, Beans.copyValue(Beans.get(bean, f)));
+        }
+        return copy;
+    }
+
+    /**
+     * @return 当前DAO的诊断结果，没有开启时返回null。
+     */
+    public SqlDiagnostics getDiagnostics() {
+        return diagnostics;
+    }
+
+    /**
+     * 读操作使用的{@link JdbcTemplate}，没有设置从库或者当前线程有事务时返回主库。
+     * @return
+     * @see #getReadJdbcTemplate()
+     */
+    protected JdbcTemplate readJdbc() {
+        List<JdbcTemplate> reads = readJdbcs;
+        if(reads.isEmpty() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return jdbc;
+        }
+        return reads.get(nextReadIndex(reads.size()));
+    }
+
+    /**
+     * 当前线程的读操作使用的{@link JdbcTemplate}，用于不经过DAO方法的读取，如{@link com.jxs.ld.stream.RowPublisher}。
+     * @return
+     */
+    public JdbcTemplate getReadJdbcTemplate() {
+        return readJdbc();
+    }
+
+    /**
+     * @see #readJdbc()
+     * @return
+     */
+    protected NamedParameterJdbcTemplate readNamedJdbc() {
+        List<NamedParameterJdbcTemplate> reads = readNamedJdbcs;
+        if(reads.isEmpty() || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return namedJdbc;
+        }
+        return reads.get(nextReadIndex(reads.size()));
+    }
+
+    private int nextReadIndex(int size) {
+        return (readIndex.getAndIncrement() & Integer.MAX_VALUE) % size;
+    }
+
+    /**
+     * 开启合并查询后，并发的相同主键查询只执行一次，每个调用者得到结果的一个拷贝。
+     * @see #setCoalescing(boolean)
+     */
+    public T getById(final Object id) {
+        RequestCoalescer c = lobEntity ? null : coalescer();
+        if(c == null) return loadById(id);
+        T bean = c.execute(Collections.singletonList(id), new RequestCoalescer.Loader<T>() {
+            @Override
+            public T load() {
+                return loadById(id);
+            }
+        });
+        return bean == null ? null : copyBean(bean);
+    }
+
+    /**
+     * {@link #getById(Object)}的实际查询。
+     */
+    private T loadById(Object id) {
         try {
-            return jdbc.queryForObject(SQL_GET_BY_ID, getRowMapper(), id);
+            return readJdbc().queryForObject(SQL_GET_BY_ID, getRowMapper(), id);
         } catch(EmptyResultDataAccessException e) {
             return null;
         }
@@ -187,30 +568,22 @@ public abstract class BaseDao<T> {
 
     public void insert(T bean) {
         IdGenerator idg = beanInfo.getIdGenerator();
-        String primaryColumn = beanInfo.getPrimaryColumn();
-        Map<String, Object> map = Beans.getValueMap(bean, idg == IdGenerator.ASSIGNED);
-        Map<String, Object> tmp = new HashMap<>();
-        for(String col : map.keySet()) {
-            if(!beanInfo.isIgnore(columnsMapper.get(col), IgnoreColumnType.INSERT)) {
-                tmp.put(col, map.get(col));
-            }
-        }
-        map = tmp;
+        Map<String, Object> map = insertValues(bean);
         Object idValue = null;
-        if(IdGenerator.AUTO_INCREMENT == idg) {
-            idValue = insert.executeAndReturnKey(map);
-        } else if(IdGenerator.UUID == idg) {
-            String uuid = uuid();
-            if(beanInfo.getUuidLength() > uuid.length()) {
-                throw new RuntimeException(bean.getClass().getName() + "的UUIDLength长度溢出（不能超过" + uuid.length() + "位）。");
+        try {
+            if(IdGenerator.AUTO_INCREMENT == idg) {
+                idValue = insert.executeAndReturnKey(map);
+            } else if(IdGenerator.UUID == idg) {
+                idValue = newUuid();
+                map.put(beanInfo.getPrimaryColumn(), idValue);
+                insert.execute(map);
+            } else if(IdGenerator.ASSIGNED == idg) {
+                insert.execute(map);
+            } else {
+                throw new RuntimeException("Id generator not found on " + bean.getClass().getName() + ", you must add @Column to primary key and provider a id generator.");
             }
-            idValue = uuid.substring(uuid.length() - beanInfo.getUuidLength(), uuid.length());
-            map.put(primaryColumn, idValue);
-            insert.execute(map);
-        } else if(IdGenerator.ASSIGNED == idg) {
-            insert.execute(map);
-        } else {
-            throw new RuntimeException("Id generator not found on " + bean.getClass().getName() + ", you must add @Column to primary key and provider a id generator.");
+        } finally {
+            StatementCreatorUtils.cleanupParameters(map.values());
         }
         if(idValue != null) {
             Beans.set(bean, beanInfo.getPrimary(), idValue);
@@ -218,50 +591,354 @@ public abstract class BaseDao<T> {
     }
 
     /**
-     * 更新记录。
+     * 批量插入记录，UUID和ASSIGNED主键的实体使用一个JDBC批次，
+     * AUTO_INCREMENT主键需要取回每条记录的自增值，会逐条插入。
+     * @param beans
+     */
+    @SuppressWarnings("unchecked")
+    public void batchInsert(List<T> beans) {
+        if(beans.isEmpty()) return;
+        IdGenerator idg = beanInfo.getIdGenerator();
+        if(IdGenerator.AUTO_INCREMENT == idg) {
+            for(T bean : beans) {
+                insert(bean);
+            }
+            return;
+        }
+        if(IdGenerator.UUID != idg && IdGenerator.ASSIGNED != idg) {
+            throw new RuntimeException("Id generator not found on " + beanClass.getName() + ", you must add @Column to primary key and provider a id generator.");
+        }
+        SqlParameterSource[] sources = new SqlParameterSource[beans.size()];
+        String[] ids = new String[beans.size()];
+        List<Object> lobs = new ArrayList<>();
+        try {
+            for(int i = 0; i < sources.length; i++) {
+                Map<String, Object> map = insertValues(beans.get(i));
+                lobs.addAll(map.values());
+                if(IdGenerator.UUID == idg) {
+                    ids[i] = newUuid();
+                    map.put(beanInfo.getPrimaryColumn(), ids[i]);
+                }
+                sources[i] = new MapSqlParameterSource(map);
+            }
+            insert.executeBatch(sources);
+        } finally {
+            StatementCreatorUtils.cleanupParameters(lobs);
+        }
+        if(IdGenerator.UUID == idg) {
+            for(int i = 0; i < ids.length; i++) {
+                Beans.set(beans.get(i), beanInfo.getPrimary(), ids[i]);
+            }
+        }
+    }
+
+    /**
+     * 插入的字段值，不包括被{@link IgnoreColumnType#INSERT}忽略的属性，自动生成的主键也不包括在内。
+     */
+    private Map<String, Object> insertValues(T bean) {
+        Field version = beanInfo.getVersion();
+        if(version != null && Beans.get(bean, version) == null) {
+            Beans.set(bean, version, versionValue(0));
+        }
+        boolean includePrimaryKey = beanInfo.getIdGenerator() == IdGenerator.ASSIGNED;
+        Map<String, Object> map = new HashMap<>();
+        for(Map.Entry<String, String> entry : propertiesMapper.entrySet()) {
+            String prop = entry.getKey();
+            String col = entry.getValue();
+            if(!includePrimaryKey && col.equals(beanInfo.getPrimaryColumn())) continue;
+            if(beanInfo.isIgnore(prop, IgnoreColumnType.INSERT)) continue;
+            map.put(col, converters.get(prop).write(Beans.get(bean, beanInfo.getField(prop))));
+        }
+        return map;
+    }
+
+    private String newUuid() {
+        String uuid = uuid();
+        if(beanInfo.getUuidLength() > uuid.length()) {
+            throw new RuntimeException(beanClass.getName() + "的UUIDLength长度溢出（不能超过" + uuid.length() + "位）。");
+        }
+        return uuid.substring(uuid.length() - beanInfo.getUuidLength(), uuid.length());
+    }
+
+    /**
+     * 更新记录。默认查询不读取的属性（{@link com.jxs.ld.bean.LazyColumn}和被{@link IgnoreColumnType#QUERY}忽略的属性）
+     * 在查询出的实体上总是null，为了不覆盖数据库中的值，这些属性为null时不会被更新，需要更新为null时使用{@link #updateProperties(Object, String...)}。
      * @param bean
      * @param includeNullValue true表示会把null值的字段也更新到数据库，false会排除null值的更新。
      * @param excludeProperties 排除的属性，表示不会更新这些字段，注意你需要提供的是属性名而不是字段名。
      * @throws RuntimeException bean的id为null时抛出。
+     * @throws OptimisticLockException 实体有{@link com.jxs.ld.bean.Version}并且没有匹配到记录时抛出，更新成功后实体的版本号会加1。
      */
     public void update(T bean, boolean includeNullValue, String...excludeProperties) {
+        update(bean, includeNullValue, null, excludeProperties);
+    }
+
+    /**
+     * 只更新指定的属性，null值也会被更新，如将延迟属性更新为null。
+     * @param bean
+     * @param properties 属性名（非字段名）。
+     * @throws OptimisticLockException 见{@link #update(Object, boolean, String...)}。
+     */
+    public void updateProperties(T bean, String...properties) {
+        if(properties == null || properties.length == 0) throw new RuntimeException("Properties must not be empty.");
+        for(String p : properties) {
+            if(propertiesMapper.get(p) == null) {
+                throw new RuntimeException("Property [" + p + "] not found on table " + beanInfo.getTableName());
+            }
+        }
+        update(bean, true, new HashSet<>(Arrays.asList(properties)));
+    }
+
+    /**
+     * @param only 只更新这些属性（包括null值），为null时更新所有可更新的属性。
+     */
+    private void update(T bean, boolean includeNullValue, Set<String> only, String...excludeProperties) {
         Set<String> excludes = new HashSet<>();
         if(excludeProperties != null) {
             for(String p : excludeProperties) {
                 excludes.add(propertiesMapper.get(p));
             }
         }
-        Map<String, Object> map = Beans.getValueMap(bean, true);
-        Map<String, Object> tmp = new HashMap<>();
-        for(String col : map.keySet()) {
-            if(!beanInfo.isIgnore(columnsMapper.get(col), IgnoreColumnType.UPDATE)) {
-                tmp.put(col, map.get(col));
-            }
-        }
-        map = tmp;
-        Object id = map.get(beanInfo.getPrimaryColumn());
+        Object id = Beans.get(bean, beanInfo.getPrimary());
         if(id == null) throw new RuntimeException("Id must not be null.");
-        map.remove(beanInfo.getPrimaryColumn());
+        Field version = beanInfo.getVersion();
+        Object currentVersion = null;
+        if(version != null) {
+            currentVersion = Beans.get(bean, version);
+            if(currentVersion == null) throw new RuntimeException("Version must not be null.");
+        }
         List<String> sets = new LinkedList<>();
+        //原始类型的属性放入PropertyAccessor，绑定参数时直接从实体读取
         final List<Object> values = new LinkedList<>();
-        for(Map.Entry<String, Object> entry : map.entrySet()) {
-            if(excludes.contains(entry.getKey())) continue;
-            Object value = entry.getValue();
-            if(value == null && !includeNullValue) continue;
-            sets.add(entry.getKey() + "=?");
-            values.add(value);
+        for(Map.Entry<String, String> entry : propertiesMapper.entrySet()) {
+            String prop = entry.getKey();
+            String col = entry.getValue();
+            if(col.equals(beanInfo.getPrimaryColumn()) || excludes.contains(col)) continue;
+            if(version != null && prop.equals(version.getName())) continue;
+            if(beanInfo.isIgnore(prop, IgnoreColumnType.UPDATE)) continue;
+            if(only != null && !only.contains(prop)) continue;
+            boolean skipNull = only == null && (!includeNullValue || unloadedProperties.contains(prop));
+            PropertyAccessor accessor = accessors.get(prop);
+            if(accessor != null) {
+                if(skipNull && accessor.isNull(bean)) continue;
+                sets.add(col + "=?");
+                values.add(accessor);
+            } else {
+                Object value = converters.get(prop).write(Beans.get(bean, beanInfo.getField(prop)));
+                if(value == null && skipNull) continue;
+                sets.add(col + "=?");
+                values.add(value);
+            }
+        }
+        Object nextVersion = null;
+        String where = beanInfo.getPrimaryColumn() + "=?";
+        if(version != null) {
+            nextVersion = versionValue(((Number) currentVersion).longValue() + 1);
+            sets.add(beanInfo.getVersionColumn() + "=?");
+            values.add(nextVersion);
+            where += " and " + beanInfo.getVersionColumn() + "=?";
         }
         values.add(id);
-        String sql = String.format("update %s set %s where %s=?", beanInfo.getTableName(), StringUtils.join(sets, ","), beanInfo.getPrimaryColumn());
-        jdbc.update(sql, new PreparedStatementSetter() {
-            @Override
-            public void setValues(PreparedStatement ps) throws SQLException {
-                int i = 1;
-                for(Object v : values) {
-                    ps.setObject(i++, v);
+        if(version != null) values.add(currentVersion);
+        String sql = String.format("update %s set %s where %s", beanInfo.getTableName(), StringUtils.join(sets, ","), where);
+        final T target = bean;
+        int count;
+        try {
+            count = jdbc.update(sql, new PreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps) throws SQLException {
+                    int i = 1;
+                    for(Object v : values) {
+                        if(v instanceof PropertyAccessor) {
+                            ((PropertyAccessor) v).bind(ps, i++, target);
+                        } else if(v instanceof SqlTypeValue) {
+                            ((SqlTypeValue) v).setTypeValue(ps, i++, SqlTypeValue.TYPE_UNKNOWN, null);
+                        } else {
+                            ps.setObject(i++, v);
+                        }
+                    }
                 }
+            });
+        } finally {
+            StatementCreatorUtils.cleanupParameters(values);
+        }
+        if(version != null) {
+            if(count == 0) throw staleException(bean, id, currentVersion);
+            Beans.set(bean, version, nextVersion);
+        }
+    }
+
+    /**
+     * 批量更新记录，所有可更新的字段（包括null值）都会被更新。实体有{@link com.jxs.ld.bean.Version}时，
+     * 每条记录都会检查版本号，任何一条没有更新到记录都会抛出{@link OptimisticLockException}，
+     * 此时其他记录可能已经被更新，应该在事务中调用。
+     * @param beans
+     * @return 每条记录的更新行数。
+     * @see #batchUpdate(List, String...)
+     */
+    public int[] batchUpdate(List<T> beans) {
+        return batchUpdate(beans, new String[0]);
+    }
+
+    /**
+     * 批量更新记录，默认查询不读取的属性（延迟属性等，见{@link #update(Object, boolean, String...)}）
+     * 只有在所有实体中都不为null，或者在lazyProperties中指定时才会被更新。
+     * @param beans
+     * @param lazyProperties 需要更新（包括null值）的延迟属性。
+     * @return 每条记录的更新行数。
+     */
+    public int[] batchUpdate(final List<T> beans, String...lazyProperties) {
+        if(beans.isEmpty()) return new int[0];
+        List<String> props = new ArrayList<>();
+        List<String> named = lazyProperties == null ? Collections.<String>emptyList() : Arrays.asList(lazyProperties);
+        for(String prop : updatableProperties()) {
+            if(unloadedProperties.contains(prop) && !named.contains(prop) && anyNull(beans, prop)) continue;
+            props.add(prop);
+        }
+        return batchUpdate(beans, props);
+    }
+
+    /**
+     * 批量更新记录，null值的属性不会被更新。按顺序把null值属性相同的连续实体放在同一个批次中，
+     * 不会改变记录的更新顺序。
+     * @param beans
+     * @see #update(Object)
+     */
+    void batchUpdateSkipNull(List<T> beans) {
+        List<String> updatable = updatableProperties();
+        List<String> last = null;
+        List<T> batch = new ArrayList<>();
+        for(T bean : beans) {
+            List<String> props = new ArrayList<>();
+            for(String prop : updatable) {
+                PropertyAccessor accessor = accessors.get(prop);
+                boolean isNull = accessor != null ? accessor.isNull(bean) : Beans.get(bean, beanInfo.getField(prop)) == null;
+                if(!isNull) props.add(prop);
             }
-        });
+            if(last != null && !last.equals(props)) {
+                batchUpdateIfAny(batch, last);
+                batch = new ArrayList<>();
+            }
+            batch.add(bean);
+            last = props;
+        }
+        if(!batch.isEmpty()) batchUpdateIfAny(batch, last);
+    }
+
+    private void batchUpdateIfAny(List<T> beans, List<String> props) {
+        //所有属性都是null并且没有版本号时没有需要更新的字段
+        if(!props.isEmpty() || beanInfo.getVersion() != null) batchUpdate(beans, props);
+    }
+
+    /**
+     * @return 除主键和版本号外，没有被{@link IgnoreColumnType#UPDATE}忽略的属性。
+     */
+    private List<String> updatableProperties() {
+        Field version = beanInfo.getVersion();
+        List<String> props = new ArrayList<>();
+        for(Map.Entry<String, String> entry : propertiesMapper.entrySet()) {
+            String prop = entry.getKey();
+            if(entry.getValue().equals(beanInfo.getPrimaryColumn())) continue;
+            if(version != null && prop.equals(version.getName())) continue;
+            if(beanInfo.isIgnore(prop, IgnoreColumnType.UPDATE)) continue;
+            props.add(prop);
+        }
+        return props;
+    }
+
+    /**
+     * @param props 更新的属性，包括null值。
+     */
+    private int[] batchUpdate(final List<T> beans, final List<String> props) {
+        final Field version = beanInfo.getVersion();
+        List<String> sets = new ArrayList<>();
+        for(String prop : props) {
+            sets.add(propertiesMapper.get(prop) + "=?");
+        }
+        String where = beanInfo.getPrimaryColumn() + "=?";
+        if(version != null) {
+            sets.add(beanInfo.getVersionColumn() + "=?");
+            where += " and " + beanInfo.getVersionColumn() + "=?";
+        }
+        String sql = String.format("update %s set %s where %s", beanInfo.getTableName(), StringUtils.join(sets, ","), where);
+        final Object[] versions = new Object[beans.size()];
+        for(int i = 0; i < beans.size(); i++) {
+            T bean = beans.get(i);
+            if(Beans.get(bean, beanInfo.getPrimary()) == null) throw new RuntimeException("Id must not be null.");
+            if(version != null) {
+                versions[i] = Beans.get(bean, version);
+                if(versions[i] == null) throw new RuntimeException("Version must not be null.");
+            }
+        }
+        final List<Object> lobs = new ArrayList<>();
+        int[] counts;
+        try {
+            counts = jdbc.batchUpdate(sql, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int index) throws SQLException {
+                    T bean = beans.get(index);
+                    int i = 1;
+                    for(String prop : props) {
+                        PropertyAccessor accessor = accessors.get(prop);
+                        if(accessor != null) {
+                            accessor.bind(ps, i++, bean);
+                            continue;
+                        }
+                        Object value = converters.get(prop).write(Beans.get(bean, beanInfo.getField(prop)));
+                        if(value instanceof SqlTypeValue) {
+                            lobs.add(value);
+                            ((SqlTypeValue) value).setTypeValue(ps, i++, SqlTypeValue.TYPE_UNKNOWN, null);
+                        } else {
+                            ps.setObject(i++, value);
+                        }
+                    }
+                    if(version != null) ps.setObject(i++, versionValue(((Number) versions[index]).longValue() + 1));
+                    ps.setObject(i++, Beans.get(bean, beanInfo.getPrimary()));
+                    if(version != null) ps.setObject(i, versions[index]);
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return beans.size();
+                }
+            });
+        } finally {
+            StatementCreatorUtils.cleanupParameters(lobs);
+        }
+        if(version != null) {
+            //驱动返回SUCCESS_NO_INFO时无法判断是否更新成功
+            for(int i = 0; i < counts.length; i++) {
+                if(counts[i] == 0) {
+                    T bean = beans.get(i);
+                    throw staleException(bean, Beans.get(bean, beanInfo.getPrimary()), versions[i]);
+                }
+            }
+            for(int i = 0; i < beans.size(); i++) {
+                Beans.set(beans.get(i), version, versionValue(((Number) versions[i]).longValue() + 1));
+            }
+        }
+        return counts;
+    }
+
+    private boolean anyNull(List<T> beans, String prop) {
+        Field f = beanInfo.getField(prop);
+        for(T bean : beans) {
+            if(Beans.get(bean, f) == null) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 将版本号转换成属性的类型。
+     */
+    private Object versionValue(long value) {
+        Class<?> type = beanInfo.getVersion().getType();
+        return type == int.class || type == Integer.class ? (Object) (int) value : (Object) value;
+    }
+
+    private OptimisticLockException staleException(T bean, Object id, Object version) {
+        return new OptimisticLockException(String.format("%s [%s=%s, %s=%s] was updated or deleted by another transaction",
+                beanInfo.getTableName(), beanInfo.getPrimaryColumn(), id, beanInfo.getVersionColumn(), version), bean);
     }
 
     /**
@@ -273,6 +950,25 @@ public abstract class BaseDao<T> {
         update(bean, false);
     }
 
+    /**
+     * 创建一个csv导入器，可以设置并行数、批次大小和出错处理方式等。
+     * @return
+     * @see CsvImporter
+     */
+    public CsvImporter csvImporter() {
+        return new CsvImporter(jdbc, beanInfo, columnTypes);
+    }
+
+    /**
+     * 使用默认设置并行导入csv文件，第一行必须是表头（属性名或字段名），任何一行出错都会停止导入。
+     * @param file UTF-8编码的csv文件。
+     * @return 导入的结果。
+     * @see #csvImporter()
+     */
+    public CsvImporter.Result importCsv(Path file) {
+        return csvImporter().run(file);
+    }
+
     /**
      * 根据ID删除记录。
      * @param id
@@ -281,16 +977,34 @@ public abstract class BaseDao<T> {
         jdbc.update(String.format("delete from %s where %s=?", beanInfo.getTableName(), beanInfo.getPrimaryColumn()), id);
     }
 
+    /**
+     * 根据ID批量删除记录，每{@value #IN_CHUNK_SIZE}个ID使用一次in删除。
+     * @param ids
+     * @return 删除的记录数。
+     */
+    public int deleteByIds(Collection<?> ids) {
+        if(ids == null || ids.isEmpty()) return 0;
+        List<Object> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        int count = 0;
+        for(int from = 0; from < distinct.size(); from += IN_CHUNK_SIZE) {
+            List<Object> chunk = distinct.subList(from, Math.min(from + IN_CHUNK_SIZE, distinct.size()));
+            String sql = String.format("delete from %s where %s in (%s)", beanInfo.getTableName(),
+                    beanInfo.getPrimaryColumn(), StringUtils.repeat("?", ",", chunk.size()));
+            count += jdbc.update(sql, chunk.toArray());
+        }
+        return count;
+    }
+
     public T getOne(String sql, RowMapper<T> mapper, Object...values) {
         try {
-            return jdbc.queryForObject(sql, mapper, values);
+            return readJdbc().queryForObject(sql, mapper, values);
         } catch(EmptyResultDataAccessException e) {
             return null;
         }
     }
 
     public int getCount(String sql, Object...values) {
-        return jdbc.queryForObject(sql, values, Integer.class);
+        return readJdbc().queryForObject(sql, values, Integer.class);
     }
 
     /**
@@ -302,12 +1016,14 @@ public abstract class BaseDao<T> {
      * @return
      */
     public Page<T> query(Page<T> page, RowMapper<T> mapper, SqlBuilder sqlBuilder, Object...values) {
-        int total = getCount(sqlBuilder.toSqlCount(), values);
+        //总数和数据使用同一个数据源
+        JdbcTemplate reader = readJdbc();
+        int total = countTotal(page, reader, sqlBuilder.toSql(), sqlBuilder.toSqlCount(), values);
         if(total == 0) {
             page.setTotal(0);
             page.setData(new LinkedList<T>());
         } else {
-            List<T> list = jdbc.query(sqlBuilder.toSql(page.getStart(), page.getLimit()), mapper, values);
+            List<T> list = reader.query(sqlBuilder.toSql(page.getStart(), page.getLimit()), mapper, values);
             page.setTotal(total);
             page.setData(list);
         }
@@ -324,9 +1040,19 @@ public abstract class BaseDao<T> {
      * @see #query(Page, RowMapper, SqlBuilder, Object...)
      */
     public Page<T> query(Page<T> page, MapSqlParameterSource parameters, RowMapper<T> mapper, SqlBuilder sqlBuilder) {
-        int total = namedJdbc.queryForObject(sqlBuilder.toSqlCount(), parameters, Integer.class);
+        NamedParameterJdbcTemplate reader = readNamedJdbc();
+        int total;
+        if(page instanceof ApproximatePage) {
+            //转换成位置参数后估算
+            ParsedSql parsed = NamedParameterUtils.parseSqlStatement(sqlBuilder.toSql());
+            String sql = NamedParameterUtils.substituteNamedParameters(parsed, parameters);
+            Object[] values = NamedParameterUtils.buildValueArray(parsed, parameters, null);
+            total = countTotal(page, reader.getJdbcOperations(), sql, String.format("select count(0) from (%s) count_tmp_table", sql), values);
+        } else {
+            total = reader.queryForObject(sqlBuilder.toSqlCount(), parameters, Integer.class);
+        }
         if(total != 0) {
-            List<T> list = namedJdbc.query(sqlBuilder.toSql(page.getStart(), page.getLimit()), parameters, mapper);
+            List<T> list = reader.query(sqlBuilder.toSql(page.getStart(), page.getLimit()), parameters, mapper);
             page.setTotal(total);
             page.setData(list);
         } else {
@@ -336,8 +1062,100 @@ public abstract class BaseDao<T> {
         return page;
     }
 
+    /**
+     * 分页的总数，{@link ApproximatePage}在估算值不小于阈值时直接使用估算值。
+     */
+    private int countTotal(Page<T> page, JdbcOperations reader, String sql, String countSql, Object...values) {
+        if(page instanceof ApproximatePage) {
+            ApproximatePage<T> ap = (ApproximatePage<T>) page;
+            long estimate = estimateCount(reader, sql, values);
+            if(estimate >= 0 && estimate >= ap.getExactCountThreshold()) {
+                ap.setApproximate(true);
+                return (int) Math.min(estimate, Integer.MAX_VALUE);
+            }
+            ap.setApproximate(false);
+        }
+        return reader.queryForObject(countSql, values, Integer.class);
+    }
+
+    /**
+     * 通过EXPLAIN估算查询的行数，使用执行计划第一行的rows（乘以filtered的百分比），
+     * 没有条件的查询会得到表统计信息中的行数。默认是mysql的实现，其他数据库可以覆盖。
+     * @param reader
+     * @param sql
+     * @param values
+     * @return 估算的行数，无法估算时返回-1。
+     */
+    protected long estimateCount(JdbcOperations reader, String sql, Object...values) {
+        List<Map<String, Object>> plan;
+        try {
+            plan = reader.queryForList("explain " + sql, values);
+        } catch(DataAccessException e) {
+            return -1;
+        }
+        if(plan.isEmpty()) return -1;
+        Object rows = plan.get(0).get("rows");
+        Object filtered = plan.get(0).get("filtered");
+        if(!(rows instanceof Number)) return -1;
+        double estimate = ((Number) rows).doubleValue();
+        if(filtered instanceof Number) {
+            estimate = estimate * ((Number) filtered).doubleValue() / 100;
+        }
+        return Math.round(estimate);
+    }
+
     public List<T> query(String sql, RowMapper<T> mapper, Object...values) {
-        return jdbc.query(sql ,mapper, values);
+        return readJdbc().query(sql ,mapper, values);
+    }
+
+    /**
+     * 创建当前实体的查询条件声明。
+     * @return
+     * @see FilterSpec
+     */
+    public FilterSpec filterSpec() {
+        return new FilterSpec(beanInfo);
+    }
+
+    /**
+     * 使用编译好的查询。
+     * @param query
+     * @param mapper
+     * @param params 命名参数，可以为null。
+     * @param values 位置参数。
+     * @return
+     * @see SqlBuilder#compile()
+     */
+    public List<T> query(CompiledQuery query, RowMapper<T> mapper, Map<String, ?> params, Object...values) {
+        CompiledQuery.Statement st = query.statement(params, values);
+        return readJdbc().query(st.getSql(), mapper, st.getArgs());
+    }
+
+    /**
+     * 使用编译好的查询分页。
+     * @param page
+     * @param query
+     * @param mapper
+     * @param params 命名参数，可以为null。
+     * @param values 位置参数。
+     * @return
+     * @see SqlBuilder#compile()
+     */
+    public Page<T> query(Page<T> page, CompiledQuery query, RowMapper<T> mapper, Map<String, ?> params, Object...values) {
+        JdbcTemplate reader = readJdbc();
+        CompiledQuery.Statement st = query.statement(params, values);
+        CompiledQuery.Statement count = query.countStatement(params, values);
+        int total = countTotal(page, reader, st.getSql(), count.getSql(), count.getArgs());
+        if(total == 0) {
+            page.setTotal(0);
+            page.setData(new LinkedList<T>());
+        } else {
+            CompiledQuery.Statement data = query.pageStatement(page.getStart(), page.getLimit(), params, values);
+            List<T> list = reader.query(data.getSql(), mapper, data.getArgs());
+            page.setTotal(total);
+            page.setData(list);
+        }
+        return page;
     }
 
     /**
@@ -349,13 +1167,174 @@ public abstract class BaseDao<T> {
      * @return
      */
     public List<T> query(int max, String sql, RowMapper<T> mapper, Object...values) {
-        return jdbc.query(new SqlBuilder().sql(sql).toSql(0, max), mapper, values);
+        return readJdbc().query(new SqlBuilder().sql(sql).toSql(0, max), mapper, values);
     }
 
     public Page<T> query(Page<T> page) {
         throw new RuntimeException("Empty query implements.");
     }
 
+    /**
+     * 创建一个只读、只向前并且使用{@link #getStreamFetchSize()}的语句，用于流式读取大量记录。
+     * @param sql
+     * @param values
+     * @return
+     */
+    protected PreparedStatementCreator streamingStatement(final String sql, final Object...values) {
+        final int fetchSize = getStreamFetchSize();
+        return new PreparedStatementCreator() {
+            @Override
+            public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if(fetchSize != 0 && fetchSize != -1) {
+                    ps.setFetchSize(fetchSize);
+                }
+                new ArgumentPreparedStatementSetter(values).setValues(ps);
+                return ps;
+            }
+        };
+    }
+
+    /**
+     * 按列读取查询结果，数值属性读入原始类型数组，字符串属性使用字典编码，不会创建实体，适合大量记录的统计分析：
+     * <pre>
+     * ColumnarReader.Result r = queryColumns(new String[]{"age", "score"}, select("age", "score").where("@age > ?"), 18);
+     * long[] scores = r.getLongVector("score").getValues();
+     * </pre>
+     * @param properties 属性名（非字段名），查询结果中必须包含它们对应的字段。
+     * @param sqlBuilder
+     * @param values 查询参数。
+     * @return
+     * @see ColumnarReader
+     */
+    public ColumnarReader.Result queryColumns(String[] properties, SqlBuilder sqlBuilder, Object...values) {
+        String[] columns = new String[properties.length];
+        Class<?>[] types = new Class<?>[properties.length];
+        for(int i = 0; i < properties.length; i++) {
+            columns[i] = getColumn(properties[i]);
+            if(columns[i] == null) {
+                throw new RuntimeException("Property [" + properties[i] + "] not found on table " + beanInfo.getTableName());
+            }
+            types[i] = columnTypes.get(properties[i]);
+        }
+        return readJdbc().query(streamingStatement(sqlBuilder.toSql(), values), new ColumnarReader(properties, columns, types));
+    }
+
+    /**
+     * 将查询结果直接导出到channel中，不会创建实体，表头和JSON的key使用实体的属性名。
+     * @param sqlBuilder
+     * @param channel 导出的目标，不会被关闭。
+     * @param format CSV或JSON Lines。
+     * @param values 查询参数。
+     * @return 导出的记录数。
+     * @see RowExporter
+     */
+    public long export(SqlBuilder sqlBuilder, WritableByteChannel channel, RowExporter.Format format, Object...values) {
+        return readJdbc().query(streamingStatement(sqlBuilder.toSql(), values), new RowExporter(channel, format, columnsIgnoreCase));
+    }
+
+    /**
+     * 导出到文件，文件存在时会被覆盖。
+     * @param sqlBuilder
+     * @param file
+     * @param format
+     * @param values
+     * @return 导出的记录数。
+     * @see #export(SqlBuilder, WritableByteChannel, RowExporter.Format, Object...)
+     */
+    public long export(SqlBuilder sqlBuilder, Path file, RowExporter.Format format, Object...values) {
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            return export(sqlBuilder, channel, format, values);
+        } catch(IOException e) {
+            throw new DataAccessResourceFailureException("Cannot write " + file, e);
+        }
+    }
+
+    /**
+     * 创建一个按主键范围并行扫描全表的扫描器，主键必须是整数类型。
+     * @return
+     * @see TableScanner
+     */
+    public TableScanner<T> scanner() {
+        return new TableScanner<>(readJdbc(), beanInfo.getTableName(), beanInfo.getPrimaryColumn(), selectColumns, getRowMapper())
+                .fetchSize(getStreamFetchSize());
+    }
+
+    /**
+     * 使用parallelism个连接并行扫描全表。
+     * @param parallelism 并行数。
+     * @param consumer 线程安全的处理者。
+     * @return 扫描的记录数。
+     * @see #scanner()
+     */
+    public long scan(int parallelism, TableScanner.RowConsumer<T> consumer) {
+        return scanner().parallelism(parallelism).run(consumer);
+    }
+
+    /**
+     * 按limit offset逐页读取，处理当前页时后台预读下一页。
+     * 遍历中途停止时必须调用{@link PageIterator#close()}。
+     * @param sqlBuilder 需要有稳定的排序，否则页与页之间可能重复或遗漏。
+     * @param pageSize 每页的记录数。
+     * @param values 查询参数。
+     * @return
+     * @see #pagesByPrimaryKey(SqlBuilder, int, Object...)
+     */
+    public PageIterator<T> pages(final SqlBuilder sqlBuilder, final int pageSize, final Object...values) {
+        //所有页使用同一个数据源
+        final JdbcTemplate reader = readJdbc();
+        return new PageIterator<>(new PageIterator.Fetcher<T>() {
+            @Override
+            public List<T> fetch(List<T> previous, int pageIndex) {
+                return reader.query(sqlBuilder.toSql(pageIndex * pageSize, pageSize), getRowMapper(), values);
+            }
+        }, pageSize);
+    }
+
+    /**
+     * 按主键逐页读取（keyset分页，<code>where id &gt; 上一页最后的主键 order by id limit n</code>），
+     * 页数很多时比{@link #pages(SqlBuilder, int, Object...)}快，处理当前页时后台预读下一页。
+     * 主键条件通过{@link SqlBuilder#toSqlAnd(String)}和查询自己的条件（括号括起来）组合，
+     * 查询不能有order by和limit，查询结果必须包含主键字段。
+     * 遍历中途停止时必须调用{@link PageIterator#close()}。
+     * @param sqlBuilder
+     * @param pageSize 每页的记录数。
+     * @param values 查询参数。
+     * @return
+     * @see #pagesByPrimaryKey(SqlBuilder, String, int, Object...)
+     */
+    public PageIterator<T> pagesByPrimaryKey(SqlBuilder sqlBuilder, int pageSize, Object...values) {
+        return pagesByPrimaryKey(sqlBuilder, beanInfo.getPrimaryColumn(), pageSize, values);
+    }
+
+    /**
+     * 连表查询时使用带表别名的主键字段，如"b.id"。
+     * @param sqlBuilder
+     * @param keyColumn 主键字段。
+     * @param pageSize 每页的记录数。
+     * @param values 查询参数。
+     * @return
+     * @see #pagesByPrimaryKey(SqlBuilder, int, Object...)
+     */
+    public PageIterator<T> pagesByPrimaryKey(SqlBuilder sqlBuilder, String keyColumn, final int pageSize, final Object...values) {
+        if(!sqlBuilder.getOrders().isEmpty()) {
+            throw new RuntimeException("Pages by primary key are always ordered by " + keyColumn + ", remove the order by clause.");
+        }
+        final JdbcTemplate reader = readJdbc();
+        final String first = String.format("%s order by %s limit %d", sqlBuilder.toSql(), keyColumn, pageSize);
+        final String next = String.format("%s order by %s limit %d", sqlBuilder.toSqlAnd(keyColumn + " > ?"), keyColumn, pageSize);
+        return new PageIterator<>(new PageIterator.Fetcher<T>() {
+            @Override
+            public List<T> fetch(List<T> previous, int pageIndex) {
+                if(previous == null) return reader.query(first, getRowMapper(), values);
+                Object last = Beans.get(previous.get(previous.size() - 1), beanInfo.getPrimary());
+                Object[] args = Arrays.copyOf(values, values.length + 1);
+                args[values.length] = last;
+                return reader.query(next, getRowMapper(), args);
+            }
+        }, pageSize);
+    }
+
     /**
      * 创建一个包含{@link #beanClass}对应关系（属性-字段）和一个表名变量（tableName）的SQL构建器。
      * 这个构建器里已经有了{@linkplain #propertiesMapper}和{@linkplain #beanInfo}的表名的变量。
@@ -366,7 +1345,8 @@ public abstract class BaseDao<T> {
     public SqlBuilder createSqlBuilder(Map<String, String>...propertiesMapper) {
         return new SqlBuilder(this.propertiesMapper)
                 .addVar(propertiesMapper)
-                .addVar("tableName", beanInfo.getTableName());
+                .addVar("tableName", beanInfo.getTableName())
+                .addVar("columns", selectColumns);
     }
 
     /**
@@ -389,6 +1369,56 @@ public abstract class BaseDao<T> {
         return createSqlBuilder().autoAppendTableAlias(true);
     }
 
+    /**
+     * 只查询指定属性对应字段的sql构建器，如：select("id", "name").where("@age > ?", true, 18)。
+     * @param properties 属性名（非字段名），为空时查询所有未被忽略查询的字段（等同于@columns变量）。
+     * @return
+     */
+    public SqlBuilder select(String...properties) {
+        return sql("select " + beanInfo.getSelectColumns(null, properties) + " from @tableName");
+    }
+
+    /**
+     * 只查询dtoClass中与实体同名的属性对应的字段。
+     * @param dtoClass
+     * @return
+     * @see #createProjectionMapper(Class)
+     */
+    public SqlBuilder select(Class<?> dtoClass) {
+        List<String> props = new ArrayList<>();
+        for(String prop : beanInfo.getQueryProperties()) {
+            if(Beans.getField(dtoClass, prop) != null) props.add(prop);
+        }
+        if(props.isEmpty()) {
+            throw new RuntimeException(dtoClass.getName() + " has no property of " + beanClass.getName());
+        }
+        return select(props.toArray(new String[props.size()]));
+    }
+
+    /**
+     * 查询并映射到轻量对象（DTO）。
+     * @param dtoClass
+     * @param sqlBuilder 通常由{@link #select(Class)}创建。
+     * @param values 查询参数。
+     * @param <D>
+     * @return
+     */
+    public <D> List<D> query(Class<D> dtoClass, SqlBuilder sqlBuilder, Object...values) {
+        return readJdbc().query(sqlBuilder.toSql(), createProjectionMapper(dtoClass), values);
+    }
+
+    /**
+     * 连表查询并同时填充主实体和关联实体。
+     * @param mapper
+     * @param sqlBuilder 查询字段通常使用{@link JoinMapper#getSelectColumns()}生成。
+     * @param values 查询参数。
+     * @return 按主键去重的主实体，顺序与结果集一致。
+     * @see JoinMapper
+     */
+    public List<T> query(JoinMapper<T> mapper, SqlBuilder sqlBuilder, Object...values) {
+        return readJdbc().query(sqlBuilder.toSql(), mapper, values);
+    }
+
     /**
      * 根据主键获取某个字段值。
      * @param id
@@ -398,30 +1428,240 @@ public abstract class BaseDao<T> {
      * @return
      * @since 2.x
      */
-    public <P> P getPropertyValue(Object id, String propertyName, Class<P> propertyType) {
+    @SuppressWarnings("unchecked")
+    public <P> P getPropertyValue(final Object id, final String propertyName, final Class<P> propertyType) {
+        RequestCoalescer c = LobValue.isLobType(propertyType) ? null : coalescer();
+        if(c == null) return loadPropertyValue(id, propertyName, propertyType);
+        return (P) Beans.copyValue(c.execute(Arrays.asList(id, propertyName, propertyType), new RequestCoalescer.Loader<P>() {
+            @Override
+            public P load() {
+                return loadPropertyValue(id, propertyName, propertyType);
+            }
+        }));
+    }
+
+    /**
+     * {@link #getPropertyValue(Object, String, Class)}的实际查询。
+     */
+    private <P> P loadPropertyValue(Object id, String propertyName, Class<P> propertyType) {
         String col = getColumn(propertyName);
         String sql = sql("select " + col + " from @tableName where @id = ?").toSql();
         try {
-            return jdbc.queryForObject(sql, propertyType, id);
+            return readJdbc().queryForObject(sql, propertyType, id);
         } catch(EmptyResultDataAccessException e) {
             return null;
         }
     }
 
+    /**
+     * 加载实体的延迟属性（{@link com.jxs.ld.bean.LazyColumn}）。
+     * @param bean 主键不能为空。
+     * @param properties 需要加载的属性，为空时加载所有延迟属性。
+     * @return bean
+     */
+    public T loadLazy(T bean, String...properties) {
+        if(bean == null) return null;
+        List<T> list = new ArrayList<>(1);
+        list.add(bean);
+        loadLazy(list, properties);
+        return bean;
+    }
+
+    /**
+     * 批量加载实体列表的延迟属性，每{@value #IN_CHUNK_SIZE}个主键使用一次in查询。
+     * @param beans
+     * @param properties 需要加载的属性，为空时加载所有延迟属性。
+     * @return beans
+     */
+    public List<T> loadLazy(List<T> beans, String...properties) {
+        final List<String> props = properties == null || properties.length == 0
+                ? beanInfo.getLazyProperties() : Arrays.asList(properties);
+        if(beans == null || beans.isEmpty() || props.isEmpty()) return beans;
+        final Field primary = beanInfo.getPrimary();
+        final Map<Object, List<T>> byId = new LinkedHashMap<>();
+        for(T bean : beans) {
+            Object id = Beans.get(bean, primary);
+            if(id == null) throw new RuntimeException("Id must not be null.");
+            List<T> tmp = byId.get(id);
+            if(tmp == null) {
+                tmp = new ArrayList<>(1);
+                byId.put(id, tmp);
+            }
+            tmp.add(bean);
+        }
+        final String primaryColumn = beanInfo.getPrimaryColumn();
+        final Class<?> primaryType = columnTypes.get(primary.getName());
+        String columns = beanInfo.getSelectColumns(null, props.toArray(new String[props.size()]));
+        List<Object> ids = new ArrayList<>(byId.keySet());
+        for(int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+            List<Object> chunk = ids.subList(from, Math.min(from + IN_CHUNK_SIZE, ids.size()));
+            String sql = String.format("select %s, %s from %s where %s in (%s)", primaryColumn, columns,
+                    beanInfo.getTableName(), primaryColumn, StringUtils.repeat("?", ",", chunk.size()));
+            readJdbc().query(sql, chunk.toArray(), new RowCallbackHandler() {
+                @Override
+                public void processRow(ResultSet rs) throws SQLException {
+                    List<T> targets = byId.get(rs.getObject(primaryColumn, primaryType));
+                    if(targets == null) return;
+                    for(String prop : props) {
+                        Object value = getValue(rs, propertiesMapper.get(prop), prop);
+                        if(value == null) continue;
+                        for(T bean : targets) {
+                            Beans.set(bean, beanInfo.getField(prop), value);
+                        }
+                    }
+                }
+            });
+        }
+        return beans;
+    }
+
+    /**
+     * 根据多个主键查询，每{@value #IN_CHUNK_SIZE}个主键使用一次in查询。
+     * @param ids 主键集合，重复的主键只查询一次。
+     * @return 查询到的记录，顺序不保证与ids一致。
+     */
+    public List<T> getByIds(Collection<?> ids) {
+        List<T> list = new ArrayList<>();
+        if(ids == null || ids.isEmpty()) return list;
+        List<Object> distinct = new ArrayList<>(new LinkedHashSet<>(ids));
+        String primaryColumn = beanInfo.getPrimaryColumn();
+        for(int from = 0; from < distinct.size(); from += IN_CHUNK_SIZE) {
+            List<Object> chunk = distinct.subList(from, Math.min(from + IN_CHUNK_SIZE, distinct.size()));
+            String sql = String.format("select %s from %s where %s in (%s)", selectColumns,
+                    beanInfo.getTableName(), primaryColumn, StringUtils.repeat("?", ",", chunk.size()));
+            list.addAll(readJdbc().query(sql, getRowMapper(), chunk.toArray()));
+        }
+        return list;
+    }
+
+    /**
+     * 批量加载关联实体，收集beans中不重复的外键值，通过otherDao使用in查询一次性取出关联实体后再设置到beans上，
+     * 避免对每个实体调用一次{@link #getById(Object)}。
+     * <pre>
+     * bookDao.loadAssociations(books, "userId", userDao, new AssociationSetter&lt;Book, User&gt;() {
+     *     public void set(Book book, User user) {
+     *         book.setUser(user);
+     *     }
+     * });
+     * </pre>
+     * @param beans
+     * @param foreignKey 外键的属性名（非字段名），值对应otherDao实体的主键。
+     * @param otherDao 关联实体的DAO。
+     * @param setter 外键为null时不会被调用。
+     * @param <R> 关联实体类型。
+     * @return beans
+     */
+    public <R> List<T> loadAssociations(List<T> beans, String foreignKey, BaseDao<R> otherDao, AssociationSetter<T, R> setter) {
+        if(beans == null || beans.isEmpty()) return beans;
+        Field fk = beanInfo.getField(foreignKey);
+        if(fk == null) {
+            throw new RuntimeException("Property [" + foreignKey + "] not found on " + beanClass.getName());
+        }
+        List<Object> keys = new ArrayList<>(beans.size());
+        Set<Object> ids = new LinkedHashSet<>();
+        for(T bean : beans) {
+            Object key = Beans.get(bean, fk);
+            keys.add(key);
+            if(key != null) ids.add(key);
+        }
+        Field otherPrimary = otherDao.getBeanInfo().getPrimary();
+        Map<Object, R> related = new HashMap<>();
+        for(R r : otherDao.getByIds(ids)) {
+            related.put(associationKey(Beans.get(r, otherPrimary)), r);
+        }
+        Iterator<Object> it = keys.iterator();
+        for(T bean : beans) {
+            Object key = it.next();
+            if(key != null) {
+                setter.set(bean, related.get(associationKey(key)));
+            }
+        }
+        return beans;
+    }
+
+    /**
+     * 将关联实体设置到property属性上。
+     * @param beans
+     * @param foreignKey 外键的属性名。
+     * @param otherDao
+     * @param property 关联实体的属性名，该属性通常被{@link com.jxs.ld.bean.IgnoreColumn}忽略。
+     * @param <R>
+     * @return beans
+     * @see #loadAssociations(List, String, BaseDao, AssociationSetter)
+     */
+    public <R> List<T> loadAssociations(List<T> beans, String foreignKey, BaseDao<R> otherDao, String property) {
+        final Field target = Beans.getField(beanClass, property);
+        if(target == null) {
+            throw new RuntimeException("Property [" + property + "] not found on " + beanClass.getName());
+        }
+        return loadAssociations(beans, foreignKey, otherDao, new AssociationSetter<T, R>() {
+            @Override
+            public void set(T bean, R related) {
+                if(related != null) Beans.set(bean, target, related);
+            }
+        });
+    }
+
+    /**
+     * 外键和主键的类型可能不一致（如Integer和Long），整数统一转换成Long来比较。
+     */
+    private static Object associationKey(Object key) {
+        if(key instanceof Integer || key instanceof Long || key instanceof Short || key instanceof Byte) {
+            return ((Number) key).longValue();
+        }
+        return key;
+    }
+
     /**
      * 根据主键更新某个字段的值。
      * @param id
      * @param property 属性名（非字段名）
      * @param value
+     * @throws RuntimeException property是{@link com.jxs.ld.bean.Version}属性时抛出。
      * @since 2.x
      */
     public void update(Object id, String property, Object value) {
         String column = getColumn(property);
         BeanInfo i = getBeanInfo();
         if(column != null) {
-            String sql = String.format("update %s set %s = ? where %s = ?", i.getTableName(), column, i.getPrimaryColumn());
-            jdbc.update(sql, value, id);
+            String set = column + " = ?" + versionIncrement(property);
+            String sql = String.format("update %s set %s where %s = ?", i.getTableName(), set, i.getPrimaryColumn());
+            jdbc.update(sql, converters.get(property).write(value), id);
+        }
+    }
+
+    /**
+     * 不经过实体的单字段更新不知道当前的版本号，实体有{@link com.jxs.ld.bean.Version}时把版本号加1，
+     * 使持有旧版本号的实体更新时抛出{@link OptimisticLockException}。
+     * @param property 更新的属性。
+     * @return 追加到set子句后面的版本号更新，没有版本号时返回空字符串。
+     */
+    String versionIncrement(String property) {
+        Field version = beanInfo.getVersion();
+        if(version == null) return "";
+        if(version.getName().equals(property)) {
+            throw new RuntimeException("Version property [" + property + "] cannot be updated directly.");
+        }
+        return ", " + beanInfo.getVersionColumn() + " = " + beanInfo.getVersionColumn() + " + 1";
+    }
+
+    /**
+     * 获取这个DAO共享的写缓冲（使用默认设置，第一次调用时启动），用于代替高频的{@link #update(Object, String, Object)}。
+     * @return
+     * @see WriteBehindBuffer
+     */
+    public WriteBehindBuffer writeBehind() {
+        WriteBehindBuffer b = writeBehind;
+        if(b == null) {
+            synchronized(this) {
+                b = writeBehind;
+                if(b == null) {
+                    b = new WriteBehindBuffer(this).start();
+                    writeBehind = b;
+                }
+            }
         }
+        return b;
     }
 
     /**
@@ -439,6 +1679,6 @@ public abstract class BaseDao<T> {
      * @since 2.x
      */
     public List<T> queryAll() {
-        return query(sql("select * from @tableName").toSql(), getRowMapper());
+        return query(sql("select @columns from @tableName").toSql(), getRowMapper());
     }
 }
@@ -0,0 +1,119 @@
+package com.jxs.ld;
+
+import com.jxs.ld.diag.SqlDiagnostics;
+import com.jxs.ld.diag.SqlEvents;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.core.SqlProvider;
+
+import javax.sql.DataSource;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Collection;
+
+/**
+ * {@link BaseDao}使用的{@link JdbcTemplate}，所有查询和更新都会经过这里。
+ * DAO开启诊断时在查询前分析执行计划，JFR事件开启时记录执行和转换实体的耗时（见{@link SqlEvents}）。
+ *
+ * @author jiangxingshang
+ */
+class DaoJdbcTemplate extends JdbcTemplate {
+
+    private final BaseDao<?> dao;
+
+    DaoJdbcTemplate(DataSource dataSource, BaseDao<?> dao) {
+        super(dataSource);
+        this.dao = dao;
+    }
+
+    /**
+     * 记录结果集开始读取和读取结束的时间，用于区分执行时间和转换时间。
+     */
+    private static class TimedExtractor<T> implements ResultSetExtractor<T> {
+        final ResultSetExtractor<T> target;
+        long started;
+        long ended;
+
+        TimedExtractor(ResultSetExtractor<T> target) {
+            this.target = target;
+        }
+
+        @Override
+        public T extractData(ResultSet rs) throws SQLException, DataAccessException {
+            started = System.nanoTime();
+            try {
+                return target.extractData(rs);
+            } finally {
+                ended = System.nanoTime();
+            }
+        }
+    }
+
+    @Override
+    public <T> T query(PreparedStatementCreator psc, PreparedStatementSetter pss, ResultSetExtractor<T> rse) throws DataAccessException {
+        String sql = psc instanceof SqlProvider ? ((SqlProvider) psc).getSql() : null;
+        SqlDiagnostics diagnostics = dao.getDiagnostics();
+        if(diagnostics != null && sql != null) {
+            //NamedParameterJdbcTemplate的PreparedStatementCreator同时也是PreparedStatementSetter
+            PreparedStatementSetter setter = pss == null && psc instanceof PreparedStatementSetter ? (PreparedStatementSetter) psc : pss;
+            diagnostics.inspect(this, sql, setter);
+        }
+        Object event = SqlEvents.begin();
+        if(event == null) return super.query(psc, pss, rse);
+        TimedExtractor<T> timed = new TimedExtractor<>(rse);
+        long start = System.nanoTime();
+        T result = super.query(psc, pss, timed);
+        SqlEvents.commit(event, dao.getClass(), "query", sql, rows(result), timed.started - start, timed.ended - timed.started);
+        return result;
+    }
+
+    @Override
+    public <T> T query(String sql, ResultSetExtractor<T> rse) throws DataAccessException {
+        SqlDiagnostics diagnostics = dao.getDiagnostics();
+        if(diagnostics != null) {
+            diagnostics.inspect(this, sql, null);
+        }
+        Object event = SqlEvents.begin();
+        if(event == null) return super.query(sql, rse);
+        TimedExtractor<T> timed = new TimedExtractor<>(rse);
+        long start = System.nanoTime();
+        T result = super.query(sql, timed);
+        SqlEvents.commit(event, dao.getClass(), "query", sql, rows(result), timed.started - start, timed.ended - timed.started);
+        return result;
+    }
+
+    @Override
+    protected int update(PreparedStatementCreator psc, PreparedStatementSetter pss) throws DataAccessException {
+        Object event = SqlEvents.begin();
+        if(event == null) return super.update(psc, pss);
+        long start = System.nanoTime();
+        int rows = super.update(psc, pss);
+        SqlEvents.commit(event, dao.getClass(), "update", psc instanceof SqlProvider ? ((SqlProvider) psc).getSql() : null,
+                rows, System.nanoTime() - start, 0);
+        return rows;
+    }
+
+    @Override
+    public int[] batchUpdate(String sql, BatchPreparedStatementSetter pss) throws DataAccessException {
+        Object event = SqlEvents.begin();
+        if(event == null) return super.batchUpdate(sql, pss);
+        long start = System.nanoTime();
+        int[] counts = super.batchUpdate(sql, pss);
+        long rows = 0;
+        for(int c : counts) {
+            if(c > 0) rows += c;
+        }
+        SqlEvents.commit(event, dao.getClass(), "batch", sql, rows, System.nanoTime() - start, 0);
+        return counts;
+    }
+
+    private static long rows(Object result) {
+        if(result instanceof Collection) return ((Collection<?>) result).size();
+        if(result instanceof Number) return ((Number) result).longValue();
+        return -1;
+    }
+}
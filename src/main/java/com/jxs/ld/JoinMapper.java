@@ -0,0 +1,255 @@
+package com.jxs.ld;
+
+import com.jxs.ld.bean.BeanInfo;
+import com.jxs.ld.bean.Beans;
+import com.jxs.ld.bean.PropertyAccessor;
+import com.jxs.ld.bean.TypeConverter;
+import com.jxs.ld.utils.AssociationSetter;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.lang.reflect.Field;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 从一个连表查询的结果中同时填充多个实体，代替逐条调用{@link BaseDao#getById(Object)}。
+ * 查询字段使用{@link #getSelectColumns()}生成，每个字段以"表别名__字段名"作为别名。
+ * 主实体和多对一的关联实体按主键去重，一对多的子实体按主键去重后收集成列表。
+ * 字段的读取计划按结果集的字段列表缓存，相同的查询只解析一次元数据。
+ * {@link BaseDao#sql(String)}会自动附加表别名，$u会被替换成"t_user u"，不需要再写别名。
+ * <pre>
+ * JoinMapper&lt;Book&gt; mapper = new JoinMapper&lt;&gt;(bookDao, "b")
+ *     .one(userDao, "u", new AssociationSetter&lt;Book, User&gt;() {
+ *         public void set(Book book, User user) { book.setUser(user); }
+ *     })
+ *     .many(commentDao, "c", new AssociationSetter&lt;Book, List&lt;Comment&gt;&gt;() {
+ *         public void set(Book book, List&lt;Comment&gt; comments) { book.setComments(comments); }
+ *     });
+ * List&lt;Book&gt; books = bookDao.query(mapper, bookDao.sql("select " + mapper.getSelectColumns()
+ *     + " from @tableName b left join $u on u.id = b.@userId left join $c on c.book_id = b.id")
+ *     .addBeanInfo("u", userDao.getBeanInfo()).addBeanInfo("c", commentDao.getBeanInfo()));
+ * </pre>
+ *
+ * @author jiangxingshang
+ * @see BaseDao#query(JoinMapper, com.jxs.ld.sql.SqlBuilder, Object...)
+ */
+public class JoinMapper<T> implements ResultSetExtractor<List<T>> {
+
+    private static class Part {
+        final BaseDao<?> dao;
+        final String alias;
+        final AssociationSetter<Object, Object> setter;
+        final boolean many;
+
+        @SuppressWarnings("unchecked")
+        Part(BaseDao<?> dao, String alias, AssociationSetter<?, ?> setter, boolean many) {
+            this.dao = dao;
+            this.alias = alias;
+            this.setter = (AssociationSetter<Object, Object>) setter;
+            this.many = many;
+        }
+    }
+
+    /**
+     * 一个实体在结果集中的字段位置。
+     */
+    private static class PartPlan {
+        final int keyIndex;
+        final int[] indexes;
+        final Field[] fields;
+        final PropertyAccessor[] accessors;
+        final TypeConverter[] converters;
+
+        PartPlan(Part part, Map<String, Integer> labels) throws SQLException {
+            BaseDao<?> dao = part.dao;
+            BeanInfo info = dao.getBeanInfo();
+            Integer key = labels.get(label(part.alias, info.getPrimaryColumn()));
+            if(key == null) {
+                throw new SQLException("Primary key of [" + part.alias + "] is not selected, use JoinMapper#getSelectColumns()");
+            }
+            keyIndex = key;
+            List<String> props = new ArrayList<>();
+            List<Integer> idx = new ArrayList<>();
+            for(String prop : info.getQueryProperties()) {
+                Integer i = labels.get(label(part.alias, info.getColumn(prop)));
+                if(i == null) continue;
+                props.add(prop);
+                idx.add(i);
+            }
+            indexes = new int[props.size()];
+            fields = new Field[props.size()];
+            accessors = new PropertyAccessor[props.size()];
+            converters = new TypeConverter[props.size()];
+            for(int i = 0; i < indexes.length; i++) {
+                indexes[i] = idx.get(i);
+                fields[i] = info.getField(props.get(i));
+                accessors[i] = dao.accessors.get(props.get(i));
+                converters[i] = dao.converters.get(props.get(i));
+            }
+        }
+
+        Object read(BaseDao<?> dao, ResultSet rs) throws SQLException {
+            Object bean;
+            try {
+                bean = dao.newBean();
+            } catch(ReflectiveOperationException e) {
+                throw new SQLException(dao.beanClass.getName() + " new fail", e);
+            }
+            for(int i = 0; i < indexes.length; i++) {
+                if(accessors[i] != null) {
+                    accessors[i].read(rs, indexes[i], bean);
+                    continue;
+                }
+                Object value = converters[i].read(rs, indexes[i]);
+                if(value != null) Beans.set(bean, fields[i], value);
+            }
+            return bean;
+        }
+    }
+
+    private final List<Part> parts = new ArrayList<>();
+    private final Map<String, PartPlan[]> plans = new ConcurrentHashMap<>();
+
+    /**
+     * @param dao 主实体的DAO。
+     * @param alias 主实体的表别名。
+     */
+    public JoinMapper(BaseDao<T> dao, String alias) {
+        parts.add(new Part(dao, alias, null, false));
+    }
+
+    /**
+     * 多对一或一对一的关联实体，左连接没有匹配的记录时setter的参数为null。
+     * @param dao
+     * @param alias 关联实体的表别名。
+     * @param setter
+     * @param <R>
+     * @return
+     */
+    public <R> JoinMapper<T> one(BaseDao<R> dao, String alias, AssociationSetter<T, R> setter) {
+        parts.add(new Part(dao, alias, setter, false));
+        return this;
+    }
+
+    /**
+     * 一对多的子实体，按主键去重并保持结果集中的顺序，没有子实体时setter的参数为空列表。
+     * @param dao
+     * @param alias 子实体的表别名。
+     * @param setter
+     * @param <R>
+     * @return
+     */
+    public <R> JoinMapper<T> many(BaseDao<R> dao, String alias, AssociationSetter<T, List<R>> setter) {
+        parts.add(new Part(dao, alias, setter, true));
+        return this;
+    }
+
+    /**
+     * @return 所有实体的查询字段，如：b.id b__id, b.name b__name, u.id u__id
+     */
+    public String getSelectColumns() {
+        StringBuilder sb = new StringBuilder();
+        for(Part part : parts) {
+            BeanInfo info = part.dao.getBeanInfo();
+            for(String prop : info.getQueryProperties()) {
+                String col = info.getColumn(prop);
+                if(sb.length() > 0) sb.append(", ");
+                sb.append(part.alias).append('.').append(col).append(' ').append(label(part.alias, col));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String label(String alias, String column) {
+        return (alias + "__" + column).toLowerCase();
+    }
+
+    private PartPlan[] plan(ResultSet rs) throws SQLException {
+        ResultSetMetaData md = rs.getMetaData();
+        int count = md.getColumnCount();
+        StringBuilder shape = new StringBuilder();
+        Map<String, Integer> labels = new HashMap<>();
+        for(int i = count; i >= 1; i--) {
+            //与findColumn一致，同名字段取第一个
+            String label = md.getColumnLabel(i);
+            labels.put(label.toLowerCase(), i);
+            shape.append(label).append(',');
+        }
+        String key = shape.toString();
+        PartPlan[] plan = plans.get(key);
+        if(plan == null) {
+            plan = new PartPlan[parts.size()];
+            for(int i = 0; i < plan.length; i++) {
+                plan[i] = new PartPlan(parts.get(i), labels);
+            }
+            plans.put(key, plan);
+        }
+        return plan;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> extractData(ResultSet rs) throws SQLException {
+        PartPlan[] plan = plan(rs);
+        int size = parts.size();
+        //每个实体的主键到实体的映射，多对一的关联实体在不同主实体之间共享
+        List<Map<Object, Object>> identities = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            identities.add(new HashMap<Object, Object>());
+        }
+        Map<Object, Object> roots = new LinkedHashMap<>();
+        //一对多的子实体，key是主实体的主键
+        List<Map<Object, Map<Object, Object>>> children = new ArrayList<>(size);
+        for(int i = 0; i < size; i++) {
+            children.add(parts.get(i).many ? new HashMap<Object, Map<Object, Object>>() : null);
+        }
+        while(rs.next()) {
+            Object rootKey = rs.getObject(plan[0].keyIndex);
+            if(rootKey == null) continue;
+            Object root = roots.get(rootKey);
+            boolean first = root == null;
+            if(first) {
+                root = plan[0].read(parts.get(0).dao, rs);
+                roots.put(rootKey, root);
+            }
+            for(int i = 1; i < size; i++) {
+                Part part = parts.get(i);
+                if(!part.many && !first) continue;
+                Object key = rs.getObject(plan[i].keyIndex);
+                Object related = null;
+                if(key != null) {
+                    Map<Object, Object> identity = identities.get(i);
+                    related = identity.get(key);
+                    if(related == null) {
+                        related = plan[i].read(part.dao, rs);
+                        identity.put(key, related);
+                    }
+                }
+                if(!part.many) {
+                    part.setter.set(root, related);
+                    continue;
+                }
+                Map<Object, Map<Object, Object>> byRoot = children.get(i);
+                Map<Object, Object> list = byRoot.get(rootKey);
+                if(list == null) {
+                    list = new LinkedHashMap<>();
+                    byRoot.put(rootKey, list);
+                }
+                if(related != null) list.put(key, related);
+            }
+        }
+        for(int i = 1; i < size; i++) {
+            Part part = parts.get(i);
+            if(!part.many) continue;
+            Map<Object, Map<Object, Object>> byRoot = children.get(i);
+            for(Map.Entry<Object, Object> e : roots.entrySet()) {
+                Map<Object, Object> list = byRoot.get(e.getKey());
+                part.setter.set(e.getValue(), list == null ? new ArrayList<>() : new ArrayList<>(list.values()));
+            }
+        }
+        return new ArrayList<>((Collection<T>) roots.values());
+    }
+}
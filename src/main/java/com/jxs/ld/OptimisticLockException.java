@@ -0,0 +1,26 @@
+package com.jxs.ld;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+
+/**
+ * 带有{@link com.jxs.ld.bean.Version}的实体更新时没有匹配到记录，即记录已经被其他人修改或删除。
+ *
+ * @author jiangxingshang
+ */
+@SuppressWarnings("serial")
+public class OptimisticLockException extends OptimisticLockingFailureException {
+
+    private final Object bean;
+
+    public OptimisticLockException(String msg, Object bean) {
+        super(msg);
+        this.bean = bean;
+    }
+
+    /**
+     * @return 更新失败的实体。
+     */
+    public Object getBean() {
+        return bean;
+    }
+}
@@ -0,0 +1,118 @@
+package com.jxs.ld;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 合并并发的相同查询：同一个key同时只有一个查询在执行，其他调用者等待并共享它的结果（包括异常）。
+ * 查询结束后立即移除，之后的调用会重新查询，所以不会返回过期数据，它不是缓存。
+ * 结果对象在调用者之间共享，可变的结果需要由调用者复制，如{@link BaseDao#getById(Object)}会复制实体。
+ *
+ * @author jiangxingshang
+ * @see BaseDao#setCoalescing(boolean)
+ */
+public class RequestCoalescer {
+
+    /**
+     * 执行查询。
+     */
+    public interface Loader<V> {
+        V load();
+    }
+
+    private static class Call {
+        final CountDownLatch done = new CountDownLatch(1);
+        Object value;
+        //Loader不能抛出受检异常，这里只会是RuntimeException或Error
+        Throwable error;
+    }
+
+    private final ConcurrentMap<Object, Call> calls = new ConcurrentHashMap<>();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong queries = new AtomicLong();
+
+    /**
+     * @param key 查询的标识，需要实现equals和hashCode。
+     * @param loader
+     * @return 查询结果，同一个key的并发调用者得到同一个对象。
+     */
+    @SuppressWarnings("unchecked")
+    public <V> V execute(Object key, Loader<V> loader) {
+        requests.incrementAndGet();
+        Call call = new Call();
+        Call running = calls.putIfAbsent(key, call);
+        if(running != null) return (V) await(running);
+        queries.incrementAndGet();
+        try {
+            call.value = loader.load();
+            return (V) call.value;
+        } catch(RuntimeException | Error e) {
+            //不记录Error时等待者会把null当作查询结果返回
+            call.error = e;
+            throw e;
+        } finally {
+            calls.remove(key, call);
+            call.done.countDown();
+        }
+    }
+
+    private Object await(Call call) {
+        boolean interrupted = false;
+        while(true) {
+            try {
+                call.done.await();
+                break;
+            } catch(InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if(interrupted) Thread.currentThread().interrupt();
+        if(call.error instanceof RuntimeException) throw (RuntimeException) call.error;
+        if(call.error instanceof Error) throw (Error) call.error;
+        if(call.error != null) throw new RuntimeException(call.error);
+        return call.value;
+    }
+
+    /**
+     * @return 调用次数。
+     */
+    public long getRequests() {
+        return requests.get();
+    }
+
+    /**
+     * @return 实际执行的查询次数。
+     */
+    public long getQueries() {
+        return queries.get();
+    }
+
+    /**
+     * @return 被合并（没有执行查询）的调用次数。
+     */
+    public long getCollapsed() {
+        return Math.max(0, requests.get() - queries.get());
+    }
+
+    /**
+     * @return 正在执行的查询数。
+     */
+    public int getInFlight() {
+        return calls.size();
+    }
+
+    /**
+     * 清零统计。
+     */
+    public void resetStatistics() {
+        requests.set(0);
+        queries.set(0);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("requests=%d, queries=%d, collapsed=%d", getRequests(), getQueries(), getCollapsed());
+    }
+}
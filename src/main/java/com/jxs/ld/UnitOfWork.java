@@ -0,0 +1,187 @@
+package com.jxs.ld;
+
+import com.jxs.ld.bean.Beans;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.*;
+
+/**
+ * 工作单元，收集多个{@link BaseDao}的写操作，在{@link #commit()}时使用一个事务（一个连接）批量写入。
+ * 写入顺序是固定的：先按表名顺序执行插入，再按表名顺序执行更新，最后按表名逆序执行删除，
+ * 同一个表的更新和删除按主键排序，不同事务以相同的顺序加锁，减少锁等待和死锁。
+ * 有外键约束时可以通过{@link #order(BaseDao[])}指定表的顺序。
+ * 更新与{@link BaseDao#update(Object)}一样忽略null值的属性，null值属性相同的记录批量写入。
+ * 所有DAO必须使用同一个主库数据源。
+ * <pre>
+ * UnitOfWork uow = new UnitOfWork();
+ * uow.insert(orderDao, order);
+ * uow.update(stockDao, stock);
+ * uow.delete(cartDao, cartId);
+ * uow.commit();
+ * </pre>
+ *
+ * @author jiangxingshang
+ */
+public class UnitOfWork {
+
+    private static class Pending {
+        final List<Object> inserts = new ArrayList<>();
+        //同一条记录只更新一次，key是主键
+        final Map<Object, Object> updates = new LinkedHashMap<>();
+        final Set<Object> deletes = new LinkedHashSet<>();
+    }
+
+    private final Map<BaseDao<?>, Pending> pending = new HashMap<>();
+    private List<BaseDao<?>> order = Collections.emptyList();
+
+    /**
+     * 指定表的写入顺序，插入和更新按照这个顺序，删除按照相反的顺序，没有指定的表排在后面并按表名排序。
+     * @param daos
+     * @return
+     */
+    public UnitOfWork order(BaseDao<?>...daos) {
+        this.order = Arrays.asList(daos);
+        return this;
+    }
+
+    public <T> UnitOfWork insert(BaseDao<T> dao, T bean) {
+        pending(dao).inserts.add(bean);
+        return this;
+    }
+
+    /**
+     * 同一条记录多次更新时只写入最后一次，null值的属性不会被更新。
+     */
+    public <T> UnitOfWork update(BaseDao<T> dao, T bean) {
+        Object id = Beans.get(bean, dao.getBeanInfo().getPrimary());
+        if(id == null) throw new RuntimeException("Id must not be null.");
+        pending(dao).updates.put(id, bean);
+        return this;
+    }
+
+    public UnitOfWork delete(BaseDao<?> dao, Object id) {
+        pending(dao).deletes.add(id);
+        return this;
+    }
+
+    private Pending pending(BaseDao<?> dao) {
+        Pending p = pending.get(dao);
+        if(p == null) {
+            p = new Pending();
+            pending.put(dao, p);
+        }
+        return p;
+    }
+
+    /**
+     * @return 是否有未写入的操作。
+     */
+    public boolean isEmpty() {
+        return pending.isEmpty();
+    }
+
+    /**
+     * 在事务中写入所有操作，已经存在事务时加入该事务。写入成功后清空工作单元。
+     */
+    public void commit() {
+        if(pending.isEmpty()) return;
+        DataSource dataSource = null;
+        for(BaseDao<?> dao : pending.keySet()) {
+            DataSource ds = dao.jdbc.getDataSource();
+            if(dataSource != null && dataSource != ds) {
+                throw new RuntimeException("All DAOs in a unit of work must share the same data source.");
+            }
+            dataSource = ds;
+        }
+        new TransactionTemplate(new DataSourceTransactionManager(dataSource)).execute(new TransactionCallbackWithoutResult() {
+            @Override
+            protected void doInTransactionWithoutResult(TransactionStatus status) {
+                flush();
+            }
+        });
+    }
+
+    /**
+     * 在当前线程的事务中写入所有操作，没有事务时每个批次单独提交。
+     */
+    public void flush() {
+        List<BaseDao<?>> daos = sorted();
+        for(BaseDao<?> dao : daos) {
+            Pending p = pending.get(dao);
+            if(!p.inserts.isEmpty()) batchInsert(dao, p.inserts);
+        }
+        for(BaseDao<?> dao : daos) {
+            Pending p = pending.get(dao);
+            if(!p.updates.isEmpty()) batchUpdateSkipNull(dao, sortById(p.updates));
+        }
+        for(int i = daos.size() - 1; i >= 0; i--) {
+            Pending p = pending.get(daos.get(i));
+            if(!p.deletes.isEmpty()) {
+                Map<Object, Object> ids = new LinkedHashMap<>();
+                for(Object id : p.deletes) {
+                    ids.put(id, id);
+                }
+                daos.get(i).deleteByIds(sortById(ids));
+            }
+        }
+        pending.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void batchInsert(BaseDao<T> dao, List<Object> beans) {
+        dao.batchInsert((List<T>) beans);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> void batchUpdateSkipNull(BaseDao<T> dao, List<Object> beans) {
+        dao.batchUpdateSkipNull((List<T>) beans);
+    }
+
+    private List<BaseDao<?>> sorted() {
+        List<BaseDao<?>> daos = new ArrayList<>(pending.keySet());
+        Collections.sort(daos, new Comparator<BaseDao<?>>() {
+            @Override
+            public int compare(BaseDao<?> o1, BaseDao<?> o2) {
+                int i1 = order.indexOf(o1), i2 = order.indexOf(o2);
+                if(i1 < 0) i1 = Integer.MAX_VALUE;
+                if(i2 < 0) i2 = Integer.MAX_VALUE;
+                if(i1 != i2) return i1 < i2 ? -1 : 1;
+                return o1.getBeanInfo().getTableName().compareTo(o2.getBeanInfo().getTableName());
+            }
+        });
+        return daos;
+    }
+
+    /**
+     * @param map key是主键。
+     * @return 按主键排序的值，主键不能比较时保持添加的顺序。
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static List<Object> sortById(Map<Object, Object> map) {
+        List<Map.Entry<Object, Object>> entries = new ArrayList<>(map.entrySet());
+        for(Map.Entry<Object, Object> e : entries) {
+            if(!(e.getKey() instanceof Comparable)) {
+                return new ArrayList<>(map.values());
+            }
+        }
+        try {
+            Collections.sort(entries, new Comparator<Map.Entry<Object, Object>>() {
+                @Override
+                public int compare(Map.Entry<Object, Object> o1, Map.Entry<Object, Object> o2) {
+                    return ((Comparable) o1.getKey()).compareTo(o2.getKey());
+                }
+            });
+        } catch(ClassCastException e) {
+            return new ArrayList<>(map.values());
+        }
+        List<Object> list = new ArrayList<>(entries.size());
+        for(Map.Entry<Object, Object> e : entries) {
+            list.add(e.getValue());
+        }
+        return list;
+    }
+}
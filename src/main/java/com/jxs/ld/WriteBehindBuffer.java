@@ -0,0 +1,411 @@
+package com.jxs.ld;
+
+import com.jxs.ld.bean.BeanInfo;
+import com.jxs.ld.bean.TypeConverter;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 单字段更新的写缓冲，用于计数器、最后访问时间这类高频并且集中在少数记录上的更新。
+ * 同一条记录同一个属性的多次更新会被合并：{@link #set(Object, String, Object)}后写的覆盖先写的，
+ * {@link #increment(Object, String, Number)}累加增量。缓冲的更新在待写数量达到上限时由调用线程刷新，
+ * 或者由后台线程按时间间隔刷新，按属性分组批量执行。JVM退出时会刷新剩余的更新。
+ * 注意：缓冲的更新不在调用者的事务中。实体有{@link com.jxs.ld.bean.Version}时每次写入会把版本号加1
+ * （合并后的多次更新只加1），使持有旧版本号的实体更新失败，版本号属性本身不能缓冲。
+ * 每个属性的批次在一个独立的事务中写入，失败的批次整体回滚并放回缓冲等待下次刷新，不会重复累加。
+ * 自动刷新（达到上限或后台定时）失败时不会抛出异常，可以通过{@link #getLastError()}和{@link #getFailures()}查看，
+ * 失败后自动刷新会按照刷新间隔指数退避（最长1分钟），{@link #flush()}不受影响。
+ * 缓冲的大小有硬上限（见{@link #capacity(int)}），数据库持续不可用时新的更新会等待，超时后抛出异常。
+ *
+ * @author jiangxingshang
+ * @see BaseDao#writeBehind()
+ */
+public class WriteBehindBuffer {
+
+    private static final class Key {
+        final Object id;
+        final String property;
+
+        Key(Object id, String property) {
+            this.id = id;
+            this.property = property;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if(!(o instanceof Key)) return false;
+            Key k = (Key) o;
+            return id.equals(k.id) && property.equals(k.property);
+        }
+
+        @Override
+        public int hashCode() {
+            return id.hashCode() * 31 + property.hashCode();
+        }
+    }
+
+    private static final class Pending {
+        //true表示value是增量
+        final boolean increment;
+        final Object value;
+
+        Pending(boolean increment, Object value) {
+            this.increment = increment;
+            this.value = value;
+        }
+
+        /**
+         * 合并先后两次更新。
+         */
+        static Pending merge(Pending older, Pending newer) {
+            if(older == null || !newer.increment) return newer;
+            if(older.increment) return new Pending(true, add((Number) older.value, (Number) newer.value));
+            if(older.value == null) return older;
+            return new Pending(false, add((Number) older.value, (Number) newer.value));
+        }
+    }
+
+    private static final long MAX_BACKOFF = 60000;
+
+    private final BaseDao<?> dao;
+    //保护pending和inFlight，刷新完成时通知等待空间的调用者
+    private final Object lock = new Object();
+    //同一时间只有一个刷新，保证先缓冲的更新先写入
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private Map<Key, Pending> pending = new LinkedHashMap<>();
+    //正在刷新的更新数，失败时会放回缓冲，所以也计入上限
+    private int inFlight;
+    private int maxPending = 10000;
+    private int capacity = 100000;
+    private long offerTimeout;
+    private long flushInterval = 1000;
+    //自动刷新失败后的退避，只在持有flushLock时修改
+    private long backoff;
+    private volatile long retryAt;
+    private ScheduledExecutorService scheduler;
+    private Thread shutdownHook;
+    private volatile TransactionTemplate transaction;
+    private volatile RuntimeException lastError;
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    /**
+     * 创建后需要调用{@link #start()}启动后台刷新。
+     * @param dao
+     */
+    public WriteBehindBuffer(BaseDao<?> dao) {
+        this.dao = dao;
+    }
+
+    /**
+     * 待写更新（记录和属性的组合）达到这个数量时调用线程会立即刷新（已经有刷新在进行或者在失败后的退避时间内时除外），默认10000。
+     */
+    public WriteBehindBuffer maxPending(int maxPending) {
+        this.maxPending = Math.max(1, maxPending);
+        return this;
+    }
+
+    /**
+     * 缓冲的硬上限（包括正在刷新的更新），默认100000。达到上限时新的记录和属性组合不能缓冲，
+     * 已经缓冲的组合仍然可以合并更新。
+     * @see #offerTimeout(long)
+     */
+    public WriteBehindBuffer capacity(int capacity) {
+        this.capacity = Math.max(1, capacity);
+        return this;
+    }
+
+    /**
+     * 缓冲达到{@link #capacity(int)}时调用者等待空间的毫秒数，默认0。超时后抛出异常，该次更新没有被缓冲，可以重试。
+     */
+    public WriteBehindBuffer offerTimeout(long offerTimeout) {
+        this.offerTimeout = Math.max(0, offerTimeout);
+        return this;
+    }
+
+    /**
+     * 后台刷新的时间间隔（毫秒），默认1000，在{@link #start()}之前设置。
+     */
+    public WriteBehindBuffer flushInterval(long flushInterval) {
+        this.flushInterval = Math.max(1, flushInterval);
+        return this;
+    }
+
+    /**
+     * 启动后台刷新线程并注册JVM退出时的刷新，重复调用没有影响。
+     */
+    public synchronized WriteBehindBuffer start() {
+        if(scheduler != null) return this;
+        final String name = dao.getBeanInfo().getTableName();
+        scheduler = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "light-dao-write-behind-" + name);
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        scheduler.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                tryFlush();
+            }
+        }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        shutdownHook = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                flush();
+            }
+        }, "light-dao-write-behind-shutdown-" + name);
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+        return this;
+    }
+
+    /**
+     * 缓冲一次字段更新，覆盖之前缓冲的值。
+     * @param id 主键。
+     * @param property 属性名（非字段名）。
+     * @param value
+     */
+    public void set(Object id, String property, Object value) {
+        TypeConverter converter = dao.converters.get(property);
+        offer(id, property, new Pending(false, converter == null ? value : converter.write(value)));
+    }
+
+    /**
+     * 缓冲一次字段的累加，刷新时执行"col = col + ?"，与之前缓冲的值或增量合并。
+     * @param id 主键。
+     * @param property 数值类型的属性名（非字段名）。
+     * @param delta
+     */
+    public void increment(Object id, String property, Number delta) {
+        offer(id, property, new Pending(true, delta));
+    }
+
+    private void offer(Object id, String property, Pending update) {
+        if(id == null) throw new RuntimeException("Id must not be null.");
+        if(dao.getColumn(property) == null) {
+            throw new RuntimeException("Property [" + property + "] not found on table " + dao.getBeanInfo().getTableName());
+        }
+        //版本号属性不能缓冲，提前检查而不是在刷新时失败
+        dao.versionIncrement(property);
+        Key key = new Key(id, property);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(offerTimeout);
+        boolean full;
+        boolean flushed = false;
+        while(true) {
+            synchronized(lock) {
+                Pending older = pending.get(key);
+                if(older != null || pending.size() + inFlight < capacity) {
+                    pending.put(key, Pending.merge(older, update));
+                    full = pending.size() >= maxPending;
+                    break;
+                }
+                long backoffLeft = retryAt - System.currentTimeMillis();
+                if(flushed || inFlight > 0 || backoffLeft > 0) {
+                    long left = deadline - System.nanoTime();
+                    if(left <= 0) {
+                        rejected.incrementAndGet();
+                        throw new RuntimeException("Write-behind buffer of " + dao.getBeanInfo().getTableName() + " is full (" + capacity + " pending updates)",
+                                lastError);
+                    }
+                    //等待正在进行的刷新完成或者退避结束
+                    long wait = TimeUnit.NANOSECONDS.toMillis(left) + 1;
+                    awaitSpace(backoffLeft > 0 ? Math.min(wait, backoffLeft) : wait);
+                    flushed = false;
+                    continue;
+                }
+            }
+            tryFlush();
+            flushed = true;
+        }
+        //更新已经在缓冲中，刷新失败时不能抛给调用者，否则调用者重试会重复累加
+        if(full) tryFlush();
+    }
+
+    private void awaitSpace(long millis) {
+        try {
+            lock.wait(millis);
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for write-behind buffer of " + dao.getBeanInfo().getTableName(), e);
+        }
+    }
+
+    /**
+     * 自动刷新：正在刷新或者在失败后的退避时间内时直接返回。
+     */
+    private void tryFlush() {
+        if(retryAt > System.currentTimeMillis() || !flushLock.tryLock()) return;
+        try {
+            doFlush();
+            backoff = 0;
+            retryAt = 0;
+        } catch(RuntimeException e) {
+            //失败的更新已放回缓冲，下次再试
+            lastError = e;
+            failures.incrementAndGet();
+            backoff = backoff == 0 ? flushInterval : Math.min(backoff * 2, MAX_BACKOFF);
+            retryAt = System.currentTimeMillis() + backoff;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * @return 最近一次自动刷新失败的异常，没有失败时返回null。
+     */
+    public RuntimeException getLastError() {
+        return lastError;
+    }
+
+    /**
+     * @return 自动刷新失败的次数。
+     */
+    public long getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * @return 因为缓冲已满而被拒绝的更新次数。
+     */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /**
+     * @return 待写更新的数量。
+     */
+    public int size() {
+        synchronized(lock) {
+            return pending.size();
+        }
+    }
+
+    /**
+     * 立即写入所有缓冲的更新，同一个属性的更新使用一个批次。
+     * @throws RuntimeException 写入失败时抛出，失败的更新会放回缓冲。
+     */
+    public void flush() {
+        flushLock.lock();
+        try {
+            doFlush();
+            backoff = 0;
+            retryAt = 0;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void doFlush() {
+        Map<Key, Pending> batch;
+        synchronized(lock) {
+            if(pending.isEmpty()) return;
+            batch = pending;
+            pending = new LinkedHashMap<>();
+            inFlight = batch.size();
+        }
+        //key是属性名和更新方式
+        Map<String, List<Object[]>> groups = new LinkedHashMap<>();
+        for(Map.Entry<Key, Pending> entry : batch.entrySet()) {
+            Pending p = entry.getValue();
+            String group = (p.increment ? "+" : "=") + entry.getKey().property;
+            List<Object[]> args = groups.get(group);
+            if(args == null) {
+                args = new ArrayList<>();
+                groups.put(group, args);
+            }
+            args.add(new Object[]{p.value, entry.getKey().id});
+        }
+        BeanInfo info = dao.getBeanInfo();
+        TransactionTemplate tx = transaction();
+        try {
+            for(Map.Entry<String, List<Object[]>> entry : groups.entrySet()) {
+                String property = entry.getKey().substring(1);
+                String column = dao.getColumn(property);
+                String set = entry.getKey().charAt(0) == '+' ? column + " = " + column + " + ?" : column + " = ?";
+                set += dao.versionIncrement(property);
+                final String sql = String.format("update %s set %s where %s = ?", info.getTableName(), set, info.getPrimaryColumn());
+                final List<Object[]> args = entry.getValue();
+                //一个批次在一个事务中执行，失败时整体回滚，放回缓冲后不会重复写入
+                tx.execute(new TransactionCallbackWithoutResult() {
+                    @Override
+                    protected void doInTransactionWithoutResult(TransactionStatus status) {
+                        dao.jdbc.batchUpdate(sql, args);
+                    }
+                });
+                for(Object[] a : args) {
+                    batch.remove(new Key(a[1], property));
+                }
+            }
+        } catch(RuntimeException e) {
+            requeue(batch);
+            throw e;
+        } finally {
+            synchronized(lock) {
+                inFlight = 0;
+                lock.notifyAll();
+            }
+        }
+    }
+
+    private TransactionTemplate transaction() {
+        TransactionTemplate t = transaction;
+        if(t == null) {
+            t = new TransactionTemplate(new DataSourceTransactionManager(dao.jdbc.getDataSource()));
+            //不加入调用者的事务，批次单独提交
+            t.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+            transaction = t;
+        }
+        return t;
+    }
+
+    //将失败的更新放回缓冲，它们比缓冲中现有的更新更早
+    private void requeue(Map<Key, Pending> failed) {
+        synchronized(lock) {
+            Map<Key, Pending> merged = new LinkedHashMap<>(failed);
+            for(Map.Entry<Key, Pending> entry : pending.entrySet()) {
+                merged.put(entry.getKey(), Pending.merge(merged.get(entry.getKey()), entry.getValue()));
+            }
+            pending = merged;
+        }
+    }
+
+    /**
+     * 停止后台线程并写入剩余的更新。
+     */
+    public synchronized void close() {
+        if(scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+            try {
+                Runtime.getRuntime().removeShutdownHook(shutdownHook);
+            } catch(IllegalStateException e) {
+                //JVM正在退出
+            }
+            shutdownHook = null;
+        }
+        flush();
+    }
+
+    private static Number add(Number a, Number b) {
+        if(isIntegral(a) && isIntegral(b)) return a.longValue() + b.longValue();
+        return new BigDecimal(a.toString()).add(new BigDecimal(b.toString()));
+    }
+
+    private static boolean isIntegral(Number n) {
+        return n instanceof Integer || n instanceof Long || n instanceof Short || n instanceof Byte;
+    }
+}
@@ -3,7 +3,11 @@ package com.jxs.ld.bean;
 import org.apache.commons.lang3.StringUtils;
 
 import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -21,9 +25,26 @@ public class BeanInfo {
     private Map<String, String> propertiesMapper;
     //实体属性的忽略设置。
     private Map<String, IgnoreColumn> propertiesIgnoreInfoMapper = new HashMap<>();
+    //查询时需要读取的属性，按照属性定义的顺序，不包括被忽略查询和延迟加载的属性。
+    private List<String> queryProperties = new ArrayList<>();
+    //实体属性，key是属性名。
+    private Map<String, Field> fields = new HashMap<>();
+    //延迟加载的属性。
+    private List<String> lazyProperties = new ArrayList<>();
+    //乐观锁的版本号属性。
+    private Field version;
 
     public BeanInfo(Class<?> beanClass) {
-        tableName = Beans.getTable(beanClass);
+        this(beanClass, Beans.getTable(beanClass));
+    }
+
+    /**
+     * 使用指定的表名代替{@link TableName}，如分表时的物理表名。
+     * @param beanClass
+     * @param tableName
+     */
+    public BeanInfo(Class<?> beanClass, String tableName) {
+        this.tableName = tableName;
         if(StringUtils.isBlank(tableName)) {
             throw new RuntimeException("Table name not found on " + beanClass.getName());
         }
@@ -37,7 +58,28 @@ public class BeanInfo {
         propertiesMapper = Beans.getMapper(beanClass);
         for(Field f : Beans.getFields(beanClass)) {
             propertiesIgnoreInfoMapper.put(f.getName(), f.getAnnotation(IgnoreColumn.class));
+            fields.put(f.getName(), f);
+            if(f.getAnnotation(Version.class) != null) {
+                Class<?> type = f.getType();
+                if(type != int.class && type != long.class && type != Integer.class && type != Long.class) {
+                    throw new RuntimeException("@Version must be int or long on " + beanClass.getName() + "." + f.getName());
+                }
+                if(version != null) {
+                    throw new RuntimeException("More than one @Version on " + beanClass.getName());
+                }
+                version = f;
+            }
         }
+        for(Field f : Beans.getFields(beanClass)) {
+            if(isIgnore(f.getName(), IgnoreColumnType.QUERY)) continue;
+            if(f.getAnnotation(LazyColumn.class) != null) {
+                lazyProperties.add(f.getName());
+            } else {
+                queryProperties.add(f.getName());
+            }
+        }
+        queryProperties = Collections.unmodifiableList(queryProperties);
+        lazyProperties = Collections.unmodifiableList(lazyProperties);
     }
 
     public String getTableName() {
@@ -79,6 +121,14 @@ public class BeanInfo {
         return propertiesMapper.get(property);
     }
 
+    /**
+     * @param property 属性名。
+     * @return 实体属性，不存在时返回null。
+     */
+    public Field getField(String property) {
+        return fields.get(property);
+    }
+
     /**
      * @return 实体属性与表字段的映射集合，key是属性名，value是字段名。
      */
@@ -86,6 +136,60 @@ public class BeanInfo {
         return propertiesMapper;
     }
 
+    /**
+     * @return 查询时需要读取的属性（不包括被{@link IgnoreColumnType#QUERY}忽略的属性和{@link LazyColumn}属性）。
+     */
+    public List<String> getQueryProperties() {
+        return queryProperties;
+    }
+
+    /**
+     * @return 标注了{@link LazyColumn}的属性。
+     */
+    public List<String> getLazyProperties() {
+        return lazyProperties;
+    }
+
+    /**
+     * @return 标注了{@link Version}的属性，没有时返回null。
+     */
+    public Field getVersion() {
+        return version;
+    }
+
+    /**
+     * @return 版本号字段，没有时返回null。
+     */
+    public String getVersionColumn() {
+        return version == null ? null : propertiesMapper.get(version.getName());
+    }
+
+    public boolean isLazy(String property) {
+        return lazyProperties.contains(property);
+    }
+
+    /**
+     * 生成查询的字段列表，用于代替"select *"。
+     * @param alias 表别名，可以为空。
+     * @param properties 需要查询的属性，为空时表示{@link #getQueryProperties()}。
+     * @return 以逗号分隔的字段列表，如：id, user_name
+     * @throws RuntimeException 属性不存在时抛出。
+     */
+    public String getSelectColumns(String alias, String...properties) {
+        List<String> props = properties == null || properties.length == 0 ? queryProperties : Arrays.asList(properties);
+        String prefix = StringUtils.isBlank(alias) ? "" : alias + ".";
+        StringBuilder sb = new StringBuilder();
+        for(String p : props) {
+            String col = propertiesMapper.get(p);
+            if(col == null) {
+                throw new RuntimeException("Property [" + p + "] not found on table " + tableName);
+            }
+            if(sb.length() > 0) sb.append(", ");
+            sb.append(prefix).append(col);
+        }
+        return sb.toString();
+    }
+
     /**
      * 实体属性可设置忽略类型，如某个属性在更新操作时应被忽略，但插入和查询时应被处理。
      * 此方法就是判断属性是否设置了ignoreType。
@@ -1,8 +1,11 @@
 package com.jxs.ld.bean;
 
+import com.jxs.ld.utils.LobValue;
 import org.apache.commons.lang3.StringUtils;
 
 import javax.lang.model.type.NullType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Constructor;
 import java.lang.reflect.Field;
 import java.lang.reflect.InvocationTargetException;
 import java.lang.reflect.Method;
@@ -96,7 +99,7 @@ public class Beans {
      * @param parameterTypes 属性对应getter或setter的参数类型。
      * @return 属性对应的getter或setter。
      */
-    private static Method getMethod(Field f, boolean gs, Class<?>... parameterTypes) {
+    static Method getMethod(Field f, boolean gs, Class<?>... parameterTypes) {
         String property = f.getName();
         Class<?> fieldType = f.getType();
         Class<?> boolType = fieldType.isPrimitive() ? boolean.class : Boolean.class;
@@ -221,36 +224,30 @@ public class Beans {
      * @param includePrimaryKey true表示将主键添加到映射中，false则忽略主键。
      * @param <E> 实体类型。
      * @return 字段与值的映射集合。
+     * @see #getValueMap(Object, boolean, Map)
      */
     public static <E> Map<String, Object> getValueMap(E bean, boolean includePrimaryKey) {
+        //每次调用都会查找转换器，多次调用时应该缓存columnConverters的结果
+        return getValueMap(bean, includePrimaryKey, columnConverters(bean.getClass()));
+    }
+
+    /**
+     * @param converters 属性值的转换器，key是属性名，如DAO中的{@link com.jxs.ld.BaseDao#converters}或者缓存的{@link #columnConverters(Class)}。
+     * @see #getValueMap(Object, boolean)
+     */
+    public static <E> Map<String, Object> getValueMap(E bean, boolean includePrimaryKey, Map<String, TypeConverter> converters) {
         String primaryKey = getPrimaryColumn(bean.getClass());
         List<Field> fields = getFields(bean.getClass());
         Map<String, Object> map = new HashMap<>(fields.size());
         for(Field f : fields) {
-            Class<?> columnType = getColumnType(bean.getClass(), f.getName());
             String columnName = getColumnName(f);
             if(!includePrimaryKey && columnName.equals(primaryKey)) continue;
             Method m = getMethod(f, true);
             if(m != null) {
+                TypeConverter converter = converters.get(f.getName());
                 try {
                     Object value = m.invoke(bean);
-
-                    //日期类型处理
-                    if(value instanceof java.util.Date || value instanceof Calendar) {
-                        long time;
-                        if(value instanceof java.util.Date) {
-                            time = ((java.util.Date)value).getTime();
-                        } else {
-                            time = ((Calendar)value).getTimeInMillis();
-                        }
-
-                        if(columnType == java.sql.Date.class) {
-                            value = new java.sql.Date(time);
-                        } else if(columnType == java.sql.Timestamp.class) {
-                            value = new java.sql.Timestamp(time);
-                        }
-                    }
-                    map.put(columnName, value);
+                    map.put(columnName, converter == null ? value : converter.write(value));
                 } catch (IllegalAccessException | InvocationTargetException  e) {
                 }
             }
@@ -258,6 +255,80 @@ public class Beans {
         return map;
     }
 
+    /**
+     * 查找实体所有属性写入数据库时的转换器。
+     * @param beanClass
+     * @return key是属性名，大字段没有转换器。
+     */
+    public static Map<String, TypeConverter> columnConverters(Class<?> beanClass) {
+        Map<String, TypeConverter> converters = new HashMap<>();
+        for(Field f : getFields(beanClass)) {
+            TypeConverter converter = columnConverter(f.getType(), getColumnType(beanClass, f.getName()));
+            if(converter != null) converters.put(f.getName(), converter);
+        }
+        return converters;
+    }
+
+    /**
+     * 需要多次转换同一个属性的值时，使用这个方法查找一次转换器。
+     * @param propertyType 属性的类型。
+     * @param columnType 属性的字段类型。
+     * @return 属性值写入数据库时的转换器，大字段不需要转换，返回null。
+     */
+    public static TypeConverter columnConverter(Class<?> propertyType, Class<?> columnType) {
+        return LobValue.isLobType(propertyType) ? null : TypeConverter.of(propertyType, columnType);
+    }
+
+    /**
+     * 查找无参构造方法，需要多次创建实例时只查找一次。
+     * @param type
+     * @return 没有无参构造方法时返回null，创建实例时才抛出异常。
+     * @see #newInstance(Constructor, Class)
+     */
+    public static <E> Constructor<E> getConstructor(Class<E> type) {
+        try {
+            return type.getDeclaredConstructor();
+        } catch(NoSuchMethodException e) {
+            return null;
+        }
+    }
+
+    /**
+     * 代替已经过时的{@link Class#newInstance()}。
+     * @param constructor {@link #getConstructor(Class)}的结果。
+     * @param type
+     * @return
+     * @throws ReflectiveOperationException 没有无参构造方法或者构造失败时抛出。
+     */
+    public static <E> E newInstance(Constructor<E> constructor, Class<E> type) throws ReflectiveOperationException {
+        if(constructor == null) throw new InstantiationException(type.getName() + " has no default constructor");
+        return constructor.newInstance();
+    }
+
+    /**
+     * 复制可变的属性值：数组和{@link Cloneable}的值（如Date、Calendar、ArrayList、HashMap）会被浅复制，
+     * 其他值原样返回，包括不可变的String、数字、枚举和java.time类型，以及无法复制的可变对象。
+     * @param value
+     * @return
+     */
+    public static Object copyValue(Object value) {
+        if(value == null) return null;
+        if(value.getClass().isArray()) {
+            int len = Array.getLength(value);
+            Object copy = Array.newInstance(value.getClass().getComponentType(), len);
+            System.arraycopy(value, 0, copy, 0, len);
+            return copy;
+        }
+        if(value instanceof Cloneable) {
+            try {
+                return value.getClass().getMethod("clone").invoke(value);
+            } catch(NoSuchMethodException | IllegalAccessException | InvocationTargetException e) {
+                //clone不是公开的方法，无法复制
+            }
+        }
+        return value;
+    }
+
     public static IdGenerator getIdGenerator(Class<?> beanClass) {
         Field f = getPrimaryField(beanClass);
         if(f == null) {
@@ -280,6 +351,24 @@ public class Beans {
         }
     }
 
+    /**
+     * 通过getter获取属性值。
+     * @param bean
+     * @param prop
+     * @return
+     */
+    public static Object get(Object bean, Field prop) {
+        Method m = getMethod(prop, true);
+        if(m == null) {
+            throw new RuntimeException(String.format("No getter with field [%s %s]", bean.getClass().getName(), prop.getName()));
+        }
+        try {
+            return m.invoke(bean);
+        } catch (IllegalAccessException | InvocationTargetException e) {
+            throw new RuntimeException("Cannot get value from " + bean.getClass().getName() + "." + prop.getName(), e);
+        }
+    }
+
     public static Class<?> getColumnType(Class<?> beanClass, String property) {
         Field f = getField(beanClass, property);
         if(f == null) return null;
@@ -0,0 +1,81 @@
+package com.jxs.ld.bean;
+
+import java.sql.Date;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * java.time类型的转换器，通过java.sql的日期类型读写，不依赖驱动对java.time的支持。
+ * 只在java.time可用时由{@link TypeConverter}加载。
+ *
+ * @author jiangxingshang
+ */
+class JavaTimeConverters extends TypeConverter.Provider {
+
+    @Override
+    TypeConverter find(Class<?> propertyType) {
+        if(propertyType == LocalDateTime.class) {
+            return new TypeConverter() {
+                @Override
+                public Object read(ResultSet rs, int index) throws SQLException {
+                    Timestamp t = rs.getTimestamp(index);
+                    return t == null ? null : t.toLocalDateTime();
+                }
+
+                @Override
+                public Object write(Object value) {
+                    return value == null ? null : Timestamp.valueOf((LocalDateTime) value);
+                }
+            };
+        }
+        if(propertyType == LocalDate.class) {
+            return new TypeConverter() {
+                @Override
+                public Object read(ResultSet rs, int index) throws SQLException {
+                    Date d = rs.getDate(index);
+                    return d == null ? null : d.toLocalDate();
+                }
+
+                @Override
+                public Object write(Object value) {
+                    return value == null ? null : Date.valueOf((LocalDate) value);
+                }
+            };
+        }
+        if(propertyType == LocalTime.class) {
+            return new TypeConverter() {
+                @Override
+                public Object read(ResultSet rs, int index) throws SQLException {
+                    Time t = rs.getTime(index);
+                    return t == null ? null : t.toLocalTime();
+                }
+
+                @Override
+                public Object write(Object value) {
+                    return value == null ? null : Time.valueOf((LocalTime) value);
+                }
+            };
+        }
+        if(propertyType == Instant.class) {
+            return new TypeConverter() {
+                @Override
+                public Object read(ResultSet rs, int index) throws SQLException {
+                    Timestamp t = rs.getTimestamp(index);
+                    return t == null ? null : t.toInstant();
+                }
+
+                @Override
+                public Object write(Object value) {
+                    return value == null ? null : Timestamp.from((Instant) value);
+                }
+            };
+        }
+        return null;
+    }
+}
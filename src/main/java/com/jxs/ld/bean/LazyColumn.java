@@ -0,0 +1,18 @@
+package com.jxs.ld.bean;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 延迟加载的属性，通常用于TEXT/BLOB这样的大字段。被标注的属性不会出现在默认的查询字段（@columns）中，
+ * 需要时通过{@link com.jxs.ld.BaseDao#loadLazy(Object, String...)}或
+ * {@link com.jxs.ld.BaseDao#loadLazy(java.util.List, String...)}根据主键再查询一次。
+ *
+ * @author jiangxingshang
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+public @interface LazyColumn {
+}
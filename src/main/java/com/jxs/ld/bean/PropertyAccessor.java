@@ -0,0 +1,259 @@
+package com.jxs.ld.bean;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * int，long，double，boolean及其包装类型属性的读写快速通道。
+ * 读取使用getInt/getLong等方法，写入使用setInt/setLong等方法，getter和setter通过{@link MethodHandle}按原始类型调用，
+ * 原始类型的属性在读写时不会产生装箱对象。
+ *
+ * @author jiangxingshang
+ */
+public abstract class PropertyAccessor {
+
+    private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+    protected final Field field;
+    protected final boolean primitive;
+    protected final MethodHandle getter;
+    protected final MethodHandle setter;
+
+    private PropertyAccessor(Field field) throws IllegalAccessException {
+        this.field = field;
+        this.primitive = field.getType().isPrimitive();
+        Class<?> type = field.getType();
+        Method g = Beans.getMethod(field, true);
+        Method s = Beans.getMethod(field, false, type);
+        if(g == null || s == null) {
+            throw new IllegalAccessException("No getter or setter for " + field);
+        }
+        g.setAccessible(true);
+        s.setAccessible(true);
+        getter = LOOKUP.unreflect(g).asType(MethodType.methodType(type, Object.class));
+        setter = LOOKUP.unreflect(s).asType(MethodType.methodType(void.class, Object.class, type));
+    }
+
+    /**
+     * 为属性创建快速通道。
+     * @param field 实体属性。
+     * @param columnType 属性的字段类型，与属性类型不同时（如设置了{@link Column#columnType()}）不使用快速通道。
+     * @return 不支持的类型返回null。
+     */
+    public static PropertyAccessor of(Field field, Class<?> columnType) {
+        Class<?> type = field.getType();
+        if(columnType != null && columnType != type) return null;
+        try {
+            if(type == int.class || type == Integer.class) return new IntAccessor(field);
+            if(type == long.class || type == Long.class) return new LongAccessor(field);
+            if(type == double.class || type == Double.class) return new DoubleAccessor(field);
+            if(type == boolean.class || type == Boolean.class) return new BooleanAccessor(field);
+        } catch(IllegalAccessException e) {
+            return null;
+        }
+        return null;
+    }
+
+    public Field getField() {
+        return field;
+    }
+
+    /**
+     * 从{@link ResultSet}读取字段并设置到实体中，字段为null时不设置。
+     * @param rs
+     * @param index 字段的位置，从1开始。
+     * @param bean
+     * @throws SQLException
+     */
+    public abstract void read(ResultSet rs, int index, Object bean) throws SQLException;
+
+    /**
+     * 将实体的属性值绑定到语句参数上。
+     * @param ps
+     * @param index 参数的位置，从1开始。
+     * @param bean
+     * @throws SQLException
+     */
+    public abstract void bind(PreparedStatement ps, int index, Object bean) throws SQLException;
+
+    /**
+     * @param bean
+     * @return 属性值是否为null，原始类型总是返回false。
+     */
+    public boolean isNull(Object bean) {
+        if(primitive) return false;
+        try {
+            return getter.invoke(bean) == null;
+        } catch(Throwable e) {
+            throw fail(bean, e);
+        }
+    }
+
+    protected RuntimeException fail(Object bean, Throwable e) {
+        if(e instanceof RuntimeException) return (RuntimeException) e;
+        return new RuntimeException("Cannot access " + bean.getClass().getName() + "." + field.getName(), e);
+    }
+
+    private static class IntAccessor extends PropertyAccessor {
+
+        IntAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public void read(ResultSet rs, int index, Object bean) throws SQLException {
+            int v = rs.getInt(index);
+            if(rs.wasNull()) return;
+            try {
+                if(primitive) {
+                    setter.invokeExact(bean, v);
+                } else {
+                    setter.invokeExact(bean, Integer.valueOf(v));
+                }
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+
+        @Override
+        public void bind(PreparedStatement ps, int index, Object bean) throws SQLException {
+            try {
+                if(primitive) {
+                    ps.setInt(index, (int) getter.invokeExact(bean));
+                } else {
+                    Integer v = (Integer) getter.invokeExact(bean);
+                    if(v == null) ps.setNull(index, Types.INTEGER);
+                    else ps.setInt(index, v);
+                }
+            } catch(SQLException e) {
+                throw e;
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+    }
+
+    private static class LongAccessor extends PropertyAccessor {
+
+        LongAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public void read(ResultSet rs, int index, Object bean) throws SQLException {
+            long v = rs.getLong(index);
+            if(rs.wasNull()) return;
+            try {
+                if(primitive) {
+                    setter.invokeExact(bean, v);
+                } else {
+                    setter.invokeExact(bean, Long.valueOf(v));
+                }
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+
+        @Override
+        public void bind(PreparedStatement ps, int index, Object bean) throws SQLException {
+            try {
+                if(primitive) {
+                    ps.setLong(index, (long) getter.invokeExact(bean));
+                } else {
+                    Long v = (Long) getter.invokeExact(bean);
+                    if(v == null) ps.setNull(index, Types.BIGINT);
+                    else ps.setLong(index, v);
+                }
+            } catch(SQLException e) {
+                throw e;
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+    }
+
+    private static class DoubleAccessor extends PropertyAccessor {
+
+        DoubleAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public void read(ResultSet rs, int index, Object bean) throws SQLException {
+            double v = rs.getDouble(index);
+            if(rs.wasNull()) return;
+            try {
+                if(primitive) {
+                    setter.invokeExact(bean, v);
+                } else {
+                    setter.invokeExact(bean, Double.valueOf(v));
+                }
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+
+        @Override
+        public void bind(PreparedStatement ps, int index, Object bean) throws SQLException {
+            try {
+                if(primitive) {
+                    ps.setDouble(index, (double) getter.invokeExact(bean));
+                } else {
+                    Double v = (Double) getter.invokeExact(bean);
+                    if(v == null) ps.setNull(index, Types.DOUBLE);
+                    else ps.setDouble(index, v);
+                }
+            } catch(SQLException e) {
+                throw e;
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+    }
+
+    private static class BooleanAccessor extends PropertyAccessor {
+
+        BooleanAccessor(Field field) throws IllegalAccessException {
+            super(field);
+        }
+
+        @Override
+        public void read(ResultSet rs, int index, Object bean) throws SQLException {
+            boolean v = rs.getBoolean(index);
+            if(rs.wasNull()) return;
+            try {
+                if(primitive) {
+                    setter.invokeExact(bean, v);
+                } else {
+                    setter.invokeExact(bean, Boolean.valueOf(v));
+                }
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+
+        @Override
+        public void bind(PreparedStatement ps, int index, Object bean) throws SQLException {
+            try {
+                if(primitive) {
+                    ps.setBoolean(index, (boolean) getter.invokeExact(bean));
+                } else {
+                    Boolean v = (Boolean) getter.invokeExact(bean);
+                    if(v == null) ps.setNull(index, Types.BOOLEAN);
+                    else ps.setBoolean(index, v);
+                }
+            } catch(SQLException e) {
+                throw e;
+            } catch(Throwable e) {
+                throw fail(bean, e);
+            }
+        }
+    }
+}
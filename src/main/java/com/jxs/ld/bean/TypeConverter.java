@@ -0,0 +1,244 @@
+package com.jxs.ld.bean;
+
+import com.jxs.ld.utils.LobValue;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Calendar;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 属性值与数据库值之间的转换器。DAO在初始化时为每个属性确定一个转换器，读写时直接调用，不再按值的类型判断。
+ * 内置支持日期（按{@link Column#columnType()}转换成java.sql.Date或Timestamp）、枚举（默认保存name，
+ * columnType为Integer时保存ordinal）、大字段（见{@link LobValue}），运行在JDK8及以上时支持
+ * LocalDate、LocalDateTime、LocalTime和Instant。其他类型可以通过{@link #register(Class, TypeConverter)}注册：
+ * <pre>
+ * TypeConverter.register(Money.class, new TypeConverter() {
+ *     public Object read(ResultSet rs, int index) throws SQLException {
+ *         long cents = rs.getLong(index);
+ *         return rs.wasNull() ? null : new Money(cents);
+ *     }
+ *     public Object write(Object value) {
+ *         return value == null ? null : ((Money) value).getCents();
+ *     }
+ * });
+ * </pre>
+ * 注册需要在DAO创建之前完成。
+ *
+ * @author jiangxingshang
+ */
+public abstract class TypeConverter {
+
+    /**
+     * java.time的转换器，实现类引用java.time，只在可用时加载。
+     */
+    abstract static class Provider {
+
+        /**
+         * @return 不支持的类型返回null。
+         */
+        abstract TypeConverter find(Class<?> propertyType);
+    }
+
+    private static final Provider JAVA_TIME = createJavaTime();
+    private static final Map<Class<?>, TypeConverter> REGISTERED = new ConcurrentHashMap<>();
+    //key是属性类型和字段类型，字段类型为null时使用void.class，查找时不需要创建组合key
+    private static final Map<Class<?>, Map<Class<?>, TypeConverter>> CACHE = new ConcurrentHashMap<>();
+
+    private static Provider createJavaTime() {
+        try {
+            Class.forName("java.time.LocalDateTime", false, TypeConverter.class.getClassLoader());
+            return (Provider) Class.forName("com.jxs.ld.bean.JavaTimeConverters").getDeclaredConstructor().newInstance();
+        } catch(Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * 从{@link ResultSet}读取字段并转换成属性值。
+     * @param rs
+     * @param index 字段的位置，从1开始。
+     * @return 字段为null时返回null。
+     * @throws SQLException
+     */
+    public abstract Object read(ResultSet rs, int index) throws SQLException;
+
+    /**
+     * 将属性值转换成写入数据库的值。
+     * @param value 可以为null。
+     * @return
+     */
+    public abstract Object write(Object value);
+
+    /**
+     * 注册属性类型的转换器，也会用于该类型的子类。
+     * @param propertyType
+     * @param converter
+     */
+    public static void register(Class<?> propertyType, TypeConverter converter) {
+        REGISTERED.put(propertyType, converter);
+        CACHE.clear();
+    }
+
+    /**
+     * @param propertyType 属性的类型。
+     * @param columnType 属性的字段类型，见{@link Column#columnType()}，可以为null。
+     * @return 属性的转换器，不会返回null。
+     */
+    public static TypeConverter of(Class<?> propertyType, Class<?> columnType) {
+        Map<Class<?>, TypeConverter> byColumn = CACHE.get(propertyType);
+        if(byColumn == null) {
+            byColumn = new ConcurrentHashMap<>();
+            CACHE.put(propertyType, byColumn);
+        }
+        Class<?> key = columnType == null ? void.class : columnType;
+        TypeConverter c = byColumn.get(key);
+        if(c == null) {
+            c = create(propertyType, columnType);
+            byColumn.put(key, c);
+        }
+        return c;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static TypeConverter create(Class<?> propertyType, Class<?> columnType) {
+        for(Class<?> t = propertyType; t != null; t = t.getSuperclass()) {
+            TypeConverter c = REGISTERED.get(t);
+            if(c != null) return c;
+        }
+        if(LobValue.isLobType(propertyType)) {
+            return new LobConverter(propertyType, columnType);
+        }
+        if(Enum.class.isAssignableFrom(propertyType)) {
+            //带有方法体的枚举常量是枚举的匿名子类
+            if(!propertyType.isEnum()) propertyType = propertyType.getSuperclass();
+            boolean ordinal = columnType == Integer.class || columnType == int.class;
+            return new EnumConverter((Class<? extends Enum>) propertyType, ordinal);
+        }
+        if(JAVA_TIME != null) {
+            TypeConverter c = JAVA_TIME.find(propertyType);
+            if(c != null) return c;
+        }
+        if(java.util.Date.class.isAssignableFrom(propertyType) || Calendar.class.isAssignableFrom(propertyType)) {
+            return new DateConverter(propertyType, columnType);
+        }
+        return new ObjectConverter(columnType);
+    }
+
+    private static class ObjectConverter extends TypeConverter {
+        final Class<?> columnType;
+
+        ObjectConverter(Class<?> columnType) {
+            this.columnType = columnType;
+        }
+
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            Object value = columnType == null ? rs.getObject(index) : rs.getObject(index, columnType);
+            return rs.wasNull() ? null : value;
+        }
+
+        @Override
+        public Object write(Object value) {
+            return value;
+        }
+    }
+
+    /**
+     * 写入时按字段类型转换成java.sql.Date、Time或Timestamp，Calendar属性没有指定这三种字段类型时按Timestamp读写。
+     */
+    private static class DateConverter extends ObjectConverter {
+        final boolean calendar;
+
+        DateConverter(Class<?> propertyType, Class<?> columnType) {
+            super(Calendar.class.isAssignableFrom(propertyType) && !isSqlDateType(columnType) ? java.sql.Timestamp.class : columnType);
+            this.calendar = Calendar.class.isAssignableFrom(propertyType);
+        }
+
+        static boolean isSqlDateType(Class<?> type) {
+            return type == java.sql.Date.class || type == java.sql.Time.class || type == java.sql.Timestamp.class;
+        }
+
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            Object value = super.read(rs, index);
+            if(calendar && value != null) {
+                Calendar c = Calendar.getInstance();
+                c.setTimeInMillis(((java.util.Date) value).getTime());
+                return c;
+            }
+            return value;
+        }
+
+        @Override
+        public Object write(Object value) {
+            if(value == null) return null;
+            long time = value instanceof Calendar ? ((Calendar) value).getTimeInMillis() : ((java.util.Date) value).getTime();
+            if(columnType == java.sql.Date.class) return new java.sql.Date(time);
+            if(columnType == java.sql.Time.class) return new java.sql.Time(time);
+            if(columnType == java.sql.Timestamp.class) return new java.sql.Timestamp(time);
+            return value;
+        }
+    }
+
+    private static class EnumConverter<E extends Enum<E>> extends TypeConverter {
+        final Class<E> type;
+        final boolean ordinal;
+        final E[] constants;
+        final Map<String, E> names = new HashMap<>();
+
+        EnumConverter(Class<E> type, boolean ordinal) {
+            this.type = type;
+            this.ordinal = ordinal;
+            this.constants = type.getEnumConstants();
+            for(E e : constants) {
+                names.put(e.name(), e);
+            }
+        }
+
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            if(ordinal) {
+                int i = rs.getInt(index);
+                if(rs.wasNull()) return null;
+                if(i < 0 || i >= constants.length) {
+                    throw new SQLException("No " + type.getName() + " constant with ordinal " + i);
+                }
+                return constants[i];
+            }
+            String name = rs.getString(index);
+            if(name == null) return null;
+            E e = names.get(name);
+            if(e == null) throw new SQLException("No " + type.getName() + " constant named " + name);
+            return e;
+        }
+
+        @Override
+        public Object write(Object value) {
+            if(value == null) return null;
+            return ordinal ? ((Enum<?>) value).ordinal() : ((Enum<?>) value).name();
+        }
+    }
+
+    private static class LobConverter extends TypeConverter {
+        final Class<?> propertyType;
+        final Class<?> columnType;
+
+        LobConverter(Class<?> propertyType, Class<?> columnType) {
+            this.propertyType = propertyType;
+            this.columnType = columnType;
+        }
+
+        @Override
+        public Object read(ResultSet rs, int index) throws SQLException {
+            return LobValue.read(rs, index, propertyType, columnType);
+        }
+
+        @Override
+        public Object write(Object value) {
+            return LobValue.wrap(value, columnType);
+        }
+    }
+}
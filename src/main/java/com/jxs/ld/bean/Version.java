@@ -0,0 +1,18 @@
+package com.jxs.ld.bean;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * 乐观锁的版本号属性，类型必须是int或long（及其包装类型），每个实体最多只能有一个。
+ * {@link com.jxs.ld.BaseDao}更新时会在条件中加上版本号并将其加1，没有更新到记录时抛出
+ * {@link com.jxs.ld.OptimisticLockException}。插入时版本号为null会被初始化为0。
+ *
+ * @author jiangxingshang
+ */
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD})
+public @interface Version {
+}
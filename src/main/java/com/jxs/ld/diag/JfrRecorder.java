@@ -0,0 +1,31 @@
+package com.jxs.ld.diag;
+
+/**
+ * 使用{@link SqlExecutionEvent}记录事件，只有jdk.jfr存在时才会被加载。
+ *
+ * @author jiangxingshang
+ */
+class JfrRecorder extends SqlEvents.Recorder {
+
+    @Override
+    Object begin() {
+        SqlExecutionEvent event = new SqlExecutionEvent();
+        if(!event.isEnabled()) return null;
+        event.begin();
+        return event;
+    }
+
+    @Override
+    void commit(Object token, Class<?> dao, String operation, String sql, long rows, long executionTime, long mappingTime) {
+        SqlExecutionEvent event = (SqlExecutionEvent) token;
+        event.end();
+        if(!event.shouldCommit()) return;
+        event.dao = dao.getName();
+        event.operation = operation;
+        event.sql = SqlEvents.normalize(sql);
+        event.rows = rows;
+        event.executionTime = executionTime;
+        event.mappingTime = mappingTime;
+        event.commit();
+    }
+}
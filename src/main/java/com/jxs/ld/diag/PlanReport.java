@@ -0,0 +1,87 @@
+package com.jxs.ld.diag;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 一种sql的执行计划和发现的问题。
+ *
+ * @author jiangxingshang
+ * @see SqlDiagnostics
+ */
+public class PlanReport {
+
+    /**
+     * 执行计划中的问题。
+     */
+    public enum Issue {
+        /**
+         * 全表扫描（type为ALL）或全索引扫描（type为index）。
+         */
+        FULL_SCAN,
+        /**
+         * 需要额外排序（Using filesort）。
+         */
+        FILESORT,
+        /**
+         * 使用临时表（Using temporary）。
+         */
+        TEMPORARY
+    }
+
+    private final String sql;
+    private final List<Map<String, Object>> plan;
+    private final Set<Issue> issues;
+    private final long estimatedRows;
+    private final long time = System.currentTimeMillis();
+
+    PlanReport(String sql, List<Map<String, Object>> plan, Set<Issue> issues, long estimatedRows) {
+        this.sql = sql;
+        this.plan = Collections.unmodifiableList(plan);
+        this.issues = Collections.unmodifiableSet(issues);
+        this.estimatedRows = estimatedRows;
+    }
+
+    public String getSql() {
+        return sql;
+    }
+
+    /**
+     * @return EXPLAIN的原始结果，每个元素是一行。
+     */
+    public List<Map<String, Object>> getPlan() {
+        return plan;
+    }
+
+    /**
+     * @return 估算行数超过阈值的问题，没有问题时为空。
+     */
+    public Set<Issue> getIssues() {
+        return issues;
+    }
+
+    public boolean hasIssues() {
+        return !issues.isEmpty();
+    }
+
+    /**
+     * @return 执行计划中最大的估算行数。
+     */
+    public long getEstimatedRows() {
+        return estimatedRows;
+    }
+
+    /**
+     * @return 生成报告的时间。
+     */
+    public long getTime() {
+        return time;
+    }
+
+    @Override
+    public String toString() {
+        return issues + " rows=" + estimatedRows + " " + sql;
+    }
+}
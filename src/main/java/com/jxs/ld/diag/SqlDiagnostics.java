@@ -0,0 +1,165 @@
+package com.jxs.ld.diag;
+
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.ColumnMapRowMapper;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.core.RowMapperResultSetExtractor;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 执行计划诊断，开启后DAO每遇到一种新的查询sql就执行一次EXPLAIN（使用相同的参数），记录执行计划，
+ * 并标记估算行数不小于阈值的全表扫描、filesort和临时表。每种sql只分析一次，诊断会增加第一次查询的耗时，
+ * 建议只在测试或预发布环境开启。默认按mysql的EXPLAIN格式解析，其他数据库可以覆盖{@link #explain(JdbcOperations, String, PreparedStatementSetter)}
+ * 和{@link #inspect(Map, Set)}。
+ *
+ * @author jiangxingshang
+ * @see com.jxs.ld.BaseDao#setDiagnostics(SqlDiagnostics)
+ */
+public class SqlDiagnostics {
+
+    //正在分析或分析失败的sql
+    private static final PlanReport PENDING = new PlanReport("", Collections.<Map<String, Object>>emptyList(), EnumSet.noneOf(PlanReport.Issue.class), 0);
+
+    private final long rowThreshold;
+    private final int maxShapes;
+    private final Map<String, PlanReport> reports = new ConcurrentHashMap<>();
+
+    /**
+     * @param rowThreshold 估算行数不小于这个数时才标记问题。
+     */
+    public SqlDiagnostics(long rowThreshold) {
+        this(rowThreshold, 10000);
+    }
+
+    /**
+     * @param rowThreshold 估算行数不小于这个数时才标记问题。
+     * @param maxShapes 最多记录的sql种类，超过后不再分析新的sql。
+     */
+    public SqlDiagnostics(long rowThreshold, int maxShapes) {
+        this.rowThreshold = rowThreshold;
+        this.maxShapes = maxShapes;
+    }
+
+    /**
+     * 第一次遇到sql时分析执行计划，只分析select语句，分析失败不会影响查询。
+     * @param jdbc 执行EXPLAIN的连接。
+     * @param sql
+     * @param setter 查询的参数，可以为null。
+     */
+    public void inspect(JdbcOperations jdbc, String sql, PreparedStatementSetter setter) {
+        if(sql == null || reports.containsKey(sql) || reports.size() >= maxShapes) return;
+        if(!sql.trim().regionMatches(true, 0, "select", 0, 6)) return;
+        if(reports.put(sql, PENDING) != null) return;
+        List<Map<String, Object>> plan;
+        try {
+            plan = explain(jdbc, sql, setter);
+        } catch(DataAccessException e) {
+            return;
+        }
+        Set<PlanReport.Issue> issues = EnumSet.noneOf(PlanReport.Issue.class);
+        long max = 0;
+        for(Map<String, Object> row : plan) {
+            max = Math.max(max, inspect(row, issues));
+        }
+        reports.put(sql, new PlanReport(sql, plan, issues, max));
+    }
+
+    /**
+     * 执行EXPLAIN。
+     * @return 执行计划的每一行。
+     */
+    protected List<Map<String, Object>> explain(JdbcOperations jdbc, final String sql, final PreparedStatementSetter setter) {
+        return jdbc.execute(new ConnectionCallback<List<Map<String, Object>>>() {
+            @Override
+            public List<Map<String, Object>> doInConnection(Connection con) throws SQLException {
+                PreparedStatement ps = con.prepareStatement("explain " + sql);
+                ResultSet rs = null;
+                try {
+                    if(setter != null) setter.setValues(ps);
+                    rs = ps.executeQuery();
+                    return new RowMapperResultSetExtractor<>(new ColumnMapRowMapper()).extractData(rs);
+                } finally {
+                    JdbcUtils.closeResultSet(rs);
+                    JdbcUtils.closeStatement(ps);
+                }
+            }
+        });
+    }
+
+    /**
+     * 检查执行计划的一行，估算行数不小于阈值时将问题加入issues。
+     * @param row 执行计划的一行，key不区分大小写。
+     * @param issues
+     * @return 这一行的估算行数。
+     */
+    protected long inspect(Map<String, Object> row, Set<PlanReport.Issue> issues) {
+        Object rows = row.get("rows");
+        long estimate = rows instanceof Number ? ((Number) rows).longValue() : 0;
+        if(estimate < rowThreshold) return estimate;
+        Object type = row.get("type");
+        if("ALL".equals(type) || "index".equals(type)) {
+            issues.add(PlanReport.Issue.FULL_SCAN);
+        }
+        String extra = String.valueOf(row.get("Extra"));
+        if(extra.contains("Using filesort")) {
+            issues.add(PlanReport.Issue.FILESORT);
+        }
+        if(extra.contains("Using temporary")) {
+            issues.add(PlanReport.Issue.TEMPORARY);
+        }
+        return estimate;
+    }
+
+    /**
+     * @return 所有已分析的sql的报告。
+     */
+    public List<PlanReport> getReports() {
+        List<PlanReport> list = new ArrayList<>();
+        for(PlanReport r : reports.values()) {
+            if(r != PENDING) list.add(r);
+        }
+        return list;
+    }
+
+    /**
+     * @return 有问题的报告，按估算行数从大到小排序。
+     */
+    public List<PlanReport> getFindings() {
+        List<PlanReport> list = new ArrayList<>();
+        for(PlanReport r : getReports()) {
+            if(r.hasIssues()) list.add(r);
+        }
+        Collections.sort(list, new Comparator<PlanReport>() {
+            @Override
+            public int compare(PlanReport o1, PlanReport o2) {
+                return Long.compare(o2.getEstimatedRows(), o1.getEstimatedRows());
+            }
+        });
+        return list;
+    }
+
+    /**
+     * @param sql
+     * @return sql的报告，没有分析过时返回null。
+     */
+    public PlanReport getReport(String sql) {
+        PlanReport r = reports.get(sql);
+        return r == PENDING ? null : r;
+    }
+
+    /**
+     * 清除所有报告，之后遇到的sql会重新分析。
+     */
+    public void clear() {
+        reports.clear();
+    }
+}
@@ -0,0 +1,82 @@
+package com.jxs.ld.diag;
+
+/**
+ * sql执行事件的入口，运行在带有jdk.jfr的JDK（11及以上）上时使用JFR记录{@link SqlExecutionEvent}，
+ * 否则什么也不做。事件关闭时{@link #begin()}只做一次JFR的开启检查并返回null，调用者不需要再计时。
+ * <pre>
+ * Object event = SqlEvents.begin();
+ * ...
+ * if(event != null) SqlEvents.commit(event, ...);
+ * </pre>
+ *
+ * @author jiangxingshang
+ */
+public final class SqlEvents {
+
+    /**
+     * 事件的记录方式，实现类引用jdk.jfr，只在可用时加载。
+     */
+    abstract static class Recorder {
+
+        abstract Object begin();
+
+        abstract void commit(Object token, Class<?> dao, String operation, String sql, long rows, long executionTime, long mappingTime);
+    }
+
+    private static final Recorder RECORDER = createRecorder();
+
+    private SqlEvents() {
+    }
+
+    private static Recorder createRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event", false, SqlEvents.class.getClassLoader());
+            return (Recorder) Class.forName("com.jxs.ld.diag.JfrRecorder").getDeclaredConstructor().newInstance();
+        } catch(Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @return 事件开启时返回事件对象，否则返回null。
+     */
+    public static Object begin() {
+        return RECORDER == null ? null : RECORDER.begin();
+    }
+
+    /**
+     * 提交{@link #begin()}返回的事件。
+     * @param event
+     * @param dao DAO的类型。
+     * @param operation 如query、update、batch。
+     * @param sql
+     * @param rows 返回或影响的行数，未知时为-1。
+     * @param executionTime 执行的纳秒数。
+     * @param mappingTime 读取结果和转换实体的纳秒数。
+     */
+    public static void commit(Object event, Class<?> dao, String operation, String sql, long rows, long executionTime, long mappingTime) {
+        if(event != null) {
+            RECORDER.commit(event, dao, operation, sql, rows, executionTime, mappingTime);
+        }
+    }
+
+    /**
+     * 将连续的空白合并成一个空格。
+     */
+    static String normalize(String sql) {
+        if(sql == null) return null;
+        StringBuilder sb = new StringBuilder(sql.length());
+        boolean space = false;
+        for(int i = 0; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if(Character.isWhitespace(c)) {
+                space = true;
+            } else {
+                if(space && sb.length() > 0) sb.append(' ');
+                space = false;
+                sb.append(c);
+            }
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,47 @@
+package com.jxs.ld.diag;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/**
+ * DAO执行sql的JFR事件，默认关闭，可以在JFR的配置中开启"com.jxs.ld.SqlExecution"。
+ * 只有运行在带有jdk.jfr模块的JDK上时才会被加载。
+ *
+ * @author jiangxingshang
+ * @see SqlEvents
+ */
+@Name("com.jxs.ld.SqlExecution")
+@Label("SQL Execution")
+@Category({"light-dao"})
+@Description("SQL executed by a light-dao BaseDao")
+@Enabled(false)
+@StackTrace(false)
+public class SqlExecutionEvent extends jdk.jfr.Event {
+
+    @Label("DAO")
+    String dao;
+
+    @Label("Operation")
+    String operation;
+
+    @Label("SQL")
+    String sql;
+
+    @Label("Rows")
+    @Description("Rows returned or affected, -1 if unknown")
+    long rows;
+
+    @Label("Execution Time")
+    @Timespan(Timespan.NANOSECONDS)
+    long executionTime;
+
+    @Label("Mapping Time")
+    @Description("Time spent reading the result set and mapping rows")
+    @Timespan(Timespan.NANOSECONDS)
+    long mappingTime;
+}
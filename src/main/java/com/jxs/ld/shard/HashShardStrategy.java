@@ -0,0 +1,50 @@
+package com.jxs.ld.shard;
+
+/**
+ * 哈希分表，整数类型的分片键按取模分片，其他类型按hashCode取模，
+ * 默认物理表名为"逻辑表名_两位序号"，如t_order_00到t_order_15。
+ *
+ * @author jiangxingshang
+ */
+public class HashShardStrategy implements ShardStrategy {
+
+    private final int shardCount;
+    private final String tableFormat;
+
+    public HashShardStrategy(int shardCount) {
+        this(shardCount, "%s_%02d");
+    }
+
+    /**
+     * @param shardCount 分片数量。
+     * @param tableFormat 物理表名格式，参数依次是逻辑表名和分片序号。
+     */
+    public HashShardStrategy(int shardCount, String tableFormat) {
+        if(shardCount <= 0) throw new IllegalArgumentException("Shard count must be positive.");
+        this.shardCount = shardCount;
+        this.tableFormat = tableFormat;
+    }
+
+    @Override
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    @Override
+    public int shard(Object shardKey) {
+        if(shardKey == null) throw new IllegalArgumentException("Shard key must not be null.");
+        long hash;
+        if(shardKey instanceof Integer || shardKey instanceof Long || shardKey instanceof Short || shardKey instanceof Byte) {
+            hash = ((Number) shardKey).longValue();
+        } else {
+            hash = shardKey.hashCode();
+        }
+        int r = (int) (hash % shardCount);
+        return r < 0 ? r + shardCount : r;
+    }
+
+    @Override
+    public String getTableName(String logicalTable, int shard) {
+        return String.format(tableFormat, logicalTable, shard);
+    }
+}
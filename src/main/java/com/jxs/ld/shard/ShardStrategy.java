@@ -0,0 +1,28 @@
+package com.jxs.ld.shard;
+
+/**
+ * 分表策略，根据分片键的值决定记录所在的物理表。
+ *
+ * @author jiangxingshang
+ * @see ShardedDao
+ */
+public interface ShardStrategy {
+
+    /**
+     * @return 分片数量。
+     */
+    int getShardCount();
+
+    /**
+     * @param shardKey 分片键的值，不能为null。
+     * @return 分片序号，从0开始，小于{@link #getShardCount()}。
+     */
+    int shard(Object shardKey);
+
+    /**
+     * @param logicalTable 逻辑表名，即{@link com.jxs.ld.bean.TableName}的值。
+     * @param shard 分片序号。
+     * @return 物理表名。
+     */
+    String getTableName(String logicalTable, int shard);
+}
@@ -0,0 +1,671 @@
+package com.jxs.ld.shard;
+
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.Page;
+import com.jxs.ld.bean.BeanInfo;
+import com.jxs.ld.bean.Beans;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.diag.SqlDiagnostics;
+import com.jxs.ld.sql.SqlBuilder;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.lang.reflect.Field;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 分表的DAO，根据实体的分片键属性和{@link ShardStrategy}决定记录所在的物理表（以及可选的数据源）。
+ * 每个物理表由一个{@link BaseDao}负责，这个类只提供可以路由到分片的操作，其他操作通过{@link #getShard(Object)}在单个分片上执行。
+ * insert、update、getById、delete会路由到分片键所在的物理表，getById和delete只有在分片键是主键时才能直接路由，
+ * 否则会在所有分片上执行，也可以使用{@link #getById(Object, Object)}和{@link #delete(Object, Object)}指定分片键。
+ * 使用{@link SqlBuilder}的查询中，@tableName会被替换成每个分片的物理表名，然后并行地在所有分片上查询并合并结果，
+ * 分页查询会按照{@link SqlBuilder#order(String...)}的排序在内存中合并各分片的前start+limit条记录。
+ * 写操作和事务中的查询在当前线程依次执行各分片，与调用者使用同一个事务；其他查询使用线程池并行执行。
+ *
+ * @author jiangxingshang
+ */
+public abstract class ShardedDao<T> {
+
+    private final BeanInfo beanInfo;
+    private final ShardStrategy strategy;
+    private final Field shardKey;
+    private final boolean shardByPrimary;
+    private final List<Shard<T>> shards;
+    private DataSource[] shardDataSources;
+    private boolean sharedReadDataSources;
+    private volatile ExecutorService executor;
+
+    /**
+     * @param beanClass
+     * @param shardKeyProperty 分片键的属性名（非字段名），使用主键分片时主键必须是{@link IdGenerator#ASSIGNED}。
+     * @param strategy
+     */
+    protected ShardedDao(Class<T> beanClass, String shardKeyProperty, ShardStrategy strategy) {
+        this.beanInfo = new BeanInfo(beanClass);
+        this.strategy = strategy;
+        this.shardKey = beanInfo.getField(shardKeyProperty);
+        if(shardKey == null) {
+            throw new RuntimeException("Shard key [" + shardKeyProperty + "] not found on " + beanClass.getName());
+        }
+        this.shardByPrimary = shardKey.equals(beanInfo.getPrimary());
+        if(shardByPrimary && beanInfo.getIdGenerator() != IdGenerator.ASSIGNED) {
+            //UUID和自增主键在插入时才生成，无法在插入前路由
+            throw new RuntimeException("Shard key [" + shardKeyProperty + "] is a generated primary key, use IdGenerator.ASSIGNED or shard by another property.");
+        }
+        List<Shard<T>> list = new ArrayList<>(strategy.getShardCount());
+        for(int i = 0; i < strategy.getShardCount(); i++) {
+            list.add(new Shard<>(beanClass, strategy.getTableName(beanInfo.getTableName(), i)));
+        }
+        this.shards = Collections.unmodifiableList(list);
+    }
+
+    private static class Shard<T> extends BaseDao<T> {
+
+        Shard(Class<T> beanClass, String tableName) {
+            super(beanClass, tableName);
+        }
+
+        List<T> query(String sql, MapSqlParameterSource parameters, RowMapper<T> mapper) {
+            return namedJdbc.query(sql, parameters, mapper);
+        }
+
+        int getCount(String sql, MapSqlParameterSource parameters) {
+            return namedJdbc.queryForObject(sql, parameters, Integer.class);
+        }
+    }
+
+    /**
+     * 没有设置{@link #setShardDataSources(DataSource...)}时所有分片使用这个数据源。
+     * @param dataSource
+     */
+    @Autowired
+    public void setDataSource(DataSource dataSource) {
+        for(int i = 0; i < shards.size(); i++) {
+            shards.get(i).setDataSource(shardDataSources == null ? dataSource : shardDataSources[i % shardDataSources.length]);
+        }
+    }
+
+    /**
+     * 为分片设置数据源，第i个分片使用dataSources[i % dataSources.length]。
+     * @param dataSources
+     */
+    public void setShardDataSources(DataSource...dataSources) {
+        if(dataSources == null || dataSources.length == 0) {
+            shardDataSources = null;
+            return;
+        }
+        if(sharedReadDataSources) {
+            throw new RuntimeException("Read data sources are shared by all shards, they cannot be on different data sources.");
+        }
+        shardDataSources = dataSources;
+        for(int i = 0; i < shards.size(); i++) {
+            shards.get(i).setDataSource(dataSources[i % dataSources.length]);
+        }
+    }
+
+    /**
+     * 所有分片使用相同的从库，只能用于分片都在主库（没有{@link #setShardDataSources(DataSource...)}）的情况。
+     * @param dataSources
+     * @see BaseDao#setReadDataSources(DataSource...)
+     */
+    public void setReadDataSources(DataSource...dataSources) {
+        if(shardDataSources != null && dataSources != null && dataSources.length > 0) {
+            throw new RuntimeException("Read data sources cannot be shared by shards on different data sources, set them on each shard.");
+        }
+        sharedReadDataSources = dataSources != null && dataSources.length > 0;
+        for(Shard<T> shard : shards) {
+            shard.setReadDataSources(dataSources);
+        }
+    }
+
+    /**
+     * @see BaseDao#setDiagnostics(SqlDiagnostics)
+     */
+    public void setDiagnostics(SqlDiagnostics diagnostics) {
+        for(Shard<T> shard : shards) {
+            shard.setDiagnostics(diagnostics);
+        }
+    }
+
+    /**
+     * 每个分片单独合并查询，分片键不是主键时getById在每个分片上分别合并。
+     * @see BaseDao#setCoalescing(boolean)
+     */
+    public void setCoalescing(boolean coalescing) {
+        for(Shard<T> shard : shards) {
+            shard.setCoalescing(coalescing);
+        }
+    }
+
+    /**
+     * @see BaseDao#setStreamFetchSize(int)
+     */
+    public void setStreamFetchSize(int streamFetchSize) {
+        for(Shard<T> shard : shards) {
+            shard.setStreamFetchSize(streamFetchSize);
+        }
+    }
+
+    /**
+     * 设置并行查询使用的线程池，默认使用一个最多16个守护线程的线程池。
+     * @param executor
+     */
+    public void setExecutor(ExecutorService executor) {
+        this.executor = executor;
+    }
+
+    public ShardStrategy getStrategy() {
+        return strategy;
+    }
+
+    /**
+     * @return 逻辑表（没有分片后缀）的实体信息。
+     */
+    public BeanInfo getBeanInfo() {
+        return beanInfo;
+    }
+
+    public RowMapper<T> getRowMapper() {
+        return shards.get(0).getRowMapper();
+    }
+
+    /**
+     * 创建查询使用的SQL构建器，@tableName在查询时替换成每个分片的物理表名。
+     * @param sql
+     * @return
+     * @see BaseDao#sql(String)
+     */
+    public SqlBuilder sql(String sql) {
+        return shards.get(0).sql(sql).addVar("tableName", beanInfo.getTableName());
+    }
+
+    /**
+     * @param shardKeyValue 分片键的值。
+     * @return 分片键所在的物理表的DAO。
+     */
+    public BaseDao<T> getShard(Object shardKeyValue) {
+        return shard(shardKeyValue);
+    }
+
+    /**
+     * @return 所有分片的DAO，第i个元素是第i个分片。
+     */
+    public List<BaseDao<T>> getShards() {
+        return Collections.<BaseDao<T>>unmodifiableList(shards);
+    }
+
+    private Shard<T> shard(Object shardKeyValue) {
+        return shards.get(strategy.shard(shardKeyValue));
+    }
+
+    private BaseDao<T> shardOf(T bean) {
+        Object value = Beans.get(bean, shardKey);
+        if(value == null) {
+            throw new RuntimeException("Shard key [" + shardKey.getName() + "] must not be null.");
+        }
+        return getShard(value);
+    }
+
+    public void insert(T bean) {
+        shardOf(bean).insert(bean);
+    }
+
+    public void update(T bean) {
+        shardOf(bean).update(bean);
+    }
+
+    public void update(T bean, boolean includeNullValue, String...excludeProperties) {
+        shardOf(bean).update(bean, includeNullValue, excludeProperties);
+    }
+
+    public void updateIncludeNullData(T bean) {
+        shardOf(bean).updateIncludeNullData(bean);
+    }
+
+    public void updateProperties(T bean, String...properties) {
+        shardOf(bean).updateProperties(bean, properties);
+    }
+
+    public void batchInsert(List<T> beans) {
+        for(Map.Entry<BaseDao<T>, List<T>> entry : group(beans).entrySet()) {
+            entry.getKey().batchInsert(entry.getValue());
+        }
+    }
+
+    public int[] batchUpdate(List<T> beans) {
+        return batchUpdate(beans, new String[0]);
+    }
+
+    /**
+     * @see BaseDao#batchUpdate(List, String...)
+     */
+    public int[] batchUpdate(List<T> beans, String...lazyProperties) {
+        Map<BaseDao<T>, List<Integer>> grouped = new LinkedHashMap<>();
+        for(int i = 0; i < beans.size(); i++) {
+            BaseDao<T> shard = shardOf(beans.get(i));
+            List<Integer> tmp = grouped.get(shard);
+            if(tmp == null) {
+                tmp = new ArrayList<>();
+                grouped.put(shard, tmp);
+            }
+            tmp.add(i);
+        }
+        int[] counts = new int[beans.size()];
+        for(Map.Entry<BaseDao<T>, List<Integer>> entry : grouped.entrySet()) {
+            List<T> tmp = new ArrayList<>(entry.getValue().size());
+            for(Integer i : entry.getValue()) {
+                tmp.add(beans.get(i));
+            }
+            int[] c = entry.getKey().batchUpdate(tmp, lazyProperties);
+            for(int i = 0; i < c.length; i++) {
+                counts[entry.getValue().get(i)] = c[i];
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 按分片键所在的分片分组，保持实体的顺序。
+     */
+    private Map<BaseDao<T>, List<T>> group(List<T> beans) {
+        Map<BaseDao<T>, List<T>> grouped = new LinkedHashMap<>();
+        for(T bean : beans) {
+            BaseDao<T> shard = shardOf(bean);
+            List<T> tmp = grouped.get(shard);
+            if(tmp == null) {
+                tmp = new ArrayList<>();
+                grouped.put(shard, tmp);
+            }
+            tmp.add(bean);
+        }
+        return grouped;
+    }
+
+    public int deleteByIds(final Collection<?> ids) {
+        int count = 0;
+        if(!shardByPrimary) {
+            for(Integer c : each(new ShardTask<T, Integer>() {
+                @Override
+                public Integer call(Shard<T> shard, int index) {
+                    return shard.deleteByIds(ids);
+                }
+            })) {
+                count += c;
+            }
+            return count;
+        }
+        for(Map.Entry<Integer, List<Object>> entry : groupIds(ids).entrySet()) {
+            count += shards.get(entry.getKey()).deleteByIds(entry.getValue());
+        }
+        return count;
+    }
+
+    /**
+     * 分片键是主键时按主键所在的分片分组。
+     * @return key是分片的序号。
+     */
+    private Map<Integer, List<Object>> groupIds(Collection<?> ids) {
+        Map<Integer, List<Object>> grouped = new LinkedHashMap<>();
+        for(Object id : ids) {
+            int i = strategy.shard(id);
+            List<Object> tmp = grouped.get(i);
+            if(tmp == null) {
+                tmp = new ArrayList<>();
+                grouped.put(i, tmp);
+            }
+            tmp.add(id);
+        }
+        return grouped;
+    }
+
+    /**
+     * 分片键不是主键时在所有分片上查询。
+     * @param id
+     * @return
+     */
+    public T getById(final Object id) {
+        if(shardByPrimary) {
+            return shard(id).getById(id);
+        }
+        for(T bean : scatter(new ShardTask<T, T>() {
+            @Override
+            public T call(Shard<T> shard, int index) {
+                return shard.getById(id);
+            }
+        })) {
+            if(bean != null) return bean;
+        }
+        return null;
+    }
+
+    /**
+     * 根据主键和分片键获取记录。
+     * @param id
+     * @param shardKeyValue
+     * @return
+     */
+    public T getById(Object id, Object shardKeyValue) {
+        return getShard(shardKeyValue).getById(id);
+    }
+
+    public void delete(final Object id) {
+        if(shardByPrimary) {
+            getShard(id).delete(id);
+            return;
+        }
+        each(new ShardTask<T, Void>() {
+            @Override
+            public Void call(Shard<T> shard, int index) {
+                shard.delete(id);
+                return null;
+            }
+        });
+    }
+
+    public void delete(Object id, Object shardKeyValue) {
+        getShard(shardKeyValue).delete(id);
+    }
+
+    public <P> P getPropertyValue(Object id, String propertyName, Class<P> propertyType) {
+        if(shardByPrimary) {
+            return shard(id).getPropertyValue(id, propertyName, propertyType);
+        }
+        T bean = getById(id);
+        return bean == null ? null : propertyType.cast(Beans.get(bean, beanInfo.getField(propertyName)));
+    }
+
+    public void update(final Object id, final String property, final Object value) {
+        if(shardByPrimary) {
+            getShard(id).update(id, property, value);
+            return;
+        }
+        each(new ShardTask<T, Void>() {
+            @Override
+            public Void call(Shard<T> shard, int index) {
+                shard.update(id, property, value);
+                return null;
+            }
+        });
+    }
+
+    public List<T> getByIds(Collection<?> ids) {
+        if(!shardByPrimary) {
+            final Collection<?> all = ids;
+            return concat(scatter(new ShardTask<T, List<T>>() {
+                @Override
+                public List<T> call(Shard<T> shard, int index) {
+                    return shard.getByIds(all);
+                }
+            }));
+        }
+        final Map<Integer, List<Object>> grouped = groupIds(ids);
+        return concat(scatter(new ShardTask<T, List<T>>() {
+            @Override
+            public List<T> call(Shard<T> shard, int index) {
+                List<Object> tmp = grouped.get(index);
+                return tmp == null ? Collections.<T>emptyList() : shard.getByIds(tmp);
+            }
+        }));
+    }
+
+    /**
+     * @see BaseDao#loadLazy(List, String...)
+     */
+    public List<T> loadLazy(List<T> beans, String...properties) {
+        for(Map.Entry<BaseDao<T>, List<T>> entry : group(beans).entrySet()) {
+            entry.getKey().loadLazy(entry.getValue(), properties);
+        }
+        return beans;
+    }
+
+    public List<T> queryAll() {
+        return concat(scatter(new ShardTask<T, List<T>>() {
+            @Override
+            public List<T> call(Shard<T> shard, int index) {
+                return shard.queryAll();
+            }
+        }));
+    }
+
+    /**
+     * 在所有分片上查询，结果按照sqlBuilder的排序合并。
+     * @param mapper
+     * @param sqlBuilder 使用@tableName引用表名。
+     * @param values
+     * @return
+     */
+    public List<T> query(final RowMapper<T> mapper, SqlBuilder sqlBuilder, final Object...values) {
+        final String[] sqls = shardSql(sqlBuilder, false, -1);
+        List<T> list = concat(scatter(new ShardTask<T, List<T>>() {
+            @Override
+            public List<T> call(Shard<T> shard, int index) {
+                return shard.query(sqls[index], mapper, values);
+            }
+        }));
+        Comparator<T> comparator = comparator(sqlBuilder);
+        if(comparator != null) Collections.sort(list, comparator);
+        return list;
+    }
+
+    /**
+     * 所有分片的记录总数。
+     * @param sqlBuilder
+     * @param values
+     * @return
+     */
+    public int getCount(SqlBuilder sqlBuilder, final Object...values) {
+        final String[] sqls = shardSql(sqlBuilder, true, -1);
+        int total = 0;
+        for(Integer c : scatter(new ShardTask<T, Integer>() {
+            @Override
+            public Integer call(Shard<T> shard, int index) {
+                return shard.getCount(sqls[index], values);
+            }
+        })) {
+            total += c;
+        }
+        return total;
+    }
+
+    /**
+     * 分页查询，每个分片查询前start+limit条记录，在内存中按sqlBuilder的排序合并。
+     * @see BaseDao#query(Page, RowMapper, SqlBuilder, Object...)
+     */
+    public Page<T> query(Page<T> page, final RowMapper<T> mapper, SqlBuilder sqlBuilder, final Object...values) {
+        final String[] counts = shardSql(sqlBuilder, true, -1);
+        final String[] sqls = shardSql(sqlBuilder, false, page.getStart() + page.getLimit());
+        List<Object[]> results = scatter(new ShardTask<T, Object[]>() {
+            @Override
+            public Object[] call(Shard<T> shard, int index) {
+                int total = shard.getCount(counts[index], values);
+                List<T> list = total == 0 ? Collections.<T>emptyList() : shard.query(sqls[index], mapper, values);
+                return new Object[]{total, list};
+            }
+        });
+        return merge(page, sqlBuilder, results);
+    }
+
+    /**
+     * @see #query(Page, RowMapper, SqlBuilder, Object...)
+     */
+    public Page<T> query(Page<T> page, final MapSqlParameterSource parameters, final RowMapper<T> mapper, SqlBuilder sqlBuilder) {
+        final String[] counts = shardSql(sqlBuilder, true, -1);
+        final String[] sqls = shardSql(sqlBuilder, false, page.getStart() + page.getLimit());
+        List<Object[]> results = scatter(new ShardTask<T, Object[]>() {
+            @Override
+            public Object[] call(Shard<T> shard, int index) {
+                int total = shard.getCount(counts[index], parameters);
+                List<T> list = total == 0 ? Collections.<T>emptyList() : shard.query(sqls[index], parameters, mapper);
+                return new Object[]{total, list};
+            }
+        });
+        return merge(page, sqlBuilder, results);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Page<T> merge(Page<T> page, SqlBuilder sqlBuilder, List<Object[]> results) {
+        int total = 0;
+        List<T> list = new ArrayList<>();
+        for(Object[] r : results) {
+            total += (Integer) r[0];
+            list.addAll((List<T>) r[1]);
+        }
+        Comparator<T> comparator = comparator(sqlBuilder);
+        if(comparator != null) Collections.sort(list, comparator);
+        int from = Math.min(page.getStart(), list.size());
+        int to = Math.min(page.getStart() + page.getLimit(), list.size());
+        page.setTotal(total);
+        page.setData(new ArrayList<>(list.subList(from, to)));
+        return page;
+    }
+
+    /**
+     * 为每个分片生成sql，@tableName替换成物理表名，不会修改sqlBuilder。
+     * @param limit 大于0时生成查询前limit条记录的sql。
+     */
+    private String[] shardSql(SqlBuilder sqlBuilder, boolean count, int limit) {
+        String[] sqls = new String[shards.size()];
+        for(int i = 0; i < sqls.length; i++) {
+            Map<String, String> vars = Collections.singletonMap("tableName", shards.get(i).getBeanInfo().getTableName());
+            if(count) {
+                sqls[i] = sqlBuilder.toSqlCount(vars);
+            } else {
+                sqls[i] = limit > 0 ? sqlBuilder.toSql(vars, 0, limit) : sqlBuilder.toSql(vars);
+            }
+        }
+        return sqls;
+    }
+
+    /**
+     * 根据{@link SqlBuilder#getOrders()}创建实体的比较器，null值排在前面（与mysql一致）。
+     * @return 没有排序时返回null。
+     */
+    private Comparator<T> comparator(SqlBuilder sqlBuilder) {
+        List<String[]> orders = sqlBuilder.getOrders();
+        if(orders.isEmpty()) return null;
+        final Field[] fields = new Field[orders.size()];
+        final boolean[] desc = new boolean[orders.size()];
+        for(int i = 0; i < fields.length; i++) {
+            String name = orders.get(i)[0];
+            int dot = name.lastIndexOf('.');
+            if(dot >= 0) name = name.substring(dot + 1);
+            String prop = null;
+            for(Map.Entry<String, String> entry : beanInfo.getPropertiesMapper().entrySet()) {
+                if(entry.getValue().equalsIgnoreCase(name)) {
+                    prop = entry.getKey();
+                    break;
+                }
+            }
+            if(prop == null && beanInfo.getField(name) != null) prop = name;
+            if(prop == null) {
+                throw new RuntimeException("Cannot merge shards ordered by [" + orders.get(i)[0] + "], it is not a column of " + beanInfo.getTableName());
+            }
+            fields[i] = beanInfo.getField(prop);
+            desc[i] = "desc".equals(orders.get(i)[1]);
+        }
+        return new Comparator<T>() {
+            @Override
+            @SuppressWarnings({"unchecked", "rawtypes"})
+            public int compare(T o1, T o2) {
+                for(int i = 0; i < fields.length; i++) {
+                    Comparable v1 = (Comparable) Beans.get(o1, fields[i]);
+                    Comparable v2 = (Comparable) Beans.get(o2, fields[i]);
+                    int c;
+                    if(v1 == null) {
+                        c = v2 == null ? 0 : -1;
+                    } else if(v2 == null) {
+                        c = 1;
+                    } else {
+                        c = v1.compareTo(v2);
+                    }
+                    if(c != 0) return desc[i] ? -c : c;
+                }
+                return 0;
+            }
+        };
+    }
+
+    private interface ShardTask<E, R> {
+        R call(Shard<E> shard, int index);
+    }
+
+    /**
+     * 在当前线程依次对每个分片执行，写操作必须使用这个方法，保证与调用者使用同一个事务（连接）。
+     */
+    private <R> List<R> each(ShardTask<T, R> task) {
+        List<R> results = new ArrayList<>(shards.size());
+        for(int i = 0; i < shards.size(); i++) {
+            results.add(task.call(shards.get(i), i));
+        }
+        return results;
+    }
+
+    /**
+     * 并行地对每个分片执行查询，事务中的查询需要读到未提交的数据，在当前线程依次执行。
+     */
+    private <R> List<R> scatter(final ShardTask<T, R> task) {
+        if(shards.size() == 1 || TransactionSynchronizationManager.isActualTransactionActive()) {
+            return each(task);
+        }
+        List<R> results = new ArrayList<>(shards.size());
+        List<Callable<R>> calls = new ArrayList<>(shards.size());
+        for(int i = 0; i < shards.size(); i++) {
+            final int index = i;
+            calls.add(new Callable<R>() {
+                @Override
+                public R call() throws Exception {
+                    return task.call(shards.get(index), index);
+                }
+            });
+        }
+        try {
+            for(Future<R> f : executor().invokeAll(calls)) {
+                results.add(f.get());
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Shard query interrupted", e);
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        }
+        return results;
+    }
+
+    private List<T> concat(List<List<T>> lists) {
+        List<T> list = new ArrayList<>();
+        for(List<T> tmp : lists) {
+            list.addAll(tmp);
+        }
+        return list;
+    }
+
+    private ExecutorService executor() {
+        ExecutorService e = executor;
+        if(e == null) {
+            synchronized(this) {
+                e = executor;
+                if(e == null) {
+                    final String name = beanInfo.getTableName();
+                    final AtomicInteger count = new AtomicInteger();
+                    e = Executors.newFixedThreadPool(Math.min(shards.size(), 16), new ThreadFactory() {
+                        @Override
+                        public Thread newThread(Runnable r) {
+                            Thread t = new Thread(r, "light-dao-shard-" + name + "-" + count.incrementAndGet());
+                            t.setDaemon(true);
+                            return t;
+                        }
+                    });
+                    executor = e;
+                }
+            }
+        }
+        return e;
+    }
+}
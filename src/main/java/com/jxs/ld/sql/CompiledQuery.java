@@ -0,0 +1,221 @@
+package com.jxs.ld.sql;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link SqlBuilder#compile()}生成的不可变查询，变量已经替换完成，可以保存在静态字段中被多个线程共享，
+ * 每次查询只需要绑定参数。sql中的"?"是位置参数，":name"是命名参数，都会被转换成"?"并记录参数位置，
+ * 绑定时按照位置顺序生成参数数组。参数是集合或数组时会展开成in列表，列表大小按档位取整（见{@link InList}），
+ * 展开后的sql按档位缓存。
+ *
+ * @author jiangxingshang
+ * @see SqlBuilder#compile()
+ */
+public final class CompiledQuery {
+
+    /**
+     * 绑定参数后的语句。
+     */
+    public static final class Statement {
+        private final String sql;
+        private final Object[] args;
+
+        Statement(String sql, Object[] args) {
+            this.sql = sql;
+            this.args = args;
+        }
+
+        public String getSql() {
+            return sql;
+        }
+
+        public Object[] getArgs() {
+            return args;
+        }
+    }
+
+    private static final int SQL = 0, COUNT = 1, PAGE = 2;
+
+    //没有集合参数时的sql，count sql和分页sql
+    private final String[] sqls;
+    //"?"分割的sql片段，比slots多一个
+    private final String[] parts;
+    //每个"?"对应的参数，null表示位置参数，否则是命名参数的名称
+    private final String[] slots;
+    private final int positionalCount;
+    //集合参数展开后的sql，key是每个参数的档位
+    private final Map<String, String[]> expanded = new ConcurrentHashMap<>();
+
+    CompiledQuery(String resolvedSql) {
+        List<String> names = new ArrayList<>();
+        List<String> pieces = new ArrayList<>();
+        parse(resolvedSql, names, pieces);
+        this.slots = names.toArray(new String[names.size()]);
+        this.parts = pieces.toArray(new String[pieces.size()]);
+        int count = 0;
+        for(String s : slots) {
+            if(s == null) count++;
+        }
+        this.positionalCount = count;
+        this.sqls = build(null);
+    }
+
+    /**
+     * 将sql按照"?"和命名参数切分，跳过字符串常量和"::"。
+     */
+    private static void parse(String sql, List<String> names, List<String> pieces) {
+        StringBuilder sb = new StringBuilder(sql.length());
+        int len = sql.length();
+        for(int i = 0; i < len; i++) {
+            char c = sql.charAt(i);
+            if(c == '\'' || c == '"') {
+                int end = sql.indexOf(c, i + 1);
+                if(end < 0) end = len - 1;
+                sb.append(sql, i, end + 1);
+                i = end;
+            } else if(c == '?') {
+                names.add(null);
+                pieces.add(sb.toString());
+                sb.setLength(0);
+            } else if(c == ':' && i + 1 < len && sql.charAt(i + 1) == ':') {
+                sb.append("::");
+                i++;
+            } else if(c == ':' && i + 1 < len && isNameChar(sql.charAt(i + 1))) {
+                int end = i + 1;
+                while(end < len && isNameChar(sql.charAt(end))) end++;
+                names.add(sql.substring(i + 1, end));
+                pieces.add(sb.toString());
+                sb.setLength(0);
+                i = end - 1;
+            } else {
+                sb.append(c);
+            }
+        }
+        pieces.add(sb.toString());
+    }
+
+    private static boolean isNameChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || c == '_';
+    }
+
+    /**
+     * @param sizes 每个参数展开的"?"个数，null表示都是1个。
+     */
+    private String[] build(int[] sizes) {
+        StringBuilder sb = new StringBuilder(parts[0]);
+        for(int i = 0; i < slots.length; i++) {
+            sb.append(sizes == null ? "?" : InList.placeholders(sizes[i]));
+            sb.append(parts[i + 1]);
+        }
+        String sql = sb.toString();
+        return new String[]{sql, String.format("select count(0) from (%s) count_tmp_table", sql), sql + " limit ?,?"};
+    }
+
+    /**
+     * @return 只包含"?"参数的sql，集合参数未展开。
+     */
+    public String getSql() {
+        return sqls[SQL];
+    }
+
+    /**
+     * 绑定参数。
+     * @param params 命名参数，没有命名参数时可以为null。
+     * @param values 位置参数，按顺序对应sql中的"?"，唯一的参数是Object[]时需要转换成(Object)。
+     * @return
+     * @throws SQLBuildException 参数个数不匹配或缺少命名参数时抛出。
+     */
+    public Statement statement(Map<String, ?> params, Object...values) {
+        return bind(SQL, params, values, 0);
+    }
+
+    public Statement countStatement(Map<String, ?> params, Object...values) {
+        return bind(COUNT, params, values, 0);
+    }
+
+    /**
+     * 绑定分页查询的参数，最后两个参数是起始行和记录数。
+     * @param start 记录起始行，从0开始。
+     * @param limit 返回多少条记录。
+     * @param params
+     * @param values
+     * @return
+     */
+    public Statement pageStatement(int start, int limit, Map<String, ?> params, Object...values) {
+        Statement st = bind(PAGE, params, values, 2);
+        Object[] args = st.args;
+        args[args.length - 2] = start;
+        args[args.length - 1] = limit;
+        return st;
+    }
+
+    private Statement bind(int type, Map<String, ?> params, Object[] values, int extra) {
+        //只传入一个Long[]等数组时java会把它当作可变参数本身，它是in列表的一个参数
+        if(values != null && values.getClass() != Object[].class) values = new Object[]{values};
+        int count = values == null ? 0 : values.length;
+        if(count != positionalCount) {
+            throw new SQLBuildException("Expected " + positionalCount + " positional values but got " + count + ": " + sqls[SQL]);
+        }
+        Object[] raw = new Object[slots.length];
+        int[] sizes = null;
+        int total = 0;
+        int p = 0;
+        for(int i = 0; i < slots.length; i++) {
+            String name = slots[i];
+            Object v;
+            if(name == null) {
+                v = values[p++];
+            } else {
+                if(params == null || !params.containsKey(name)) {
+                    throw new SQLBuildException("Missing named value :" + name + " for " + sqls[SQL]);
+                }
+                v = params.get(name);
+            }
+            if(InList.isList(v)) {
+                List<Object> list = InList.expand(v);
+                if(sizes == null) {
+                    sizes = new int[slots.length];
+                    Arrays.fill(sizes, 1);
+                }
+                sizes[i] = list.size();
+                total += list.size();
+                v = list;
+            } else {
+                total++;
+            }
+            raw[i] = v;
+        }
+        Object[] args;
+        if(sizes == null) {
+            args = Arrays.copyOf(raw, slots.length + extra);
+        } else {
+            args = new Object[total + extra];
+            int k = 0;
+            for(int i = 0; i < slots.length; i++) {
+                if(raw[i] instanceof List) {
+                    for(Object o : (List<?>) raw[i]) args[k++] = o;
+                } else {
+                    args[k++] = raw[i];
+                }
+            }
+        }
+        return new Statement(sqls(sizes)[type], args);
+    }
+
+    private String[] sqls(int[] sizes) {
+        if(sizes == null) return sqls;
+        String key = Arrays.toString(sizes);
+        String[] tmp = expanded.get(key);
+        if(tmp == null) {
+            tmp = build(sizes);
+            expanded.put(key, tmp);
+        }
+        return tmp;
+    }
+
+    @Override
+    public String toString() {
+        return sqls[SQL];
+    }
+}
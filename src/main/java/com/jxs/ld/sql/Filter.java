@@ -0,0 +1,96 @@
+package com.jxs.ld.sql;
+
+import com.jxs.ld.utils.ValueParser;
+import org.apache.commons.lang3.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * {@link FilterSpec#compile()}得到的查询条件，将参数集合转换成{@link SqlBuilder}的条件。
+ * 只有非空并且可以转换的参数才会产生条件（与{@link com.jxs.ld.utils.ParamKit}一致，格式错误的参数被忽略），
+ * 每种参数组合对应的条件sql会被缓存。
+ *
+ * @author jiangxingshang
+ * @see FilterSpec
+ */
+public final class Filter {
+
+    private final FilterSpec.Condition[] conditions;
+    private final String separator;
+    //key是出现的参数的位图
+    private final Map<String, String> shapes = new ConcurrentHashMap<>();
+
+    Filter(FilterSpec.Condition[] conditions, String separator) {
+        this.conditions = conditions;
+        this.separator = separator;
+    }
+
+    /**
+     * 将参数转换成条件并用and追加到sqlBuilder中，没有条件时不做任何修改。
+     * @param sqlBuilder
+     * @param params
+     * @return sqlBuilder
+     */
+    public SqlBuilder apply(SqlBuilder sqlBuilder, Map<String, String> params) {
+        if(params == null || params.isEmpty()) return sqlBuilder;
+        boolean[] present = new boolean[conditions.length];
+        List<Object> values = new ArrayList<>();
+        int count = 0;
+        for(int i = 0; i < conditions.length; i++) {
+            FilterSpec.Condition c = conditions[i];
+            String text = params.get(c.param);
+            if(StringUtils.isBlank(text)) continue;
+            Object value;
+            try {
+                value = parse(c, text.trim());
+            } catch(Exception e) {
+                continue;
+            }
+            if(value == null) continue;
+            present[i] = true;
+            values.add(value);
+            count++;
+        }
+        if(count == 0) return sqlBuilder;
+        return sqlBuilder.and(shape(present), true, values.toArray());
+    }
+
+    private Object parse(FilterSpec.Condition c, String text) throws Exception {
+        switch(c.op) {
+            case LIKE:
+                return "%" + text + "%";
+            case IN:
+                String[] arr = StringUtils.split(text, separator);
+                if(arr == null || arr.length == 0) return null;
+                List<Object> list = new ArrayList<>(arr.length);
+                for(String s : arr) {
+                    list.add(c.toColumnValue(c.parser.parse(s.trim())));
+                }
+                return list;
+            case BEFORE_NEXT_DAY:
+                return c.toColumnValue(ValueParser.plusDay(c.parser.parse(text)));
+            default:
+                return c.toColumnValue(c.parser.parse(text));
+        }
+    }
+
+    private String shape(boolean[] present) {
+        StringBuilder key = new StringBuilder(present.length);
+        for(boolean b : present) {
+            key.append(b ? '1' : '0');
+        }
+        String sql = shapes.get(key.toString());
+        if(sql == null) {
+            List<String> list = new ArrayList<>();
+            for(int i = 0; i < present.length; i++) {
+                if(present[i]) list.add(conditions[i].column);
+            }
+            sql = StringUtils.join(list, " and ");
+            shapes.put(key.toString(), sql);
+        }
+        return sql;
+    }
+}
@@ -0,0 +1,182 @@
+package com.jxs.ld.sql;
+
+import com.jxs.ld.bean.BeanInfo;
+import com.jxs.ld.bean.Beans;
+import com.jxs.ld.bean.TypeConverter;
+import com.jxs.ld.utils.ValueParser;
+import org.apache.commons.lang3.StringUtils;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 查询条件的声明，将请求参数（如{@link com.jxs.ld.Page#getParams()}）映射成实体属性上的条件，
+ * 声明时就会解析属性对应的字段和参数的转换器，{@link #compile()}后得到线程安全的{@link Filter}。
+ * <code>
+ *     private static final Filter FILTER = new FilterSpec(userDao.getBeanInfo())
+ *         .eq("status")
+ *         .like("name", "username")
+ *         .range("regTime", "regFrom", "regTo")
+ *         .in("ids", "id")
+ *         .compile();
+ *
+ *     SqlBuilder sb = sql("select @columns from @tableName");
+ *     FILTER.apply(sb, page.getParams());
+ * </code>
+ *
+ * @author jiangxingshang
+ */
+public class FilterSpec {
+
+    enum Op {
+        EQ("%s = ?"), LIKE("%s like ?"), GE("%s >= ?"), LE("%s <= ?"), IN("%s in (?)"),
+        //日期范围的结束日期，参数值加一天，使结束日期当天带有时间的值也包含在内
+        BEFORE_NEXT_DAY("%s < ?");
+
+        final String format;
+
+        Op(String format) {
+            this.format = format;
+        }
+    }
+
+    /**
+     * 一个参数对应的条件。
+     */
+    static class Condition {
+        final String param;
+        final String column;
+        final Op op;
+        final ValueParser parser;
+        //日期、枚举等类型转换成字段类型，为null时不转换
+        final TypeConverter converter;
+
+        Condition(String param, String column, Op op, ValueParser parser, TypeConverter converter) {
+            this.param = param;
+            this.column = column;
+            this.op = op;
+            this.parser = parser;
+            this.converter = converter;
+        }
+
+        Object toColumnValue(Object value) {
+            return converter == null ? value : converter.write(value);
+        }
+    }
+
+    private final BeanInfo beanInfo;
+    private final List<Condition> conditions = new ArrayList<>();
+    private String alias;
+    private String datePattern = "yyyy-MM-dd";
+    private String separator = ",";
+
+    /**
+     * @param beanInfo 条件中的属性所属的实体。
+     */
+    public FilterSpec(BeanInfo beanInfo) {
+        this.beanInfo = beanInfo;
+    }
+
+    /**
+     * 字段的表别名，用于连接查询，在声明条件之前设置。
+     */
+    public FilterSpec alias(String alias) {
+        this.alias = alias;
+        return this;
+    }
+
+    /**
+     * 日期参数（包括java.time类型）的格式，默认"yyyy-MM-dd"，在声明条件之前设置。
+     */
+    public FilterSpec datePattern(String datePattern) {
+        this.datePattern = datePattern;
+        return this;
+    }
+
+    /**
+     * in条件的参数分隔符，默认","。
+     */
+    public FilterSpec separator(String separator) {
+        this.separator = separator;
+        return this;
+    }
+
+    /**
+     * 参数名与属性名相同的等值条件。
+     */
+    public FilterSpec eq(String property) {
+        return eq(property, property);
+    }
+
+    public FilterSpec eq(String param, String property) {
+        return add(param, property, Op.EQ);
+    }
+
+    /**
+     * 包含参数值的模糊查询（like %value%），属性必须是字符串。
+     */
+    public FilterSpec like(String property) {
+        return like(property, property);
+    }
+
+    public FilterSpec like(String param, String property) {
+        return add(param, property, Op.LIKE);
+    }
+
+    /**
+     * 范围条件，两个参数都是可选的，包含边界值。
+     * 属性带有时间（如Timestamp、LocalDateTime、Instant）而{@link #datePattern(String)}只有日期时，
+     * 结束日期整天都包含在内（&lt; 结束日期 + 1天）。
+     * @param property
+     * @param fromParam 大于等于的参数名。
+     * @param toParam 小于等于的参数名。
+     */
+    public FilterSpec range(String property, String fromParam, String toParam) {
+        add(fromParam, property, Op.GE);
+        return add(toParam, property, Op.LE);
+    }
+
+    /**
+     * in条件，参数值使用{@link #separator(String)}分隔。
+     */
+    public FilterSpec in(String param, String property) {
+        return add(param, property, Op.IN);
+    }
+
+    private FilterSpec add(String param, String property, Op op) {
+        String column = beanInfo.getColumn(property);
+        Field field = beanInfo.getField(property);
+        if(column == null || field == null) {
+            throw new SQLBuildException("Property [" + property + "] not found on table " + beanInfo.getTableName());
+        }
+        Class<?> columnType = Beans.getColumnType(field.getDeclaringClass(), property);
+        ValueParser parser;
+        if(ValueParser.isDateType(field.getType())) {
+            parser = ValueParser.date(field.getType(), datePattern);
+            if(op == Op.LE && hasTime(field.getType()) && !ValueParser.hasTime(datePattern)) {
+                op = Op.BEFORE_NEXT_DAY;
+            }
+        } else {
+            parser = ValueParser.of(field.getType());
+        }
+        if(op == Op.LIKE && field.getType() != String.class) {
+            throw new SQLBuildException("Like condition requires a string property: " + property);
+        }
+        String col = StringUtils.isBlank(alias) ? column : alias + "." + column;
+        conditions.add(new Condition(param, String.format(op.format, col), op, parser, Beans.columnConverter(field.getType(), columnType)));
+        return this;
+    }
+
+    private static boolean hasTime(Class<?> type) {
+        if(java.util.Date.class.isAssignableFrom(type)) return !java.sql.Date.class.isAssignableFrom(type);
+        return type.getName().equals("java.time.LocalDateTime") || type.getName().equals("java.time.Instant");
+    }
+
+    /**
+     * @return 线程安全的条件，之后对声明的修改不会影响它。
+     */
+    public Filter compile() {
+        return new Filter(conditions.toArray(new Condition[conditions.size()]), separator);
+    }
+}
@@ -0,0 +1,71 @@
+package com.jxs.ld.sql;
+
+import java.lang.reflect.Array;
+import java.util.*;
+
+/**
+ * in列表参数的展开，集合的大小会向上取整到固定的档位（1、2、4、8...1024，超过1024取1024的倍数），
+ * 不足的部分使用最后一个值填充，这样不同大小的集合只会产生少数几种sql，驱动和数据库的语句缓存可以重复命中。
+ *
+ * @author jiangxingshang
+ */
+final class InList {
+
+    static final int MAX_BUCKET = 1024;
+
+    private InList() {
+    }
+
+    /**
+     * @param value
+     * @return 是否是需要展开的集合或数组（byte[]除外）。
+     */
+    static boolean isList(Object value) {
+        return value instanceof Collection || (value != null && value.getClass().isArray() && !(value instanceof byte[]));
+    }
+
+    static int bucket(int size) {
+        if(size > MAX_BUCKET) return (size + MAX_BUCKET - 1) / MAX_BUCKET * MAX_BUCKET;
+        int b = 1;
+        while(b < size) b <<= 1;
+        return b;
+    }
+
+    /**
+     * @param value 集合或数组。
+     * @return 填充到档位大小的值列表。
+     * @throws SQLBuildException 集合为空时抛出，"in ()"不是合法的sql。
+     */
+    static List<Object> expand(Object value) {
+        List<Object> list = new ArrayList<>();
+        if(value instanceof Collection) {
+            list.addAll((Collection<?>) value);
+        } else {
+            int len = Array.getLength(value);
+            for(int i = 0; i < len; i++) {
+                list.add(Array.get(value, i));
+            }
+        }
+        if(list.isEmpty()) {
+            throw new SQLBuildException("Empty collection cannot be bound to an in list.");
+        }
+        Object last = list.get(list.size() - 1);
+        for(int i = list.size(), n = bucket(list.size()); i < n; i++) {
+            list.add(last);
+        }
+        return list;
+    }
+
+    /**
+     * @param n
+     * @return n个以逗号分隔的"?"。
+     */
+    static String placeholders(int n) {
+        StringBuilder sb = new StringBuilder(n * 3);
+        for(int i = 0; i < n; i++) {
+            if(i > 0) sb.append(", ");
+            sb.append('?');
+        }
+        return sb.toString();
+    }
+}
@@ -23,6 +23,8 @@ public class SqlBuilder {
     private Map<String, BeanInfo> beanInfos = new HashMap<>();
     private boolean autoAppendTableAlias = false;
     private boolean hasWhere = false;
+    //排序字段，每个元素是{字段, asc|desc}
+    private List<String[]> orders = new ArrayList<>();
     private List<Object> values = new LinkedList<>();
     private Map<String, Object> namedParams = new HashMap<>();
     private Pattern namedPattern = Pattern.compile(":([a-zA-Z_]+)");
@@ -226,8 +228,7 @@ public class SqlBuilder {
      */
     public SqlBuilder where(String text, boolean use, Object...values) {
         if(use) {
-            value(text, values);
-            return appendCondition("where", text);
+            return appendCondition("where", bind(text, values));
         } else {
             return this;
         }
@@ -247,8 +248,7 @@ public class SqlBuilder {
      */
     public SqlBuilder and(String text, boolean use, Object...values) {
         if(use) {
-            value(text, values);
-            return appendCondition("and", text);
+            return appendCondition("and", bind(text, values));
         } else {
             return this;
         }
@@ -268,8 +268,7 @@ public class SqlBuilder {
      */
     public SqlBuilder or(String text, boolean use, Object...values) {
         if(use) {
-            value(text, values);
-            return appendCondition("or", text);
+            return appendCondition("or", bind(text, values));
         } else {
             return this;
         }
@@ -279,9 +278,17 @@ public class SqlBuilder {
         return or(text, true);
     }
 
+    /**
+     * @return 是否已经有where条件，包括通过{@link #sql(String)}直接写入的where（子查询中的where不算）。
+     */
+    public boolean hasWhere() {
+        if(!hasWhere && keyword(builder, 0, "where") >= 0) hasWhere = true;
+        return hasWhere;
+    }
+
     private SqlBuilder appendCondition(String prefix, String text) {
         text = text.trim();
-        if(!hasWhere) {
+        if(!hasWhere()) {
             hasWhere = true;
             prefix = "where";
         }
@@ -289,6 +296,40 @@ public class SqlBuilder {
         return this;
     }
 
+    /**
+     * 在括号、引号之外查找关键字。
+     * @return 第一个关键字的位置，没有找到时返回-1。
+     */
+    private static int keyword(CharSequence sql, int from, String...words) {
+        int depth = 0;
+        char quote = 0;
+        for(int i = from; i < sql.length(); i++) {
+            char c = sql.charAt(i);
+            if(quote != 0) {
+                if(c == quote) quote = 0;
+            } else if(c == '\'' || c == '"' || c == '`') {
+                quote = c;
+            } else if(c == '(') {
+                depth++;
+            } else if(c == ')') {
+                depth--;
+            } else if(depth == 0 && (i == 0 || !isWordChar(sql.charAt(i - 1)))) {
+                for(String w : words) {
+                    int end = i + w.length();
+                    if(end <= sql.length() && sql.subSequence(i, end).toString().equalsIgnoreCase(w)
+                            && (end == sql.length() || !isWordChar(sql.charAt(end)))) {
+                        return i;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static boolean isWordChar(char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '@' || c == '$' || c == '.' || c == '!';
+    }
+
     /**
      * 排序分段，如果field前带有一个"-"符号，表示desc排序，否则asc排序。
      * order("name", "@age", "-@age");
@@ -313,11 +354,19 @@ public class SqlBuilder {
                 }
             }
             orders.add(f + " " + o);
+            this.orders.add(new String[]{f, o});
         }
         builder.append(" order by " + StringUtils.join(orders, ", "));
         return this;
     }
 
+    /**
+     * @return 通过{@link #order(String...)}添加的排序字段，每个元素是{字段, "asc"或"desc"}，"@"变量已被替换。
+     */
+    public List<String[]> getOrders() {
+        return orders;
+    }
+
     /**
      * 添加参数到队列中。
      *
@@ -331,26 +380,85 @@ public class SqlBuilder {
         return this;
     }
 
+    /**
+     * 设置命名参数，集合或数组会按照{@link #compile()}相同的档位填充，由NamedParameterJdbcTemplate展开成in列表。
+     * @param name
+     * @param value
+     * @return
+     */
     public SqlBuilder value(String name, Object value) {
-        namedParams.put(name, value);
+        namedParams.put(name, InList.isList(value) ? InList.expand(value) : value);
         return this;
     }
 
-    private SqlBuilder value(String sqlText, Object...values) {
+    /**
+     * 绑定条件中的参数，命名参数放入{@link #getValueMap()}，否则按位置放入{@link #getValues()}，
+     * 位置参数是集合或数组时，对应的"?"会展开成填充到档位大小的"?, ?, ..."。
+     * 只有一个数组参数时，java会把它当作可变参数本身：Long[]等非Object[]的数组按一个参数处理，
+     * Object[]无法区分，参数个数比"?"多时抛出异常，这时需要使用集合或者转换成(Object)。
+     * @return 展开后的条件。
+     */
+    private String bind(String sqlText, Object...values) {
+        if(values.getClass() != Object[].class) {
+            values = new Object[]{values};
+        }
         Matcher m = namedPattern.matcher(sqlText);
         int i = 0;
         while(m.find()) {
             String var = m.group(1);
             try {
-                namedParams.put(var, values[i++]);
+                value(var, values[i++]);
             } catch (ArrayIndexOutOfBoundsException e) {
                 throw new SQLBuildException("参数个数与sql语句中的命名变量不匹配。", e);
             }
         }
-        if(i == 0) {
-            value(values);
+        if(i > 0 || values.length == 0) return sqlText;
+        int placeholders = placeholders(sqlText);
+        if(placeholders > 0 && placeholders < values.length) {
+            throw new SQLBuildException(values.length + " values for " + placeholders + " \"?\" in [" + sqlText + "], " +
+                    "bind an Object[] to an in list as a collection or cast it to (Object).");
         }
-        return this;
+        StringBuilder sb = new StringBuilder(sqlText.length());
+        char quote = 0;
+        for(int k = 0; k < sqlText.length(); k++) {
+            char c = sqlText.charAt(k);
+            if(quote != 0) {
+                if(c == quote) quote = 0;
+            } else if(c == '\'' || c == '"') {
+                quote = c;
+            } else if(c == '?' && i < values.length) {
+                Object v = values[i++];
+                if(InList.isList(v)) {
+                    List<Object> list = InList.expand(v);
+                    this.values.addAll(list);
+                    sb.append(InList.placeholders(list.size()));
+                    continue;
+                }
+                this.values.add(v);
+            }
+            sb.append(c);
+        }
+        while(i < values.length) {
+            this.values.add(values[i++]);
+        }
+        return sb.toString();
+    }
+
+    //引号外的"?"个数
+    private static int placeholders(String sqlText) {
+        int n = 0;
+        char quote = 0;
+        for(int k = 0; k < sqlText.length(); k++) {
+            char c = sqlText.charAt(k);
+            if(quote != 0) {
+                if(c == quote) quote = 0;
+            } else if(c == '\'' || c == '"') {
+                quote = c;
+            } else if(c == '?') {
+                n++;
+            }
+        }
+        return n;
     }
 
     /**
@@ -381,9 +489,44 @@ public class SqlBuilder {
      * @return a {@link java.lang.String} object.
      */
     public String toSql() {
+        return toSql(Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * 使用临时的变量值生成sql，不会修改构建器，如分表时把@tableName替换成每个物理表名。
+     *
+     * @param vars 覆盖{@link #addVar(String, String)}的变量，key是变量名（不带@字符）。
+     * @return a {@link java.lang.String} object.
+     */
+    public String toSql(Map<String, String> vars) {
+        return resolve(builder.toString(), vars);
+    }
+
+    /**
+     * 生成追加了一个and条件的sql，不会修改构建器。已有的条件会被括号括起来，所以其中的or不会影响追加的条件，
+     * 条件追加在group by、having、order by和limit之前，没有条件时添加where。
+     * 如按主键分页：<code>sqlBuilder.toSqlAnd("id &gt; ?")</code>。
+     *
+     * @param condition 追加的条件，其中的参数排在构建器的参数之后，所以having中不能有参数。
+     * @return
+     */
+    public String toSqlAnd(String condition) {
         String str = builder.toString();
+        int where = keyword(str, 0, "where");
+        int tail = keyword(str, where < 0 ? 0 : where, "group", "having", "order", "limit");
+        if(tail < 0) tail = str.length();
+        if(where < 0) {
+            str = str.substring(0, tail).trim() + " where " + condition + " " + str.substring(tail);
+        } else {
+            int start = where + "where".length();
+            str = str.substring(0, start) + " (" + str.substring(start, tail).trim() + ") and " + condition + " " + str.substring(tail);
+        }
+        return resolve(str, Collections.<String, String>emptyMap());
+    }
+
+    private String resolve(String str, Map<String, String> vars) {
         Pattern p = Pattern.compile("(@[a-zA-Z_!]+)");
-        Matcher m = p.matcher(builder);
+        Matcher m = p.matcher(str);
         List<String> finds = new LinkedList<>();
         while(m.find()) {
             finds.add(m.group());
@@ -421,13 +564,13 @@ public class SqlBuilder {
                 if(prop.contains("!")) {
                     String[] tmp = prop.split("!");
                     String prefix = tmp[0];
-                    Map<String, String> vars = varMap.get(prefix);
-                    if(vars == null) {
+                    Map<String, String> prefixVars = varMap.get(prefix);
+                    if(prefixVars == null) {
                         throw new SQLBuildException("Cannot find var mapper for prefix '" + prefix + "' near " + group);
                     }
-                    field = vars.get(tmp[1]);
+                    field = prefixVars.get(tmp[1]);
                 } else {
-                    field = mapper.get(prop);
+                    field = vars.containsKey(prop) ? vars.get(prop) : mapper.get(prop);
                 }
                 if(field == null) {
                     throw new SQLBuildException("Cannot find value by " + group + ", you should use addVar(key, value) to add a var.");
@@ -448,7 +591,15 @@ public class SqlBuilder {
      * @return a {@link java.lang.String} object.
      */
     public String toSql(int start, int limit) {
-        return String.format("%s limit %d,%d", toSql(), start, limit);
+        return toSql(Collections.<String, String>emptyMap(), start, limit);
+    }
+
+    /**
+     * @see #toSql(Map)
+     * @see #toSql(int, int)
+     */
+    public String toSql(Map<String, String> vars, int start, int limit) {
+        return String.format("%s limit %d,%d", toSql(vars), start, limit);
     }
 
     /**
@@ -457,7 +608,29 @@ public class SqlBuilder {
      * @return a {@link java.lang.String} object.
      */
     public String toSqlCount() {
-        return String.format("select count(0) from (%s) count_tmp_table", toSql());
+        return toSqlCount(Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * @see #toSql(Map)
+     * @see #toSqlCount()
+     */
+    public String toSqlCount(Map<String, String> vars) {
+        return String.format("select count(0) from (%s) count_tmp_table", toSql(vars));
+    }
+
+    /**
+     * 将当前的sql编译成不可变的查询，变量在编译时替换，之后对构建器的修改不会影响编译结果。
+     * 构建器中已添加的参数值不会被保存，查询时通过{@link CompiledQuery#statement(Map, Object...)}绑定。
+     * <code>
+     *     private static final CompiledQuery BY_NAME = dao.sql("select @columns from @tableName where @name = :name").compile();
+     *     dao.query(BY_NAME, dao.getRowMapper(), Collections.singletonMap("name", name));
+     * </code>
+     *
+     * @return
+     */
+    public CompiledQuery compile() {
+        return new CompiledQuery(toSql());
     }
 
     /**
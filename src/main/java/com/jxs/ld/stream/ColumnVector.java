@@ -0,0 +1,106 @@
+package com.jxs.ld.stream;
+
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.Arrays;
+
+/**
+ * 一列查询结果，读取时按固定大小的块追加，不会复制已读取的数据，读取结束后合并成一个数组。
+ * null使用位图记录，对应位置的值为0（字符串为-1编码）。
+ *
+ * @author jiangxingshang
+ * @see ColumnarReader
+ */
+public abstract class ColumnVector {
+
+    static final int CHUNK_SHIFT = 12;
+    static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final String name;
+    private long[] nulls = new long[CHUNK_SIZE >>> 6];
+    private boolean hasNulls;
+    int size;
+
+    ColumnVector(String name) {
+        this.name = name;
+    }
+
+    /**
+     * @param name
+     * @param type 属性的类型，支持int、long、double（及其包装类型）、short、byte、float、BigDecimal和String。
+     * @return
+     */
+    static ColumnVector of(String name, Class<?> type) {
+        if(type == int.class || type == Integer.class || type == short.class || type == Short.class
+                || type == byte.class || type == Byte.class) {
+            return new IntVector(name);
+        }
+        if(type == long.class || type == Long.class) {
+            return new LongVector(name);
+        }
+        if(type == double.class || type == Double.class || type == float.class || type == Float.class
+                || type == BigDecimal.class) {
+            return new DoubleVector(name);
+        }
+        if(type == String.class) {
+            return new StringVector(name);
+        }
+        throw new RuntimeException("Property [" + name + "] of type " + type.getName() + " cannot be read as a column vector.");
+    }
+
+    /**
+     * 读取当前行的字段并追加到末尾。
+     */
+    abstract void read(ResultSet rs, int index) throws SQLException;
+
+    /**
+     * 读取结束，合并数据块。
+     */
+    void finish() {
+        nulls = Arrays.copyOf(nulls, (size + 63) >>> 6);
+    }
+
+    void setNull(int row) {
+        int word = row >>> 6;
+        if(word >= nulls.length) {
+            nulls = Arrays.copyOf(nulls, Math.max(word + 1, nulls.length * 2));
+        }
+        nulls[word] |= 1L << row;
+        hasNulls = true;
+    }
+
+    static <A> A[] grow(A[] chunks, int chunk) {
+        return chunk < chunks.length ? chunks : Arrays.copyOf(chunks, chunks.length * 2);
+    }
+
+    /**
+     * @return 属性名。
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return 行数。
+     */
+    public int size() {
+        return size;
+    }
+
+    public boolean isNull(int row) {
+        return (nulls[row >>> 6] & (1L << row)) != 0;
+    }
+
+    public boolean hasNulls() {
+        return hasNulls;
+    }
+
+    /**
+     * @return null位图，第i行为null时第i/64个元素的第i%64位为1。
+     */
+    public long[] getNullBitmap() {
+        return nulls;
+    }
+}
@@ -0,0 +1,110 @@
+package com.jxs.ld.stream;
+
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * 按列读取{@link ResultSet}，数值字段直接读入原始类型数组，不会创建实体和装箱对象，
+ * 字符串字段使用字典编码，用于只需要少数几个字段的大量记录的统计分析。
+ *
+ * @author jiangxingshang
+ * @see com.jxs.ld.BaseDao#queryColumns(String[], com.jxs.ld.sql.SqlBuilder, Object...)
+ */
+public class ColumnarReader implements ResultSetExtractor<ColumnarReader.Result> {
+
+    /**
+     * 查询结果，每个属性一列。
+     */
+    public static class Result {
+        private final Map<String, ColumnVector> vectors;
+        private final int rowCount;
+
+        Result(Map<String, ColumnVector> vectors, int rowCount) {
+            this.vectors = vectors;
+            this.rowCount = rowCount;
+        }
+
+        public int getRowCount() {
+            return rowCount;
+        }
+
+        /**
+         * @return key是属性名，按查询时的顺序。
+         */
+        public Map<String, ColumnVector> getVectors() {
+            return vectors;
+        }
+
+        public ColumnVector getVector(String name) {
+            ColumnVector v = vectors.get(name);
+            if(v == null) throw new RuntimeException("Column [" + name + "] not found.");
+            return v;
+        }
+
+        public LongVector getLongVector(String name) {
+            return get(name, LongVector.class);
+        }
+
+        public IntVector getIntVector(String name) {
+            return get(name, IntVector.class);
+        }
+
+        public DoubleVector getDoubleVector(String name) {
+            return get(name, DoubleVector.class);
+        }
+
+        public StringVector getStringVector(String name) {
+            return get(name, StringVector.class);
+        }
+
+        private <V extends ColumnVector> V get(String name, Class<V> type) {
+            ColumnVector v = getVector(name);
+            if(!type.isInstance(v)) {
+                throw new RuntimeException("Column [" + name + "] is a " + v.getClass().getSimpleName() + ", not a " + type.getSimpleName());
+            }
+            return type.cast(v);
+        }
+    }
+
+    private final String[] names;
+    private final String[] columns;
+    private final Class<?>[] types;
+
+    /**
+     * @param names 列名，通常是属性名。
+     * @param columns 对应的结果集字段。
+     * @param types 对应的类型，决定使用哪种{@link ColumnVector}。
+     */
+    public ColumnarReader(String[] names, String[] columns, Class<?>[] types) {
+        this.names = names;
+        this.columns = columns;
+        this.types = types;
+    }
+
+    @Override
+    public Result extractData(ResultSet rs) throws SQLException {
+        int[] indexes = new int[names.length];
+        ColumnVector[] vectors = new ColumnVector[names.length];
+        for(int i = 0; i < names.length; i++) {
+            indexes[i] = rs.findColumn(columns[i]);
+            vectors[i] = ColumnVector.of(names[i], types[i]);
+        }
+        int rows = 0;
+        while(rs.next()) {
+            for(int i = 0; i < vectors.length; i++) {
+                vectors[i].read(rs, indexes[i]);
+            }
+            rows++;
+        }
+        Map<String, ColumnVector> map = new LinkedHashMap<>();
+        for(ColumnVector v : vectors) {
+            v.finish();
+            map.put(v.getName(), v);
+        }
+        return new Result(map, rows);
+    }
+}
@@ -0,0 +1,528 @@
+package com.jxs.ld.stream;
+
+import com.jxs.ld.bean.BeanInfo;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.IgnoreColumnType;
+import org.apache.commons.lang3.StringUtils;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallbackWithoutResult;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.CharBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.sql.Time;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CSV文件的并行批量导入，第一行必须是表头（属性名或字段名），数据按照实体的映射写入表中。
+ * 文件通过内存映射读取，按行边界切分成多个块并行解析，每个线程使用自己的连接批量插入。
+ * 值的转换使用属性的字段类型（见{@link com.jxs.ld.bean.Column#columnType()}），空字段按null处理。
+ *
+ * @author jiangxingshang
+ * @see com.jxs.ld.BaseDao#importCsv(Path)
+ */
+public class CsvImporter {
+
+    /**
+     * 行数据出错时的处理方式。
+     */
+    public enum ErrorPolicy {
+        /**
+         * 停止导入并抛出异常，已经提交的批次不会回滚。
+         */
+        ABORT,
+        /**
+         * 跳过出错的行，每个批次在事务中插入，失败时回滚整个批次再逐行重试以找出出错的行。
+         */
+        SKIP
+    }
+
+    /**
+     * 导入的进度和错误回调，会在多个导入线程中被调用，实现需要是线程安全的。
+     */
+    public interface Listener {
+
+        /**
+         * 每写入一个批次后调用。
+         * @param rows 已写入的行数。
+         * @param failed 失败的行数。
+         * @param rowsPerSecond 每秒写入的行数。
+         */
+        void progress(long rows, long failed, double rowsPerSecond);
+
+        /**
+         * @param line 出错记录的序号，表头为1（值中包含换行时与文件的物理行号不同）。
+         * @param values 该行的原始值。
+         * @param e
+         */
+        void error(long line, String[] values, Exception e);
+    }
+
+    public static class Result {
+        private final long rows;
+        private final long failed;
+        private final long millis;
+
+        Result(long rows, long failed, long millis) {
+            this.rows = rows;
+            this.failed = failed;
+            this.millis = millis;
+        }
+
+        public long getRows() {
+            return rows;
+        }
+
+        public long getFailed() {
+            return failed;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public double getRowsPerSecond() {
+            return millis == 0 ? rows : rows * 1000d / millis;
+        }
+    }
+
+    private final JdbcTemplate jdbc;
+    private final BeanInfo beanInfo;
+    private final Map<String, Class<?>> columnTypes;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int batchSize = 1000;
+    private int chunkSize = 8 * 1024 * 1024;
+    private char delimiter = ',';
+    private ErrorPolicy errorPolicy = ErrorPolicy.ABORT;
+    private Listener listener;
+
+    private final AtomicLong rows = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private volatile boolean aborted;
+    private long startTime;
+    private TransactionTemplate transaction;
+
+    /**
+     * @param jdbc
+     * @param beanInfo
+     * @param columnTypes 实体属性对应字段的类型，key是属性名。
+     */
+    public CsvImporter(JdbcTemplate jdbc, BeanInfo beanInfo, Map<String, Class<?>> columnTypes) {
+        this.jdbc = jdbc;
+        this.beanInfo = beanInfo;
+        this.columnTypes = columnTypes;
+    }
+
+    /**
+     * 并行解析和写入的线程数，默认是cpu核数。
+     */
+    public CsvImporter parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    public CsvImporter batchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+        return this;
+    }
+
+    /**
+     * 每个解析块的字节数，默认8M。
+     */
+    public CsvImporter chunkSize(int chunkSize) {
+        this.chunkSize = Math.max(1024, chunkSize);
+        return this;
+    }
+
+    public CsvImporter delimiter(char delimiter) {
+        this.delimiter = delimiter;
+        return this;
+    }
+
+    public CsvImporter errorPolicy(ErrorPolicy errorPolicy) {
+        this.errorPolicy = errorPolicy;
+        return this;
+    }
+
+    public CsvImporter listener(Listener listener) {
+        this.listener = listener;
+        return this;
+    }
+
+    /**
+     * 导入文件，文件编码必须是UTF-8，可以带有BOM。
+     * @param file
+     * @return
+     */
+    public Result run(Path file) {
+        rows.set(0);
+        failed.set(0);
+        aborted = false;
+        startTime = System.currentTimeMillis();
+        if(errorPolicy == ErrorPolicy.SKIP) {
+            transaction = new TransactionTemplate(new DataSourceTransactionManager(jdbc.getDataSource()));
+            transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+        try(FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if(size == 0) return new Result(0, 0, 0);
+            long headerEnd = nextLine(channel, 0, size);
+            String[] header = parse(decode(channel, 0, headerEnd)).get(0);
+            if(header.length > 0 && header[0] != null && header[0].startsWith("\uFEFF")) {
+                header[0] = header[0].substring(1);
+            }
+            Insert insert = createInsert(header);
+            List<Chunk> chunks = split(channel, headerEnd, size);
+            ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, Math.max(1, chunks.size())));
+            try {
+                List<Future<?>> futures = new ArrayList<>(chunks.size());
+                for(Chunk c : chunks) {
+                    futures.add(pool.submit(new ChunkTask(channel, c, insert)));
+                }
+                for(Future<?> f : futures) {
+                    try {
+                        f.get();
+                    } catch(ExecutionException e) {
+                        aborted = true;
+                        Throwable cause = e.getCause();
+                        if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+                        throw new RuntimeException(cause);
+                    }
+                }
+            } catch(InterruptedException e) {
+                aborted = true;
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Import interrupted", e);
+            } finally {
+                pool.shutdownNow();
+            }
+        } catch(IOException e) {
+            throw new DataAccessResourceFailureException("Cannot read " + file, e);
+        }
+        return new Result(rows.get(), failed.get(), System.currentTimeMillis() - startTime);
+    }
+
+    private static class Chunk {
+        long start;
+        long end;
+        //块的第一行在文件中的行号
+        long line;
+    }
+
+    private static class Insert {
+        String sql;
+        //每个csv列对应的属性类型，null表示该列不导入
+        Class<?>[] types;
+        int[] targets;
+        int width;
+        //需要生成uuid主键时的参数位置，-1表示不需要
+        int uuidIndex = -1;
+        int uuidLength;
+    }
+
+    private Insert createInsert(String[] header) {
+        Map<String, String> columnsToProps = new HashMap<>();
+        for(Map.Entry<String, String> e : beanInfo.getPropertiesMapper().entrySet()) {
+            columnsToProps.put(e.getValue(), e.getKey());
+        }
+        Insert insert = new Insert();
+        insert.types = new Class<?>[header.length];
+        insert.targets = new int[header.length];
+        List<String> columns = new ArrayList<>();
+        for(int i = 0; i < header.length; i++) {
+            insert.targets[i] = -1;
+            if(header[i] == null) continue;
+            String name = header[i].trim();
+            String prop = beanInfo.getColumn(name) != null ? name : columnsToProps.get(name);
+            if(prop == null || beanInfo.isIgnore(prop, IgnoreColumnType.INSERT)) continue;
+            Class<?> type = columnTypes.get(prop);
+            insert.types[i] = type == null ? String.class : type;
+            insert.targets[i] = columns.size();
+            columns.add(beanInfo.getColumn(prop));
+        }
+        if(columns.isEmpty()) {
+            throw new RuntimeException("No column of " + beanInfo.getTableName() + " found in csv header " + Arrays.toString(header));
+        }
+        if(beanInfo.getIdGenerator() == IdGenerator.UUID && !columns.contains(beanInfo.getPrimaryColumn())) {
+            insert.uuidIndex = columns.size();
+            insert.uuidLength = beanInfo.getUuidLength();
+            columns.add(beanInfo.getPrimaryColumn());
+        }
+        insert.width = columns.size();
+        insert.sql = String.format("insert into %s (%s) values (%s)", beanInfo.getTableName(),
+                StringUtils.join(columns, ","), StringUtils.repeat("?", ",", columns.size()));
+        return insert;
+    }
+
+    /**
+     * 按照块大小切分文件，切分点在引号外的换行符之后，同时计算每块起始的行号。
+     */
+    private List<Chunk> split(FileChannel channel, long from, long size) throws IOException {
+        List<Chunk> chunks = new ArrayList<>();
+        boolean quoted = false;
+        long line = 2;
+        Chunk current = new Chunk();
+        current.start = from;
+        current.line = line;
+        long pos = from;
+        while(pos < size) {
+            long len = Math.min(chunkSize, size - pos);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            for(int i = 0; i < len; i++) {
+                byte b = buf.get(i);
+                if(b == '"') {
+                    quoted = !quoted;
+                } else if(b == '\n' && !quoted) {
+                    line++;
+                    long end = pos + i + 1;
+                    if(end - current.start >= chunkSize) {
+                        current.end = end;
+                        chunks.add(current);
+                        current = new Chunk();
+                        current.start = end;
+                        current.line = line;
+                    }
+                }
+            }
+            pos += len;
+        }
+        if(current.start < size) {
+            current.end = size;
+            chunks.add(current);
+        }
+        return chunks;
+    }
+
+    private long nextLine(FileChannel channel, long from, long size) throws IOException {
+        boolean quoted = false;
+        long pos = from;
+        while(pos < size) {
+            long len = Math.min(64 * 1024, size - pos);
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, pos, len);
+            for(int i = 0; i < len; i++) {
+                byte b = buf.get(i);
+                if(b == '"') {
+                    quoted = !quoted;
+                } else if(b == '\n' && !quoted) {
+                    return pos + i + 1;
+                }
+            }
+            pos += len;
+        }
+        return size;
+    }
+
+    private CharBuffer decode(FileChannel channel, long start, long end) throws IOException {
+        MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+        try {
+            return StandardCharsets.UTF_8.newDecoder().decode(buf);
+        } catch(CharacterCodingException e) {
+            throw new IOException("Invalid UTF-8 content between byte " + start + " and " + end, e);
+        }
+    }
+
+    /**
+     * 解析csv文本，支持双引号包围的值（值中的双引号用两个双引号表示）。
+     */
+    private List<String[]> parse(CharBuffer text) {
+        List<String[]> records = new ArrayList<>();
+        List<String> fields = new ArrayList<>();
+        StringBuilder sb = new StringBuilder();
+        boolean quoted = false;
+        boolean wasQuoted = false;
+        int n = text.remaining();
+        for(int i = 0; i < n; i++) {
+            char c = text.get(i);
+            if(quoted) {
+                if(c == '"') {
+                    if(i + 1 < n && text.get(i + 1) == '"') {
+                        sb.append('"');
+                        i++;
+                    } else {
+                        quoted = false;
+                    }
+                } else {
+                    sb.append(c);
+                }
+            } else if(c == '"') {
+                quoted = true;
+                wasQuoted = true;
+            } else if(c == delimiter) {
+                fields.add(field(sb, wasQuoted));
+                wasQuoted = false;
+            } else if(c == '\n') {
+                fields.add(field(sb, wasQuoted));
+                wasQuoted = false;
+                records.add(fields.toArray(new String[fields.size()]));
+                fields.clear();
+            } else if(c != '\r') {
+                sb.append(c);
+            }
+        }
+        if(sb.length() > 0 || wasQuoted || !fields.isEmpty()) {
+            fields.add(field(sb, wasQuoted));
+            records.add(fields.toArray(new String[fields.size()]));
+        }
+        return records;
+    }
+
+    private static String field(StringBuilder sb, boolean quoted) {
+        String s = sb.length() == 0 && !quoted ? null : sb.toString();
+        sb.setLength(0);
+        return s;
+    }
+
+    private class ChunkTask implements Runnable {
+
+        private final FileChannel channel;
+        private final Chunk chunk;
+        private final Insert insert;
+
+        ChunkTask(FileChannel channel, Chunk chunk, Insert insert) {
+            this.channel = channel;
+            this.chunk = chunk;
+            this.insert = insert;
+        }
+
+        @Override
+        public void run() {
+            if(aborted) return;
+            List<String[]> records;
+            try {
+                records = parse(decode(channel, chunk.start, chunk.end));
+            } catch(IOException e) {
+                throw new DataAccessResourceFailureException(e.getMessage(), e);
+            }
+            List<Object[]> batch = new ArrayList<>(batchSize);
+            List<Long> lines = new ArrayList<>(batchSize);
+            List<String[]> raws = new ArrayList<>(batchSize);
+            long line = chunk.line;
+            for(String[] record : records) {
+                if(aborted) return;
+                long current = line++;
+                if(record.length == 1 && record[0] == null) continue;
+                Object[] args;
+                try {
+                    args = convert(record);
+                } catch(RuntimeException e) {
+                    fail(current, record, e);
+                    continue;
+                }
+                batch.add(args);
+                lines.add(current);
+                raws.add(record);
+                if(batch.size() >= batchSize) {
+                    flush(batch, lines, raws);
+                }
+            }
+            if(!batch.isEmpty()) flush(batch, lines, raws);
+        }
+
+        private Object[] convert(String[] record) {
+            Object[] args = new Object[insert.width];
+            for(int i = 0; i < record.length && i < insert.targets.length; i++) {
+                int target = insert.targets[i];
+                if(target < 0) continue;
+                args[target] = CsvImporter.convert(record[i], insert.types[i]);
+            }
+            if(insert.uuidIndex >= 0) {
+                String uuid = UUID.randomUUID().toString().replace("-", "");
+                args[insert.uuidIndex] = uuid.substring(uuid.length() - insert.uuidLength);
+            }
+            return args;
+        }
+
+        private void flush(final List<Object[]> batch, List<Long> lines, List<String[]> raws) {
+            try {
+                if(errorPolicy == ErrorPolicy.SKIP) {
+                    //mysql等驱动在批次中的一行失败后会继续执行其余的行，不回滚的话逐行重试会重复插入
+                    transaction.execute(new TransactionCallbackWithoutResult() {
+                        @Override
+                        protected void doInTransactionWithoutResult(TransactionStatus status) {
+                            jdbc.batchUpdate(insert.sql, batch);
+                        }
+                    });
+                } else {
+                    jdbc.batchUpdate(insert.sql, batch);
+                }
+                rows.addAndGet(batch.size());
+            } catch(RuntimeException e) {
+                if(errorPolicy == ErrorPolicy.ABORT) {
+                    aborted = true;
+                    throw e;
+                }
+                //批次已经回滚，逐行重试找出失败的行
+                for(int i = 0; i < batch.size(); i++) {
+                    try {
+                        jdbc.update(insert.sql, batch.get(i));
+                        rows.incrementAndGet();
+                    } catch(RuntimeException x) {
+                        fail(lines.get(i), raws.get(i), x);
+                    }
+                }
+            }
+            batch.clear();
+            lines.clear();
+            raws.clear();
+            if(listener != null) {
+                long elapsed = System.currentTimeMillis() - startTime;
+                long r = rows.get();
+                listener.progress(r, failed.get(), elapsed == 0 ? r : r * 1000d / elapsed);
+            }
+        }
+
+        private void fail(long line, String[] record, RuntimeException e) {
+            failed.incrementAndGet();
+            if(listener != null) {
+                listener.error(line, record, e);
+            }
+            if(errorPolicy == ErrorPolicy.ABORT) {
+                aborted = true;
+                throw new RuntimeException("Import failed at line " + line, e);
+            }
+        }
+    }
+
+    /**
+     * 将csv的文本值转换成字段类型的值。
+     * @param text
+     * @param type
+     * @return
+     */
+    static Object convert(String text, Class<?> type) {
+        if(text == null) return null;
+        if(type == String.class) return text;
+        String v = text.trim();
+        if(v.isEmpty()) return null;
+        if(type == Integer.class || type == int.class) return Integer.valueOf(v);
+        if(type == Long.class || type == long.class) return Long.valueOf(v);
+        if(type == Double.class || type == double.class) return Double.valueOf(v);
+        if(type == Float.class || type == float.class) return Float.valueOf(v);
+        if(type == Short.class || type == short.class) return Short.valueOf(v);
+        if(type == Byte.class || type == byte.class) return Byte.valueOf(v);
+        if(type == Boolean.class || type == boolean.class) return "1".equals(v) || "true".equalsIgnoreCase(v);
+        if(type == BigDecimal.class) return new BigDecimal(v);
+        if(type == BigInteger.class) return new BigInteger(v);
+        if(type == java.sql.Date.class) return java.sql.Date.valueOf(v);
+        if(type == Time.class) return Time.valueOf(v);
+        if(type == Timestamp.class || type == java.util.Date.class || type == Calendar.class) {
+            return v.length() <= 10 ? new Timestamp(java.sql.Date.valueOf(v).getTime()) : Timestamp.valueOf(v);
+        }
+        return text;
+    }
+}
@@ -0,0 +1,51 @@
+package com.jxs.ld.stream;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * double类型的列（也用于float和BigDecimal，BigDecimal会损失精度）。
+ *
+ * @author jiangxingshang
+ */
+public class DoubleVector extends ColumnVector {
+
+    private double[][] chunks = new double[16][];
+    private double[] values;
+
+    DoubleVector(String name) {
+        super(name);
+    }
+
+    @Override
+    void read(ResultSet rs, int index) throws SQLException {
+        double v = rs.getDouble(index);
+        if(rs.wasNull()) setNull(size);
+        int chunk = size >>> CHUNK_SHIFT;
+        chunks = grow(chunks, chunk);
+        if(chunks[chunk] == null) chunks[chunk] = new double[CHUNK_SIZE];
+        chunks[chunk][size & CHUNK_MASK] = v;
+        size++;
+    }
+
+    @Override
+    void finish() {
+        super.finish();
+        values = new double[size];
+        for(int i = 0, pos = 0; pos < size; i++, pos += CHUNK_SIZE) {
+            System.arraycopy(chunks[i], 0, values, pos, Math.min(CHUNK_SIZE, size - pos));
+        }
+        chunks = null;
+    }
+
+    public double get(int row) {
+        return values[row];
+    }
+
+    /**
+     * @return 所有行的值，长度等于行数。
+     */
+    public double[] getValues() {
+        return values;
+    }
+}
@@ -0,0 +1,51 @@
+package com.jxs.ld.stream;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * int类型的列（也用于short和byte）。
+ *
+ * @author jiangxingshang
+ */
+public class IntVector extends ColumnVector {
+
+    private int[][] chunks = new int[16][];
+    private int[] values;
+
+    IntVector(String name) {
+        super(name);
+    }
+
+    @Override
+    void read(ResultSet rs, int index) throws SQLException {
+        int v = rs.getInt(index);
+        if(rs.wasNull()) setNull(size);
+        int chunk = size >>> CHUNK_SHIFT;
+        chunks = grow(chunks, chunk);
+        if(chunks[chunk] == null) chunks[chunk] = new int[CHUNK_SIZE];
+        chunks[chunk][size & CHUNK_MASK] = v;
+        size++;
+    }
+
+    @Override
+    void finish() {
+        super.finish();
+        values = new int[size];
+        for(int i = 0, pos = 0; pos < size; i++, pos += CHUNK_SIZE) {
+            System.arraycopy(chunks[i], 0, values, pos, Math.min(CHUNK_SIZE, size - pos));
+        }
+        chunks = null;
+    }
+
+    public int get(int row) {
+        return values[row];
+    }
+
+    /**
+     * @return 所有行的值，长度等于行数。
+     */
+    public int[] getValues() {
+        return values;
+    }
+}
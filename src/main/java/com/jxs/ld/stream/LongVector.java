@@ -0,0 +1,51 @@
+package com.jxs.ld.stream;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * long类型的列。
+ *
+ * @author jiangxingshang
+ */
+public class LongVector extends ColumnVector {
+
+    private long[][] chunks = new long[16][];
+    private long[] values;
+
+    LongVector(String name) {
+        super(name);
+    }
+
+    @Override
+    void read(ResultSet rs, int index) throws SQLException {
+        long v = rs.getLong(index);
+        if(rs.wasNull()) setNull(size);
+        int chunk = size >>> CHUNK_SHIFT;
+        chunks = grow(chunks, chunk);
+        if(chunks[chunk] == null) chunks[chunk] = new long[CHUNK_SIZE];
+        chunks[chunk][size & CHUNK_MASK] = v;
+        size++;
+    }
+
+    @Override
+    void finish() {
+        super.finish();
+        values = new long[size];
+        for(int i = 0, pos = 0; pos < size; i++, pos += CHUNK_SIZE) {
+            System.arraycopy(chunks[i], 0, values, pos, Math.min(CHUNK_SIZE, size - pos));
+        }
+        chunks = null;
+    }
+
+    public long get(int row) {
+        return values[row];
+    }
+
+    /**
+     * @return 所有行的值，长度等于行数。
+     */
+    public long[] getValues() {
+        return values;
+    }
+}
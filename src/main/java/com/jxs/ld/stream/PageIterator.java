@@ -0,0 +1,189 @@
+package com.jxs.ld.stream;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+
+/**
+ * 预读的分页迭代器，调用者处理第N页时后台线程已经在读取第N+1页，最多预读{@link #readAhead(int)}页。
+ * 返回的页小于页大小时认为是最后一页。提前结束迭代时必须调用{@link #close()}，它会停止后台读取。
+ * 注意：后台读取在其他线程中执行，不会加入调用者的事务。
+ *
+ * @author jiangxingshang
+ * @see com.jxs.ld.BaseDao#pages(com.jxs.ld.sql.SqlBuilder, int, Object...)
+ */
+public class PageIterator<T> implements Iterator<List<T>>, Closeable {
+
+    /**
+     * 读取一页。
+     */
+    public interface Fetcher<T> {
+        /**
+         * @param previous 上一页，第一页时为null，用于keyset分页。
+         * @param pageIndex 页号，从0开始，用于offset分页。
+         * @return 这一页的数据，没有数据时返回空列表。
+         */
+        List<T> fetch(List<T> previous, int pageIndex);
+    }
+
+    private static final Object END = new Object();
+
+    private static class Failure {
+        final Throwable error;
+
+        Failure(Throwable error) {
+            this.error = error;
+        }
+    }
+
+    private final Fetcher<T> fetcher;
+    private final int pageSize;
+    private int readAhead = 1;
+    private Executor executor;
+    private BlockingQueue<Object> queue;
+    private volatile boolean closed;
+    //worker的设置、清除和close()中的中断都在锁内，避免中断线程池中已经在执行其他任务的线程
+    private final Object lock = new Object();
+    private Thread worker;
+    private Object next;
+    private boolean finished;
+
+    /**
+     * @param fetcher
+     * @param pageSize 每页的记录数。
+     */
+    public PageIterator(Fetcher<T> fetcher, int pageSize) {
+        this.fetcher = fetcher;
+        this.pageSize = Math.max(1, pageSize);
+    }
+
+    /**
+     * 最多预读的页数，默认1，在开始迭代前设置。
+     */
+    public PageIterator<T> readAhead(int readAhead) {
+        this.readAhead = Math.max(1, readAhead);
+        return this;
+    }
+
+    /**
+     * 执行后台读取的线程池，默认为每个迭代器创建一个守护线程。
+     */
+    public PageIterator<T> executor(Executor executor) {
+        this.executor = executor;
+        return this;
+    }
+
+    private void start() {
+        queue = new ArrayBlockingQueue<>(readAhead);
+        Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                synchronized(lock) {
+                    if(closed) return;
+                    worker = Thread.currentThread();
+                }
+                try {
+                    produce();
+                } finally {
+                    synchronized(lock) {
+                        worker = null;
+                    }
+                    //清除close()可能留下的中断状态，避免影响线程池中的下一个任务
+                    Thread.interrupted();
+                }
+            }
+        };
+        if(executor == null) {
+            Thread t = new Thread(task, "light-dao-page-prefetch");
+            t.setDaemon(true);
+            t.start();
+        } else {
+            executor.execute(task);
+        }
+    }
+
+    private void produce() {
+        try {
+            List<T> previous = null;
+            int index = 0;
+            while(!closed) {
+                List<T> page = fetcher.fetch(previous, index++);
+                if(page == null || page.isEmpty()) break;
+                queue.put(page);
+                if(page.size() < pageSize) break;
+                previous = page;
+            }
+            queue.put(END);
+        } catch(InterruptedException e) {
+            //已关闭
+        } catch(Throwable e) {
+            if(!closed) {
+                try {
+                    queue.put(new Failure(e));
+                } catch(InterruptedException x) {
+                    //已关闭
+                }
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        if(next != null) return true;
+        if(finished || closed) return false;
+        if(queue == null) start();
+        Object o;
+        try {
+            o = queue.take();
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            close();
+            throw new RuntimeException("Page prefetch interrupted", e);
+        }
+        if(o == END) {
+            finished = true;
+            return false;
+        }
+        if(o instanceof Failure) {
+            finished = true;
+            Throwable e = ((Failure) o).error;
+            if(e instanceof RuntimeException) throw (RuntimeException) e;
+            if(e instanceof Error) throw (Error) e;
+            throw new RuntimeException(e);
+        }
+        next = o;
+        return true;
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public List<T> next() {
+        if(!hasNext()) throw new NoSuchElementException();
+        List<T> page = (List<T>) next;
+        next = null;
+        return page;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException();
+    }
+
+    /**
+     * 停止后台读取并丢弃已经预读的页。
+     */
+    @Override
+    public void close() {
+        synchronized(lock) {
+            if(closed) return;
+            closed = true;
+            if(worker != null) worker.interrupt();
+        }
+        next = null;
+        if(queue != null) queue.clear();
+    }
+}
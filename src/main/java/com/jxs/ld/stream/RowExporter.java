@@ -0,0 +1,229 @@
+package com.jxs.ld.stream;
+
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+import java.util.Map;
+
+/**
+ * 将{@link ResultSet}直接写到{@link WritableByteChannel}中（CSV或JSON Lines），不会创建实体，
+ * 字符编码使用可重用的直接缓冲区，导出千万级记录时内存占用保持不变。
+ * 表头和JSON的key使用字段对应的属性名，没有对应属性的字段使用字段名。
+ *
+ * @author jiangxingshang
+ * @see com.jxs.ld.BaseDao#export(com.jxs.ld.sql.SqlBuilder, WritableByteChannel, Format, Object...)
+ */
+public class RowExporter implements ResultSetExtractor<Long> {
+
+    public enum Format {
+        /**
+         * 第一行为表头，值包含逗号、引号或换行时使用双引号包围。
+         */
+        CSV,
+        /**
+         * 每行一个JSON对象。
+         */
+        JSON_LINES
+    }
+
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    private final WritableByteChannel channel;
+    private final Format format;
+    private final Map<String, String> columnsMapper;
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private final CharBuffer chars = CharBuffer.allocate(8 * 1024);
+    private final ByteBuffer bytes = ByteBuffer.allocateDirect(64 * 1024);
+
+    /**
+     * @param channel 导出的目标，不会被关闭。
+     * @param format
+     * @param columnsMapper 字段到属性的映射，可以为null。使用驱动返回的字段标签查找，标签可能是大写的（如H2、Oracle），通常需要不区分大小写的map。
+     */
+    public RowExporter(WritableByteChannel channel, Format format, Map<String, String> columnsMapper) {
+        this.channel = channel;
+        this.format = format;
+        this.columnsMapper = columnsMapper;
+    }
+
+    @Override
+    public Long extractData(ResultSet rs) throws SQLException {
+        try {
+            return write(rs);
+        } catch(IOException e) {
+            throw new DataAccessResourceFailureException("Export failed", e);
+        }
+    }
+
+    private long write(ResultSet rs) throws SQLException, IOException {
+        ResultSetMetaData md = rs.getMetaData();
+        int count = md.getColumnCount();
+        String[] names = new String[count];
+        boolean[] numeric = new boolean[count];
+        boolean[] bool = new boolean[count];
+        for(int i = 0; i < count; i++) {
+            String label = md.getColumnLabel(i + 1);
+            String prop = columnsMapper == null ? null : columnsMapper.get(label);
+            names[i] = prop == null ? label : prop;
+            int type = md.getColumnType(i + 1);
+            numeric[i] = isNumeric(type);
+            bool[i] = type == Types.BOOLEAN || type == Types.BIT;
+        }
+        if(format == Format.CSV) {
+            for(int i = 0; i < count; i++) {
+                if(i > 0) append(',');
+                appendCsv(names[i]);
+            }
+            append('\n');
+        }
+        long rows = 0;
+        while(rs.next()) {
+            if(format == Format.CSV) {
+                for(int i = 0; i < count; i++) {
+                    if(i > 0) append(',');
+                    String v = rs.getString(i + 1);
+                    if(v != null) appendCsv(v);
+                }
+            } else {
+                append('{');
+                for(int i = 0; i < count; i++) {
+                    if(i > 0) append(',');
+                    appendJson(names[i]);
+                    append(':');
+                    String v = rs.getString(i + 1);
+                    if(v == null) {
+                        append("null");
+                    } else if(numeric[i]) {
+                        append(v);
+                    } else if(bool[i]) {
+                        append("1".equals(v) || "true".equalsIgnoreCase(v) ? "true" : "false");
+                    } else {
+                        appendJson(v);
+                    }
+                }
+                append('}');
+            }
+            append('\n');
+            rows++;
+        }
+        finish();
+        return rows;
+    }
+
+    private static boolean isNumeric(int type) {
+        switch(type) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return true;
+            default:
+                return false;
+        }
+    }
+
+    private void appendCsv(String v) throws IOException {
+        boolean quote = false;
+        for(int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if(!quote) {
+            append(v);
+            return;
+        }
+        append('"');
+        for(int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if(c == '"') append('"');
+            append(c);
+        }
+        append('"');
+    }
+
+    private void appendJson(String v) throws IOException {
+        append('"');
+        for(int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch(c) {
+                case '"': append("\\\""); break;
+                case '\\': append("\\\\"); break;
+                case '\n': append("\\n"); break;
+                case '\r': append("\\r"); break;
+                case '\t': append("\\t"); break;
+                default:
+                    if(c < 0x20) {
+                        append("\\u00");
+                        append(HEX[c >> 4]);
+                        append(HEX[c & 0xF]);
+                    } else {
+                        append(c);
+                    }
+            }
+        }
+        append('"');
+    }
+
+    private void append(String s) throws IOException {
+        for(int i = 0; i < s.length(); i++) {
+            append(s.charAt(i));
+        }
+    }
+
+    private void append(char c) throws IOException {
+        if(!chars.hasRemaining()) {
+            encode(false);
+        }
+        chars.put(c);
+    }
+
+    private void encode(boolean endOfInput) throws IOException {
+        chars.flip();
+        while(true) {
+            CoderResult r = encoder.encode(chars, bytes, endOfInput);
+            if(r.isOverflow()) {
+                flushBytes();
+            } else {
+                break;
+            }
+        }
+        //未编码完的字符（如代理对的前半部分）留到下次
+        chars.compact();
+    }
+
+    private void flushBytes() throws IOException {
+        bytes.flip();
+        while(bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+        bytes.clear();
+    }
+
+    private void finish() throws IOException {
+        encode(true);
+        while(encoder.flush(bytes).isOverflow()) {
+            flushBytes();
+        }
+        flushBytes();
+        encoder.reset();
+    }
+}
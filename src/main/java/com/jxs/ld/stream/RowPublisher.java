@@ -0,0 +1,242 @@
+package com.jxs.ld.stream;
+
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.diag.SqlDiagnostics;
+import com.jxs.ld.diag.SqlEvents;
+import com.jxs.ld.sql.SqlBuilder;
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.jdbc.support.JdbcUtils;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于游标的行发布者，只有订阅者请求（request）多少行才从{@link ResultSet}中读取多少行，
+ * 消费慢的订阅者不会导致行数据在内存中堆积。
+ * 每次订阅都会单独执行一次查询，取消订阅或读取完毕后会关闭{@link ResultSet}并归还连接。
+ * 查询会记录JFR事件（见{@link SqlEvents}），通过{@link #of(BaseDao, RowMapper, SqlBuilder, Object...)}创建时也会进行DAO的执行计划诊断。
+ * 注意：{@link Flow}需要java 9及以上，这个类不在{@link BaseDao}的方法签名中，在java 8上编译时会被排除（见pom.xml）。
+ * <pre>
+ * RowPublisher.of(userDao, userDao.sql("select @columns from @tableName where @age &gt; ?"), 18)
+ *     .executor(executor)
+ *     .subscribe(subscriber);
+ * </pre>
+ *
+ * @author jiangxingshang
+ */
+public class RowPublisher<T> implements Flow.Publisher<T> {
+
+    private static final Executor DIRECT = new Executor() {
+        @Override
+        public void execute(Runnable command) {
+            command.run();
+        }
+    };
+
+    private final JdbcTemplate jdbc;
+    private final BaseDao<?> dao;
+    private final String sql;
+    private final RowMapper<T> mapper;
+    private final Object[] values;
+    private Executor executor = DIRECT;
+    private int fetchSize;
+
+    public RowPublisher(JdbcTemplate jdbc, String sql, RowMapper<T> mapper, Object...values) {
+        this(jdbc, null, sql, mapper, values);
+    }
+
+    private RowPublisher(JdbcTemplate jdbc, BaseDao<?> dao, String sql, RowMapper<T> mapper, Object...values) {
+        this.jdbc = jdbc;
+        this.dao = dao;
+        this.sql = sql;
+        this.mapper = mapper;
+        this.values = values;
+        this.fetchSize = jdbc.getFetchSize();
+    }
+
+    /**
+     * 使用DAO的读库（见{@link BaseDao#getReadJdbcTemplate()}）和流式读取的fetchSize（见{@link BaseDao#setStreamFetchSize(int)}）。
+     * @param dao
+     * @param mapper
+     * @param sqlBuilder
+     * @param values 查询参数。
+     * @param <T>
+     * @return
+     */
+    public static <T> RowPublisher<T> of(BaseDao<?> dao, RowMapper<T> mapper, SqlBuilder sqlBuilder, Object...values) {
+        return new RowPublisher<>(dao.getReadJdbcTemplate(), dao, sqlBuilder.toSql(), mapper, values).fetchSize(dao.getStreamFetchSize());
+    }
+
+    /**
+     * 使用DAO默认的{@link BaseDao#getRowMapper()}和sqlBuilder中的参数。
+     * @see #of(BaseDao, RowMapper, SqlBuilder, Object...)
+     */
+    public static <T> RowPublisher<T> of(BaseDao<T> dao, SqlBuilder sqlBuilder, Object...values) {
+        return of(dao, dao.getRowMapper(), sqlBuilder, values.length == 0 ? sqlBuilder.getValueArray() : values);
+    }
+
+    /**
+     * 设置读取行的线程池，默认在调用{@link Flow.Subscription#request(long)}的线程中读取。
+     * @param executor
+     * @return
+     */
+    public RowPublisher<T> executor(Executor executor) {
+        this.executor = executor == null ? DIRECT : executor;
+        return this;
+    }
+
+    /**
+     * 设置游标的fetchSize，mysql需要设置为{@link Integer#MIN_VALUE}才会真正的流式读取。
+     * @param fetchSize
+     * @return
+     */
+    public RowPublisher<T> fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super T> subscriber) {
+        if(subscriber == null) throw new NullPointerException("Subscriber must not be null.");
+        RowSubscription s = new RowSubscription(subscriber);
+        subscriber.onSubscribe(s);
+    }
+
+    private class RowSubscription implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super T> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        //正在执行的drain次数，保证同一时刻只有一个线程在读取游标。
+        private final AtomicInteger wip = new AtomicInteger();
+        private volatile boolean cancelled;
+        private volatile Throwable invalidRequest;
+        private boolean done;
+        private Connection con;
+        private PreparedStatement ps;
+        private ResultSet rs;
+        private int rowNum;
+        private Object event;
+        private long started;
+        private long executed;
+
+        RowSubscription(Flow.Subscriber<? super T> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            if(n <= 0) {
+                invalidRequest = new IllegalArgumentException("Request must be positive, but was " + n);
+            } else {
+                long r, u;
+                do {
+                    r = demand.get();
+                    u = r + n;
+                    if(u < 0) u = Long.MAX_VALUE;
+                } while(!demand.compareAndSet(r, u));
+            }
+            schedule();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            schedule();
+        }
+
+        private void schedule() {
+            if(wip.getAndIncrement() == 0) {
+                executor.execute(this);
+            }
+        }
+
+        @Override
+        public void run() {
+            int missed = 1;
+            do {
+                drain();
+                missed = wip.addAndGet(-missed);
+            } while(missed != 0);
+        }
+
+        private void drain() {
+            if(done) return;
+            if(cancelled) {
+                close();
+                return;
+            }
+            if(invalidRequest != null) {
+                close();
+                subscriber.onError(invalidRequest);
+                return;
+            }
+            try {
+                if(rs == null) open();
+                while(demand.get() > 0 && !cancelled) {
+                    if(!rs.next()) {
+                        close();
+                        subscriber.onComplete();
+                        return;
+                    }
+                    T row = mapper.mapRow(rs, rowNum++);
+                    demand.decrementAndGet();
+                    subscriber.onNext(row);
+                }
+                if(cancelled) close();
+            } catch(SQLException e) {
+                close();
+                subscriber.onError(jdbc.getExceptionTranslator().translate("RowPublisher", sql, e));
+            } catch(RuntimeException e) {
+                close();
+                subscriber.onError(e);
+            }
+        }
+
+        private void open() throws SQLException {
+            if(dao != null) {
+                SqlDiagnostics diagnostics = dao.getDiagnostics();
+                if(diagnostics != null) diagnostics.inspect(jdbc, sql, new ArgumentPreparedStatementSetter(values));
+            }
+            event = SqlEvents.begin();
+            started = System.nanoTime();
+            DataSource ds = jdbc.getDataSource();
+            con = DataSourceUtils.getConnection(ds);
+            ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            if(fetchSize != 0 && fetchSize != -1) {
+                ps.setFetchSize(fetchSize);
+            }
+            new ArgumentPreparedStatementSetter(values).setValues(ps);
+            rs = ps.executeQuery();
+            executed = System.nanoTime();
+        }
+
+        private void close() {
+            if(done) return;
+            done = true;
+            if(event != null) {
+                //读取时间包括订阅者处理每一行的时间
+                SqlEvents.commit(event, dao == null ? RowPublisher.class : dao.getClass(), "publish", sql, rowNum,
+                        executed == 0 ? System.nanoTime() - started : executed - started, executed == 0 ? 0 : System.nanoTime() - executed);
+                event = null;
+            }
+            JdbcUtils.closeResultSet(rs);
+            JdbcUtils.closeStatement(ps);
+            if(con != null) {
+                DataSourceUtils.releaseConnection(con, jdbc.getDataSource());
+            }
+            rs = null;
+            ps = null;
+            con = null;
+        }
+    }
+}
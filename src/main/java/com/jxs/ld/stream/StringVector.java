@@ -0,0 +1,82 @@
+package com.jxs.ld.stream;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 字典编码的字符串列，每个不同的值只保存一次，每行保存值在字典中的编码，null的编码为-1。
+ * 适合状态、类别这类取值较少的字段。
+ *
+ * @author jiangxingshang
+ */
+public class StringVector extends ColumnVector {
+
+    private int[][] chunks = new int[16][];
+    private int[] codes;
+    private final List<String> dictionary = new ArrayList<>();
+    private Map<String, Integer> index = new HashMap<>();
+
+    StringVector(String name) {
+        super(name);
+    }
+
+    @Override
+    void read(ResultSet rs, int columnIndex) throws SQLException {
+        String v = rs.getString(columnIndex);
+        int code;
+        if(v == null) {
+            setNull(size);
+            code = -1;
+        } else {
+            Integer c = index.get(v);
+            if(c == null) {
+                c = dictionary.size();
+                dictionary.add(v);
+                index.put(v, c);
+            }
+            code = c;
+        }
+        int chunk = size >>> CHUNK_SHIFT;
+        chunks = grow(chunks, chunk);
+        if(chunks[chunk] == null) chunks[chunk] = new int[CHUNK_SIZE];
+        chunks[chunk][size & CHUNK_MASK] = code;
+        size++;
+    }
+
+    @Override
+    void finish() {
+        super.finish();
+        codes = new int[size];
+        for(int i = 0, pos = 0; pos < size; i++, pos += CHUNK_SIZE) {
+            System.arraycopy(chunks[i], 0, codes, pos, Math.min(CHUNK_SIZE, size - pos));
+        }
+        chunks = null;
+        index = null;
+    }
+
+    /**
+     * @return 值，null时返回null。
+     */
+    public String get(int row) {
+        int code = codes[row];
+        return code < 0 ? null : dictionary.get(code);
+    }
+
+    /**
+     * @return 每行的编码，长度等于行数。
+     */
+    public int[] getCodes() {
+        return codes;
+    }
+
+    /**
+     * @return 字典，下标即编码。
+     */
+    public List<String> getDictionary() {
+        return dictionary;
+    }
+}
@@ -0,0 +1,201 @@
+package com.jxs.ld.stream;
+
+import org.springframework.jdbc.core.ArgumentPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementCreator;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 并行的全表扫描，将整数主键的取值范围切分成多个区间，每个区间使用单独的连接流式读取，
+ * 读取到的实体交给{@link RowConsumer}处理。区间默认按照min(主键)到max(主键)均分，
+ * 主键分布不均匀时可以通过{@link #splitPoints(long...)}指定采样得到的分割点。
+ *
+ * @author jiangxingshang
+ * @see com.jxs.ld.BaseDao#scanner()
+ */
+public class TableScanner<T> {
+
+    /**
+     * 扫描到的行的处理者，会在多个扫描线程中被调用，实现需要是线程安全的。
+     */
+    public interface RowConsumer<T> {
+        void accept(T row);
+    }
+
+    private final JdbcTemplate jdbc;
+    private final String tableName;
+    private final String primaryColumn;
+    private final String columns;
+    private final RowMapper<T> mapper;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int partitions;
+    private int fetchSize;
+    private long[] splitPoints;
+
+    /**
+     * @param jdbc
+     * @param tableName
+     * @param primaryColumn 整数类型的主键字段。
+     * @param columns 查询的字段。
+     * @param mapper
+     */
+    public TableScanner(JdbcTemplate jdbc, String tableName, String primaryColumn, String columns, RowMapper<T> mapper) {
+        this.jdbc = jdbc;
+        this.tableName = tableName;
+        this.primaryColumn = primaryColumn;
+        this.columns = columns;
+        this.mapper = mapper;
+        this.fetchSize = jdbc.getFetchSize();
+    }
+
+    /**
+     * 同时扫描的区间数（即同时使用的连接数），默认是cpu核数。
+     */
+    public TableScanner<T> parallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+        return this;
+    }
+
+    /**
+     * 主键范围切分的区间数，默认是并行数的4倍，区间越多各线程的负载越均匀。
+     */
+    public TableScanner<T> partitions(int partitions) {
+        this.partitions = Math.max(1, partitions);
+        return this;
+    }
+
+    /**
+     * 游标的fetchSize，默认使用{@link JdbcTemplate#getFetchSize()}，mysql需要设置为{@link Integer#MIN_VALUE}才会真正的流式读取。
+     */
+    public TableScanner<T> fetchSize(int fetchSize) {
+        this.fetchSize = fetchSize;
+        return this;
+    }
+
+    /**
+     * 使用指定的分割点切分区间，设置后{@link #partitions(int)}无效。
+     * @param points 主键的分割点，不需要包含最小和最大值。
+     */
+    public TableScanner<T> splitPoints(long...points) {
+        this.splitPoints = points == null || points.length == 0 ? null : points.clone();
+        return this;
+    }
+
+    /**
+     * 扫描全表，任何一个区间出错都会停止扫描并抛出异常。
+     * @param consumer
+     * @return 扫描的记录数。
+     */
+    public long run(final RowConsumer<T> consumer) {
+        Map<String, Object> range = jdbc.queryForMap(String.format("select min(%s) as min_id, max(%s) as max_id from %s",
+                primaryColumn, primaryColumn, tableName));
+        Object min = range.get("min_id"), max = range.get("max_id");
+        if(min == null || max == null) return 0;
+        if(!(min instanceof Number) || !(max instanceof Number)) {
+            throw new RuntimeException("Partitioned scan requires an integral primary key, " + tableName + "." + primaryColumn + " is " + min.getClass().getName());
+        }
+        long[] bounds = bounds(((Number) min).longValue(), ((Number) max).longValue());
+
+        final AtomicLong rows = new AtomicLong();
+        final AtomicInteger count = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, bounds.length), new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread t = new Thread(r, "light-dao-scan-" + tableName + "-" + count.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        try {
+            CompletionService<Void> cs = new ExecutorCompletionService<>(executor);
+            for(int i = 0; i < bounds.length; i++) {
+                final boolean last = i == bounds.length - 1;
+                final long from = bounds[i];
+                final long to = last ? ((Number) max).longValue() : bounds[i + 1];
+                cs.submit(new Callable<Void>() {
+                    @Override
+                    public Void call() throws Exception {
+                        scan(from, to, last, consumer, rows);
+                        return null;
+                    }
+                });
+            }
+            for(int i = 0; i < bounds.length; i++) {
+                cs.take().get();
+            }
+        } catch(InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Scan of " + tableName + " interrupted", e);
+        } catch(ExecutionException e) {
+            Throwable cause = e.getCause();
+            if(cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new RuntimeException(cause);
+        } finally {
+            executor.shutdownNow();
+        }
+        return rows.get();
+    }
+
+    /**
+     * @return 每个区间的起始值（包含），最后一个区间包含最大值。
+     */
+    private long[] bounds(long min, long max) {
+        TreeSet<Long> set = new TreeSet<>();
+        set.add(min);
+        if(splitPoints != null) {
+            for(long p : splitPoints) {
+                if(p > min && p <= max) set.add(p);
+            }
+        } else {
+            int n = partitions > 0 ? partitions : parallelism * 4;
+            long span = max - min;
+            for(int i = 1; i < n; i++) {
+                set.add(min + span / n * i + span % n * i / n);
+            }
+        }
+        long[] bounds = new long[set.size()];
+        int i = 0;
+        for(Long b : set) {
+            bounds[i++] = b;
+        }
+        return bounds;
+    }
+
+    private void scan(long from, long to, boolean last, final RowConsumer<T> consumer, final AtomicLong rows) {
+        final String sql = String.format("select %s from %s where %s >= ? and %s %s ?",
+                columns, tableName, primaryColumn, primaryColumn, last ? "<=" : "<");
+        final Object[] values = {from, to};
+        jdbc.query(new PreparedStatementCreator() {
+            @Override
+            public PreparedStatement createPreparedStatement(Connection con) throws SQLException {
+                PreparedStatement ps = con.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                if(fetchSize != 0 && fetchSize != -1) {
+                    ps.setFetchSize(fetchSize);
+                }
+                new ArgumentPreparedStatementSetter(values).setValues(ps);
+                return ps;
+            }
+        }, new RowCallbackHandler() {
+            private int rowNum;
+
+            @Override
+            public void processRow(ResultSet rs) throws SQLException {
+                if(Thread.currentThread().isInterrupted()) {
+                    throw new SQLException("Scan cancelled");
+                }
+                consumer.accept(mapper.mapRow(rs, rowNum++));
+                rows.incrementAndGet();
+            }
+        });
+    }
+}
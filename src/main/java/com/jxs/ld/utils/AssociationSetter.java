@@ -0,0 +1,14 @@
+package com.jxs.ld.utils;
+
+/**
+ * 将关联实体设置到实体上，见{@link com.jxs.ld.BaseDao#loadAssociations(java.util.List, String, com.jxs.ld.BaseDao, AssociationSetter)}。
+ * @author jiangxingshang
+ */
+public interface AssociationSetter<T, R> {
+
+    /**
+     * @param bean 实体。
+     * @param related 关联的实体，关联记录不存在时为null。
+     */
+    void set(T bean, R related);
+}
@@ -0,0 +1,74 @@
+package com.jxs.ld.utils;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * java.time类型的字符串转换器，只在java.time可用时由{@link ValueParser}加载。
+ * 没有指定格式时使用ISO格式，LocalDateTime还支持空格分隔的日期时间和只有日期的值（当天的开始）。
+ * Instant使用系统默认时区解析没有时区的格式。
+ *
+ * @author jiangxingshang
+ */
+class JavaTimeParsers extends ValueParser.Provider {
+
+    @Override
+    ValueParser find(Class<?> type, String pattern) {
+        final DateTimeFormatter format = pattern == null ? null : DateTimeFormatter.ofPattern(pattern);
+        final boolean dateOnly = pattern != null && !ValueParser.hasTime(pattern);
+        if(type == LocalDate.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return format == null ? LocalDate.parse(text) : LocalDate.parse(text, format);
+                }
+            };
+        }
+        if(type == LocalDateTime.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return dateTime(text, format, dateOnly);
+                }
+            };
+        }
+        if(type == LocalTime.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return format == null ? LocalTime.parse(text) : LocalTime.parse(text, format);
+                }
+            };
+        }
+        if(type == Instant.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    if(format == null && text.endsWith("Z")) return Instant.parse(text);
+                    return dateTime(text, format, dateOnly).atZone(ZoneId.systemDefault()).toInstant();
+                }
+            };
+        }
+        return null;
+    }
+
+    private static LocalDateTime dateTime(String text, DateTimeFormatter format, boolean dateOnly) {
+        if(format == null) {
+            return text.length() <= 10 ? LocalDate.parse(text).atStartOfDay() : LocalDateTime.parse(text.replace(' ', 'T'));
+        }
+        return dateOnly ? LocalDate.parse(text, format).atStartOfDay() : LocalDateTime.parse(text, format);
+    }
+
+    @Override
+    Object plusDay(Object value) {
+        if(value instanceof LocalDate) return ((LocalDate) value).plusDays(1);
+        if(value instanceof LocalDateTime) return ((LocalDateTime) value).plusDays(1);
+        if(value instanceof Instant) return ((Instant) value).plus(1, ChronoUnit.DAYS);
+        return null;
+    }
+}
@@ -0,0 +1,173 @@
+package com.jxs.ld.utils;
+
+import org.springframework.jdbc.core.DisposableSqlTypeValue;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * 大字段（BLOB/TEXT）的流式处理，实体属性的类型为{@link InputStream}，{@link Reader}或{@link Path}时，
+ * 写入使用setBinaryStream/setCharacterStream绑定，读取时将字段内容以流的方式写到临时文件，
+ * 不会在内存中产生完整的byte[]或String。
+ * {@link Path}类型的属性默认按二进制处理，如果需要按字符处理，设置@Column(columnType = Reader.class)。
+ *
+ * @author jiangxingshang
+ */
+public class LobValue implements DisposableSqlTypeValue {
+
+    private static final String TEMP_PREFIX = "light-dao-lob";
+
+    private final Object value;
+    private final boolean character;
+    private InputStream opened;
+
+    private LobValue(Object value, boolean character) {
+        this.value = value;
+        this.character = character;
+    }
+
+    /**
+     * @param type 实体属性的类型。
+     * @return true表示该类型按大字段流处理。
+     */
+    public static boolean isLobType(Class<?> type) {
+        return type != null && (InputStream.class.isAssignableFrom(type)
+                || Reader.class.isAssignableFrom(type)
+                || Path.class.isAssignableFrom(type));
+    }
+
+    /**
+     * 将流类型的值包装成{@link LobValue}，其他值原样返回。
+     * @param value 属性值。
+     * @param columnType 属性的字段类型，见{@link com.jxs.ld.bean.Column#columnType()}。
+     * @return
+     */
+    public static Object wrap(Object value, Class<?> columnType) {
+        if(value instanceof InputStream) {
+            return new LobValue(value, false);
+        } else if(value instanceof Reader) {
+            return new LobValue(value, true);
+        } else if(value instanceof Path) {
+            return new LobValue(value, columnType != null && Reader.class.isAssignableFrom(columnType));
+        }
+        return value;
+    }
+
+    /**
+     * 读取大字段，内容会写到一个临时文件中，读取失败时临时文件会被删除。
+     * 返回{@link InputStream}或{@link Reader}时临时文件以{@link StandardOpenOption#DELETE_ON_CLOSE}打开，
+     * unix上打开后文件就从目录中删除了，磁盘空间在流关闭后释放，windows上在流关闭或进程退出时删除，调用者需要关闭流。
+     * 返回{@link Path}时临时文件属于调用者，使用完后应该删除或移动它，没有删除的会在JVM退出时删除
+     * （{@link java.io.File#deleteOnExit()}，每个文件会占用少量内存直到JVM退出，大量读取时不要依赖它）。
+     * @param rs
+     * @param column 字段名。
+     * @param fieldType 实体属性的类型。
+     * @param columnType 属性的字段类型。
+     * @return 字段为null时返回null。
+     * @throws SQLException
+     */
+    public static Object read(ResultSet rs, String column, Class<?> fieldType, Class<?> columnType) throws SQLException {
+        return read(rs, rs.findColumn(column), fieldType, columnType);
+    }
+
+    /**
+     * @param index 字段的位置，从1开始。
+     * @see #read(ResultSet, String, Class, Class)
+     */
+    public static Object read(ResultSet rs, int index, Class<?> fieldType, Class<?> columnType) throws SQLException {
+        boolean character = Reader.class.isAssignableFrom(fieldType)
+                || (Path.class.isAssignableFrom(fieldType) && columnType != null && Reader.class.isAssignableFrom(columnType));
+        Path tmp = null;
+        try {
+            if(character) {
+                Reader reader = rs.getCharacterStream(index);
+                if(reader == null) return null;
+                try(Reader in = reader) {
+                    tmp = Files.createTempFile(TEMP_PREFIX, ".txt");
+                    try(Writer out = Files.newBufferedWriter(tmp, StandardCharsets.UTF_8)) {
+                        char[] buf = new char[8192];
+                        int n;
+                        while((n = in.read(buf)) != -1) {
+                            out.write(buf, 0, n);
+                        }
+                    }
+                }
+            } else {
+                InputStream stream = rs.getBinaryStream(index);
+                if(stream == null) return null;
+                try(InputStream in = stream) {
+                    tmp = Files.createTempFile(TEMP_PREFIX, ".bin");
+                    Files.copy(in, tmp, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            if(Path.class.isAssignableFrom(fieldType)) {
+                tmp.toFile().deleteOnExit();
+                return tmp;
+            }
+            InputStream in = Files.newInputStream(tmp, StandardOpenOption.DELETE_ON_CLOSE);
+            return character ? new InputStreamReader(in, StandardCharsets.UTF_8) : in;
+        } catch(IOException e) {
+            delete(tmp);
+            throw new SQLException("Cannot read lob column " + index, e);
+        } catch(RuntimeException | Error e) {
+            delete(tmp);
+            throw e;
+        }
+    }
+
+    private static void delete(Path tmp) {
+        if(tmp == null) return;
+        try {
+            Files.deleteIfExists(tmp);
+        } catch(IOException e) {
+            //删除失败时保留文件，不覆盖原来的异常
+        }
+    }
+
+    @Override
+    public void setTypeValue(PreparedStatement ps, int paramIndex, int sqlType, String typeName) throws SQLException {
+        if(value instanceof Path) {
+            Path path = (Path) value;
+            try {
+                long size = Files.size(path);
+                opened = Files.newInputStream(path);
+                if(character) {
+                    ps.setCharacterStream(paramIndex, new InputStreamReader(opened, StandardCharsets.UTF_8));
+                } else {
+                    ps.setBinaryStream(paramIndex, opened, size);
+                }
+            } catch(IOException e) {
+                throw new SQLException("Cannot open " + path, e);
+            }
+        } else if(character) {
+            ps.setCharacterStream(paramIndex, (Reader) value);
+        } else {
+            ps.setBinaryStream(paramIndex, (InputStream) value);
+        }
+    }
+
+    /**
+     * 关闭由{@link Path}打开的流，调用者传入的{@link InputStream}和{@link Reader}由调用者负责关闭。
+     */
+    @Override
+    public void cleanup() {
+        if(opened != null) {
+            try {
+                opened.close();
+            } catch(IOException e) {
+            }
+            opened = null;
+        }
+    }
+}
@@ -3,7 +3,6 @@ package com.jxs.ld.utils;
 import org.apache.commons.lang3.StringUtils;
 
 import java.lang.reflect.Array;
-import java.text.SimpleDateFormat;
 import java.util.*;
 
 /**
@@ -193,9 +192,8 @@ public class ParamKit {
     }
 
     public Date asDate(String name, String format, Date def) {
-        SimpleDateFormat fmt = new SimpleDateFormat(format);
         try {
-            return fmt.parse(val(name));
+            return (Date) ValueParser.date(format).parse(val(name));
         } catch (Exception e) {
             return def;
         }
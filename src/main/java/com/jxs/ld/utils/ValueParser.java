@@ -0,0 +1,228 @@
+package com.jxs.ld.utils;
+
+import java.math.BigDecimal;
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.Calendar;
+import java.util.Date;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字符串参数到属性类型的转换器，按类型（和日期格式）缓存，线程安全。
+ * 日期格式使用线程绑定的{@link SimpleDateFormat}，不会在每次转换时创建。
+ *
+ * @author jiangxingshang
+ */
+public abstract class ValueParser {
+
+    /**
+     * java.time类型的转换器，实现类引用java.time，只在可用时加载。
+     */
+    abstract static class Provider {
+
+        /**
+         * @param pattern 日期格式，为null时使用ISO格式。
+         * @return 不支持的类型返回null。
+         */
+        abstract ValueParser find(Class<?> type, String pattern);
+
+        /**
+         * @return 不支持的类型返回null。
+         */
+        abstract Object plusDay(Object value);
+    }
+
+    private static final Map<String, ValueParser> CACHE = new ConcurrentHashMap<>();
+    private static final Provider JAVA_TIME = createJavaTime();
+
+    private static Provider createJavaTime() {
+        try {
+            Class.forName("java.time.LocalDateTime", false, ValueParser.class.getClassLoader());
+            return (Provider) Class.forName("com.jxs.ld.utils.JavaTimeParsers").getDeclaredConstructor().newInstance();
+        } catch(Throwable e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param text 非空的字符串。
+     * @return
+     * @throws Exception 格式不正确时抛出。
+     */
+    public abstract Object parse(String text) throws Exception;
+
+    /**
+     * @param type 支持String、数字（及原始类型）、Boolean、BigDecimal、枚举（常量名）和java.time类型（ISO格式），
+     *             {@link Date}请使用{@link #date(String)}。
+     * @return
+     * @throws RuntimeException 类型不支持时抛出。
+     */
+    public static ValueParser of(Class<?> type) {
+        ValueParser p = CACHE.get(type.getName());
+        if(p == null) {
+            p = create(type);
+            CACHE.put(type.getName(), p);
+        }
+        return p;
+    }
+
+    /**
+     * @param pattern 日期格式，如"yyyy-MM-dd"。
+     * @return 返回{@link Date}的转换器。
+     */
+    public static ValueParser date(String pattern) {
+        String key = "date:" + pattern;
+        ValueParser p = CACHE.get(key);
+        if(p == null) {
+            p = new DateParser(pattern);
+            CACHE.put(key, p);
+        }
+        return p;
+    }
+
+    /**
+     * @param type {@link Date}或java.time类型。
+     * @param pattern 日期格式，如"yyyy-MM-dd"，没有时间的格式转换成带时间的类型时为当天的开始。
+     * @return
+     * @throws RuntimeException 类型不支持时抛出。
+     */
+    public static ValueParser date(Class<?> type, String pattern) {
+        if(Date.class.isAssignableFrom(type)) return date(pattern);
+        String key = type.getName() + ":" + pattern;
+        ValueParser p = CACHE.get(key);
+        if(p == null) {
+            p = JAVA_TIME == null ? null : JAVA_TIME.find(type, pattern);
+            if(p == null) throw new RuntimeException(type.getName() + " is not support.");
+            CACHE.put(key, p);
+        }
+        return p;
+    }
+
+    /**
+     * @param type
+     * @return 是否是{@link #date(Class, String)}支持的类型。
+     */
+    public static boolean isDateType(Class<?> type) {
+        return Date.class.isAssignableFrom(type) || (JAVA_TIME != null && type.getName().startsWith("java.time.")
+                && JAVA_TIME.find(type, null) != null);
+    }
+
+    /**
+     * @param pattern 日期格式。
+     * @return 格式中是否有时间（时、分、秒）。
+     */
+    public static boolean hasTime(String pattern) {
+        return pattern.replaceAll("'[^']*'", "").matches(".*[HhKkmsS].*");
+    }
+
+    /**
+     * @param value {@link Date}、LocalDate、LocalDateTime或Instant。
+     * @return 加一天后的值，{@link Date}返回{@link Date}。
+     */
+    public static Object plusDay(Object value) {
+        if(value instanceof Date) {
+            Calendar c = Calendar.getInstance();
+            c.setTime((Date) value);
+            c.add(Calendar.DAY_OF_MONTH, 1);
+            return c.getTime();
+        }
+        Object next = JAVA_TIME == null || value == null ? null : JAVA_TIME.plusDay(value);
+        if(next == null) throw new RuntimeException("Cannot add a day to " + value);
+        return next;
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static ValueParser create(final Class<?> type) {
+        if(type == String.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return text;
+                }
+            };
+        } else if(type == Integer.class || type == int.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return Integer.decode(text);
+                }
+            };
+        } else if(type == Long.class || type == long.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return Long.decode(text);
+                }
+            };
+        } else if(type == Short.class || type == short.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return Short.decode(text);
+                }
+            };
+        } else if(type == Float.class || type == float.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return Float.valueOf(text);
+                }
+            };
+        } else if(type == Double.class || type == double.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return Double.valueOf(text);
+                }
+            };
+        } else if(type == BigDecimal.class) {
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return new BigDecimal(text);
+                }
+            };
+        } else if(type == Boolean.class || type == boolean.class) {
+            //与ParamKit#asBool一致
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return "1".equals(text) || "true".equals(text);
+                }
+            };
+        } else if(Enum.class.isAssignableFrom(type)) {
+            //带有方法体的枚举常量是枚举的匿名子类
+            final Class<? extends Enum> enumType = (Class<? extends Enum>) (type.isEnum() ? type : type.getSuperclass());
+            return new ValueParser() {
+                @Override
+                public Object parse(String text) {
+                    return Enum.valueOf(enumType, text);
+                }
+            };
+        } else if(JAVA_TIME != null && type.getName().startsWith("java.time.")) {
+            ValueParser p = JAVA_TIME.find(type, null);
+            if(p != null) return p;
+        }
+        throw new RuntimeException(type.getName() + " is not support.");
+    }
+
+    private static class DateParser extends ValueParser {
+
+        private final ThreadLocal<SimpleDateFormat> format;
+
+        DateParser(final String pattern) {
+            format = new ThreadLocal<SimpleDateFormat>() {
+                @Override
+                protected SimpleDateFormat initialValue() {
+                    return new SimpleDateFormat(pattern);
+                }
+            };
+        }
+
+        @Override
+        public Object parse(String text) throws ParseException {
+            return format.get().parse(text);
+        }
+    }
+}
@@ -0,0 +1,136 @@
+import com.jxs.ld.ApproximatePage;
+import com.jxs.ld.Page;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * H2的EXPLAIN没有rows，默认的估算总是返回-1，使用覆盖了estimateCount的DAO模拟mysql的估算值。
+ *
+ * @author jiangxingshang
+ */
+public class ApproximatePageTest {
+
+    private static class UserPage implements ApproximatePage<User> {
+        private final int threshold;
+        private boolean approximate;
+        private int total;
+        private List<User> data;
+
+        UserPage(int threshold) {
+            this.threshold = threshold;
+        }
+
+        @Override
+        public int getExactCountThreshold() {
+            return threshold;
+        }
+
+        @Override
+        public void setApproximate(boolean approximate) {
+            this.approximate = approximate;
+        }
+
+        @Override
+        public boolean isApproximate() {
+            return approximate;
+        }
+
+        @Override
+        public int getStart() {
+            return 0;
+        }
+
+        @Override
+        public int getLimit() {
+            return 2;
+        }
+
+        @Override
+        public Map<String, String> getParams() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public void setTotal(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public int getTotal() {
+            return total;
+        }
+
+        @Override
+        public void setData(List<User> data) {
+            this.data = data;
+        }
+
+        @Override
+        public List<User> getData() {
+            return data;
+        }
+    }
+
+    private static class EstimatingUserDao extends UserDao {
+        long estimate;
+
+        @Override
+        protected long estimateCount(JdbcOperations reader, String sql, Object...values) {
+            return estimate;
+        }
+    }
+
+    private DriverManagerDataSource ds;
+
+    @Before
+    public void setUp() {
+        ds = new DriverManagerDataSource("jdbc:h2:mem:approximate;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        for(int i = 1; i <= 5; i++) {
+            jdbc.update("insert into t_user(id, name, age) values(?, 'u', ?)", String.valueOf(i), i);
+        }
+    }
+
+    @Test
+    public void fallsBackToExactCount() {
+        UserDao dao = new UserDao();
+        dao.setDataSource(ds);
+        UserPage page = new UserPage(0);
+        dao.query(page, dao.getRowMapper(), dao.sql("select @columns from @tableName where @age > ?"), 1);
+        assertFalse(page.isApproximate());
+        assertEquals(4, page.getTotal());
+        assertEquals(2, page.getData().size());
+    }
+
+    @Test
+    public void usesEstimateAboveThreshold() {
+        EstimatingUserDao dao = new EstimatingUserDao();
+        dao.setDataSource(ds);
+        dao.estimate = 1200000;
+        UserPage page = new UserPage(100000);
+        dao.query(page, dao.getRowMapper(), dao.sql("select @columns from @tableName"));
+        assertTrue(page.isApproximate());
+        assertEquals(1200000, page.getTotal());
+        assertEquals(2, page.getData().size());
+
+        dao.estimate = 50;
+        page = new UserPage(100000);
+        dao.query(page, new MapSqlParameterSource("age", 3), dao.getRowMapper(), dao.sql("select @columns from @tableName where @age >= :age"));
+        assertFalse(page.isApproximate());
+        assertEquals(3, page.getTotal());
+    }
+}
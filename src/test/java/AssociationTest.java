@@ -0,0 +1,132 @@
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.IgnoreColumn;
+import com.jxs.ld.bean.TableName;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+/**
+ * @author jiangxingshang
+ */
+public class AssociationTest {
+
+    @TableName("t_book")
+    public static class Book {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private Integer id;
+        private String userId;
+        @IgnoreColumn
+        private User user;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public void setUser(User user) {
+            this.user = user;
+        }
+    }
+
+    public static class BookDao extends BaseDao<Book> {
+        public BookDao() {
+            super(Book.class);
+        }
+    }
+
+    private final AtomicInteger statements = new AtomicInteger();
+    private BookDao bookDao;
+    private UserDao userDao;
+
+    /**
+     * 记录执行的语句数。
+     */
+    private class CountingDataSource extends DriverManagerDataSource {
+
+        CountingDataSource(String url) {
+            super(url);
+        }
+
+        @Override
+        protected Connection getConnectionFromDriverManager(String url, Properties props) throws SQLException {
+            final Connection con = super.getConnectionFromDriverManager(url, props);
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if(method.getName().equals("prepareStatement")) statements.incrementAndGet();
+                    try {
+                        return method.invoke(con, args);
+                    } catch(InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            });
+        }
+    }
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new CountingDataSource("jdbc:h2:mem:association;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        jdbc.execute("drop table if exists t_book");
+        jdbc.execute("create table t_book(id int primary key, user_id varchar(8))");
+        jdbc.update("insert into t_user(id, name) values('1', 'a')");
+        jdbc.update("insert into t_user(id, name) values('2', 'b')");
+        jdbc.update("insert into t_book values(1, '1')");
+        jdbc.update("insert into t_book values(2, '2')");
+        jdbc.update("insert into t_book values(3, '1')");
+        jdbc.update("insert into t_book values(4, null)");
+        jdbc.update("insert into t_book values(5, '9')");
+        bookDao = new BookDao();
+        bookDao.setDataSource(ds);
+        userDao = new UserDao();
+        userDao.setDataSource(ds);
+    }
+
+    @Test
+    public void loadsAssociationsInOneQuery() {
+        List<Book> books = bookDao.query(bookDao.sql("select @columns from @tableName").order("@id").toSql(), bookDao.getRowMapper());
+        statements.set(0);
+        bookDao.loadAssociations(books, "userId", userDao, "user");
+        assertEquals(1, statements.get());
+        assertEquals("a", books.get(0).getUser().getName());
+        assertEquals("b", books.get(1).getUser().getName());
+        assertSame(books.get(0).getUser(), books.get(2).getUser());
+        assertNull(books.get(3).getUser());
+        assertNull(books.get(4).getUser());
+    }
+}
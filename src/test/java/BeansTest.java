@@ -0,0 +1,67 @@
+import com.jxs.ld.bean.Beans;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.TableName;
+import com.jxs.ld.bean.TypeConverter;
+import org.junit.Test;
+
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+/**
+ * @author jiangxingshang
+ */
+public class BeansTest {
+
+    public enum State {
+        OPEN, CLOSED
+    }
+
+    @TableName("t_task")
+    public static class Task {
+        @Column(primaryKey = true)
+        private Integer id;
+        private State state;
+        @Column(columnType = Integer.class)
+        private State stateOrdinal;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public void setState(State state) {
+            this.state = state;
+        }
+
+        public State getStateOrdinal() {
+            return stateOrdinal;
+        }
+
+        public void setStateOrdinal(State stateOrdinal) {
+            this.stateOrdinal = stateOrdinal;
+        }
+    }
+
+    @Test
+    public void valueMapUsesConverters() {
+        Task task = new Task();
+        task.setId(1);
+        task.setState(State.CLOSED);
+        task.setStateOrdinal(State.CLOSED);
+        Map<String, TypeConverter> converters = Beans.columnConverters(Task.class);
+        Map<String, Object> values = Beans.getValueMap(task, false, converters);
+        assertFalse(values.containsKey("id"));
+        assertEquals("CLOSED", values.get("state"));
+        assertEquals(1, values.get("state_ordinal"));
+        assertEquals(values, Beans.getValueMap(task, false));
+    }
+}
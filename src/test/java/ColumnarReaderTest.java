@@ -0,0 +1,82 @@
+import com.jxs.ld.stream.ColumnarReader;
+import com.jxs.ld.stream.IntVector;
+import com.jxs.ld.stream.StringVector;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 记录数超过一个数据块（4096行），每7行有一个null的age。
+ *
+ * @author jiangxingshang
+ */
+public class ColumnarReaderTest {
+
+    private static final int ROWS = 5000;
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:columnar;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        List<Object[]> rows = new ArrayList<>(ROWS);
+        for(int i = 0; i < ROWS; i++) {
+            rows.add(new Object[]{String.format("%05d", i), "n" + i % 3, i % 7 == 0 ? null : i});
+        }
+        jdbc.batchUpdate("insert into t_user(id, name, age) values(?, ?, ?)", rows);
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void readsColumnsIntoArrays() {
+        ColumnarReader.Result r = dao.queryColumns(new String[]{"age", "name"}, dao.select("age", "name").order("@id"));
+        assertEquals(ROWS, r.getRowCount());
+
+        IntVector ages = r.getIntVector("age");
+        assertEquals(ROWS, ages.size());
+        assertEquals(ROWS, ages.getValues().length);
+        assertTrue(ages.hasNulls());
+        for(int i = 0; i < ROWS; i++) {
+            assertEquals(i % 7 == 0, ages.isNull(i));
+            if(i % 7 != 0) assertEquals(i, ages.get(i));
+        }
+
+        StringVector names = r.getStringVector("name");
+        assertFalse(names.hasNulls());
+        assertEquals(3, names.getDictionary().size());
+        assertEquals("n2", names.get(4097));
+        assertEquals("n2", names.getDictionary().get(names.getCodes()[4097]));
+    }
+
+    @Test
+    public void readsNullStrings() {
+        ColumnarReader.Result r = dao.queryColumns(new String[]{"password"}, dao.select("password").where("@id < ?", true, "00002"), "00002");
+        assertEquals(2, r.getRowCount());
+        assertNull(r.getStringVector("password").get(0));
+        assertTrue(r.getStringVector("password").isNull(1));
+    }
+
+    @Test
+    public void rejectsWrongVectorType() {
+        ColumnarReader.Result r = dao.queryColumns(new String[]{"age"}, dao.select("age"));
+        try {
+            r.getLongVector("age");
+            fail();
+        } catch(RuntimeException e) {
+            assertEquals("Column [age] is a IntVector, not a LongVector", e.getMessage());
+        }
+    }
+}
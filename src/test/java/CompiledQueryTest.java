@@ -0,0 +1,60 @@
+import com.jxs.ld.sql.CompiledQuery;
+import com.jxs.ld.sql.SQLBuildException;
+import com.jxs.ld.sql.SqlBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiangxingshang
+ */
+public class CompiledQueryTest {
+
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:compiled;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        for(int i = 1; i <= 5; i++) {
+            jdbc.update("insert into t_user(id, name, age) values(?, ?, ?)", String.valueOf(i), i < 3 ? "a" : "b", i);
+        }
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void bindsNamedAndPositionalValues() {
+        CompiledQuery query = new SqlBuilder().addVar("tableName", "t").sql("select * from @tableName where a = :a and b in (?) and c = '?'").compile();
+        Map<String, Object> params = new HashMap<>();
+        params.put("a", 1);
+        CompiledQuery.Statement st = query.statement(params, Arrays.asList(2, 3, 4));
+        assertEquals("select * from t where a = ? and b in (?, ?, ?, ?) and c = '?'", st.getSql());
+        assertArrayEquals(new Object[]{1, 2, 3, 4, 4}, st.getArgs());
+        try {
+            query.statement(Collections.<String, Object>emptyMap(), 2);
+            fail();
+        } catch(SQLBuildException e) {
+            //缺少命名参数
+        }
+    }
+
+    @Test
+    public void queriesWithCompiledSql() {
+        CompiledQuery byName = dao.sql("select @columns from @tableName where @name = :name").compile();
+        assertEquals(2, dao.query(byName, dao.getRowMapper(), Collections.singletonMap("name", "a")).size());
+        assertEquals(3, dao.query(byName, dao.getRowMapper(), Collections.singletonMap("name", "b")).size());
+    }
+}
@@ -0,0 +1,62 @@
+import com.jxs.ld.stream.CsvImporter;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author jiangxingshang
+ */
+public class CsvImporterTest {
+
+    private JdbcTemplate jdbc;
+    private UserDao dao;
+    private Path file;
+
+    @Before
+    public void setUp() throws IOException {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:csv;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        dao = new UserDao();
+        dao.setDataSource(ds);
+        file = Files.createTempFile("users", ".csv");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Test
+    public void skipsOnlyFailedRowsOfBatch() throws IOException {
+        Files.write(file, "﻿id,name\n1,a\n2,b\n1,c\n3,d\n".getBytes(StandardCharsets.UTF_8));
+        CsvImporter.Result result = dao.csvImporter().parallelism(1).errorPolicy(CsvImporter.ErrorPolicy.SKIP).run(file);
+        assertEquals(3, result.getRows());
+        assertEquals(1, result.getFailed());
+        assertEquals(3, (int) jdbc.queryForObject("select count(0) from t_user", Integer.class));
+        assertEquals("a", jdbc.queryForObject("select name from t_user where id = '1'", String.class));
+    }
+
+    @Test
+    public void importsChunksInParallel() throws IOException {
+        StringBuilder sb = new StringBuilder("id,password,name\n");
+        for(int i = 0; i < 2000; i++) {
+            sb.append(i).append(",p").append(i).append(",\"n,").append(i).append("\"\n");
+        }
+        Files.write(file, sb.toString().getBytes(StandardCharsets.UTF_8));
+        CsvImporter.Result result = dao.csvImporter().parallelism(4).chunkSize(1024).batchSize(100).run(file);
+        assertEquals(2000, result.getRows());
+        assertEquals(2000, (int) jdbc.queryForObject("select count(0) from t_user", Integer.class));
+        assertEquals("n,1999", jdbc.queryForObject("select name from t_user where id = '1999'", String.class));
+    }
+}
@@ -0,0 +1,126 @@
+import com.jxs.ld.bean.BeanInfo;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.TableName;
+import com.jxs.ld.sql.Filter;
+import com.jxs.ld.sql.FilterSpec;
+import com.jxs.ld.sql.SqlBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.time.LocalDateTime;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * 事件1到3分别在1月1日0点、1月2日15点和1月3日0点。
+ *
+ * @author jiangxingshang
+ */
+public class FilterTest {
+
+    public enum State {
+        OPEN, CLOSED
+    }
+
+    @TableName("t_event")
+    public static class Event {
+        @Column(primaryKey = true)
+        private Integer id;
+        private State state;
+        private LocalDateTime created;
+        private Date updated;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public State getState() {
+            return state;
+        }
+
+        public void setState(State state) {
+            this.state = state;
+        }
+
+        public LocalDateTime getCreated() {
+            return created;
+        }
+
+        public void setCreated(LocalDateTime created) {
+            this.created = created;
+        }
+
+        public Date getUpdated() {
+            return updated;
+        }
+
+        public void setUpdated(Date updated) {
+            this.updated = updated;
+        }
+    }
+
+    private JdbcTemplate jdbc;
+    private final Filter filter = new FilterSpec(new BeanInfo(Event.class))
+            .eq("state")
+            .range("created", "createdFrom", "createdTo")
+            .range("updated", "updatedFrom", "updatedTo")
+            .compile();
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:filter;DB_CLOSE_DELAY=-1;MODE=MySQL"));
+        jdbc.execute("drop table if exists t_event");
+        jdbc.execute("create table t_event(id int primary key, state varchar(16), created timestamp, updated timestamp)");
+        jdbc.update("insert into t_event values(1, 'OPEN', '2024-01-01 00:00:00', '2024-01-01 00:00:00')");
+        jdbc.update("insert into t_event values(2, 'CLOSED', '2024-01-02 15:00:00', '2024-01-02 15:00:00')");
+        jdbc.update("insert into t_event values(3, 'OPEN', '2024-01-03 00:00:00', '2024-01-03 00:00:00')");
+    }
+
+    private int count(Map<String, String> params) {
+        SqlBuilder sql = filter.apply(new SqlBuilder().sql("select count(0) from t_event"), params);
+        return jdbc.queryForObject(sql.toSql(), Integer.class, sql.getValueArray());
+    }
+
+    @Test
+    public void parsesEnum() {
+        Map<String, String> params = new HashMap<>();
+        params.put("state", "OPEN");
+        assertEquals(2, count(params));
+        params.put("state", "UNKNOWN");
+        assertEquals(3, count(params));
+    }
+
+    @Test
+    public void rangeIncludesWholeEndDay() {
+        Map<String, String> params = new HashMap<>();
+        params.put("createdFrom", "2024-01-01");
+        params.put("createdTo", "2024-01-02");
+        assertEquals(2, count(params));
+        params.clear();
+        params.put("updatedFrom", "2024-01-02");
+        params.put("updatedTo", "2024-01-02");
+        assertEquals(1, count(params));
+    }
+
+    @Test
+    public void rangeWithTimeIsInclusive() {
+        Filter withTime = new FilterSpec(new BeanInfo(Event.class))
+                .datePattern("yyyy-MM-dd HH:mm:ss")
+                .range("created", "from", "to")
+                .compile();
+        Map<String, String> params = new HashMap<>();
+        params.put("to", "2024-01-02 15:00:00");
+        SqlBuilder sql = withTime.apply(new SqlBuilder().sql("select count(0) from t_event"), params);
+        assertEquals("select count(0) from t_event where created <= ?", sql.toSql());
+        assertEquals(2, (int) jdbc.queryForObject(sql.toSql(), Integer.class, sql.getValueArray()));
+    }
+}
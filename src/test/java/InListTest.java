@@ -0,0 +1,71 @@
+import com.jxs.ld.sql.CompiledQuery;
+import com.jxs.ld.sql.SQLBuildException;
+import com.jxs.ld.sql.SqlBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiangxingshang
+ */
+public class InListTest {
+
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:inList;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        for(int i = 1; i <= 5; i++) {
+            jdbc.update("insert into t_user(id, name, age) values(?, 'u', ?)", String.valueOf(i), i);
+        }
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void expandsToBucketSize() {
+        SqlBuilder sql = new SqlBuilder().sql("select * from t").where("id in (?)", true, Arrays.asList(1, 2, 3)).and("a = ?", true, 0);
+        assertEquals("select * from t where id in (?, ?, ?, ?) and a = ?", sql.toSql());
+        assertArrayEquals(new Object[]{1, 2, 3, 3, 0}, sql.getValueArray());
+    }
+
+    @Test
+    public void typedArrayIsOneValue() {
+        SqlBuilder sql = dao.sql("select @columns from @tableName").where("@age in (?)", true, new Integer[]{2, 4});
+        assertEquals(2, sql.getValueArray().length);
+        List<User> users = dao.query(sql.toSql(), dao.getRowMapper(), sql.getValueArray());
+        assertEquals(2, users.size());
+
+        SqlBuilder primitive = new SqlBuilder().sql("select * from t").where("id in (?)", true, new int[]{1, 2, 3});
+        assertEquals("select * from t where id in (?, ?, ?, ?)", primitive.toSql());
+    }
+
+    @Test
+    public void rejectsSpreadObjectArray() {
+        try {
+            new SqlBuilder().sql("select * from t").where("id in (?)", true, new Object[]{1, 2});
+            fail();
+        } catch(SQLBuildException e) {
+            //需要使用集合或(Object)
+        }
+        SqlBuilder sql = new SqlBuilder().sql("select * from t").where("id in (?)", true, (Object) new Object[]{1, 2});
+        assertEquals("select * from t where id in (?, ?)", sql.toSql());
+    }
+
+    @Test
+    public void compiledQueryExpandsTypedArray() {
+        CompiledQuery query = dao.sql("select @columns from @tableName where @age in (?)").compile();
+        assertEquals(3, dao.query(query, dao.getRowMapper(), null, new Integer[]{1, 2, 5}).size());
+    }
+}
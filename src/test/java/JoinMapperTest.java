@@ -0,0 +1,184 @@
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.JoinMapper;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.IgnoreColumn;
+import com.jxs.ld.bean.TableName;
+import com.jxs.ld.sql.SqlBuilder;
+import com.jxs.ld.utils.AssociationSetter;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 书1属于用户1，有两条评论；书2属于用户1，没有评论；书3没有用户。
+ *
+ * @author jiangxingshang
+ */
+public class JoinMapperTest {
+
+    @TableName("t_book")
+    public static class Book {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private Integer id;
+        private String userId;
+        private String title;
+        @IgnoreColumn
+        private User user;
+        @IgnoreColumn
+        private List<Comment> comments;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public User getUser() {
+            return user;
+        }
+
+        public void setUser(User user) {
+            this.user = user;
+        }
+
+        public List<Comment> getComments() {
+            return comments;
+        }
+
+        public void setComments(List<Comment> comments) {
+            this.comments = comments;
+        }
+    }
+
+    @TableName("t_comment")
+    public static class Comment {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private Integer id;
+        private Integer bookId;
+        private String text;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public Integer getBookId() {
+            return bookId;
+        }
+
+        public void setBookId(Integer bookId) {
+            this.bookId = bookId;
+        }
+
+        public String getText() {
+            return text;
+        }
+
+        public void setText(String text) {
+            this.text = text;
+        }
+    }
+
+    public static class BookDao extends BaseDao<Book> {
+        public BookDao() {
+            super(Book.class);
+        }
+    }
+
+    public static class CommentDao extends BaseDao<Comment> {
+        public CommentDao() {
+            super(Comment.class);
+        }
+    }
+
+    private BookDao bookDao;
+    private UserDao userDao;
+    private CommentDao commentDao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:join;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        jdbc.execute("drop table if exists t_book");
+        jdbc.execute("create table t_book(id int primary key, user_id varchar(8), title varchar(32))");
+        jdbc.execute("drop table if exists t_comment");
+        jdbc.execute("create table t_comment(id int primary key, book_id int, text varchar(32))");
+        jdbc.update("insert into t_user(id, name) values('1', 'a')");
+        jdbc.update("insert into t_book values(1, '1', 'x'), (2, '1', 'y'), (3, null, 'z')");
+        jdbc.update("insert into t_comment values(1, 1, 'c1'), (2, 1, 'c2')");
+        bookDao = new BookDao();
+        bookDao.setDataSource(ds);
+        userDao = new UserDao();
+        userDao.setDataSource(ds);
+        commentDao = new CommentDao();
+        commentDao.setDataSource(ds);
+    }
+
+    @Test
+    public void mapsJoinedEntities() {
+        JoinMapper<Book> mapper = new JoinMapper<>(bookDao, "b")
+                .one(userDao, "u", new AssociationSetter<Book, User>() {
+                    @Override
+                    public void set(Book book, User user) {
+                        book.setUser(user);
+                    }
+                })
+                .many(commentDao, "c", new AssociationSetter<Book, List<Comment>>() {
+                    @Override
+                    public void set(Book book, List<Comment> comments) {
+                        book.setComments(comments);
+                    }
+                });
+        SqlBuilder sql = bookDao.sql("select " + mapper.getSelectColumns()
+                + " from @tableName b left join $u on u.id = b.@userId left join $c on c.book_id = b.id")
+                .addBeanInfo("u", userDao.getBeanInfo()).addBeanInfo("c", commentDao.getBeanInfo())
+                .order("b.id", "c.id");
+        List<Book> books = bookDao.query(mapper, sql);
+        assertEquals(3, books.size());
+
+        Book first = books.get(0);
+        assertEquals("x", first.getTitle());
+        assertEquals("a", first.getUser().getName());
+        assertEquals(2, first.getComments().size());
+        assertEquals("c2", first.getComments().get(1).getText());
+
+        Book second = books.get(1);
+        assertSame(first.getUser(), second.getUser());
+        assertTrue(second.getComments().isEmpty());
+
+        assertNull(books.get(2).getUser());
+        assertTrue(books.get(2).getComments().isEmpty());
+    }
+}
@@ -0,0 +1,104 @@
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.LazyColumn;
+import com.jxs.ld.bean.TableName;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author jiangxingshang
+ */
+public class LazyColumnTest {
+
+    @TableName("t_article")
+    public static class Article {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private Integer id;
+        private String title;
+        @LazyColumn
+        private String content;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+
+        public String getContent() {
+            return content;
+        }
+
+        public void setContent(String content) {
+            this.content = content;
+        }
+    }
+
+    public static class ArticleDao extends BaseDao<Article> {
+        public ArticleDao() {
+            super(Article.class);
+        }
+    }
+
+    private JdbcTemplate jdbc;
+    private ArticleDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:lazy;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_article");
+        jdbc.execute("create table t_article(id int primary key, title varchar(32), content clob)");
+        jdbc.update("insert into t_article values(1, 'a', 'content a')");
+        jdbc.update("insert into t_article values(2, 'b', 'content b')");
+        dao = new ArticleDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void loadsLazyColumnsOnDemand() {
+        assertEquals("select id, title from t_article", dao.sql("select @columns from @tableName").toSql());
+        Article a = dao.getById(1);
+        assertEquals("a", a.getTitle());
+        assertNull(a.getContent());
+        assertEquals("content a", dao.loadLazy(a).getContent());
+
+        List<Article> list = dao.loadLazy(dao.queryAll());
+        assertEquals("content a", list.get(0).getContent());
+        assertEquals("content b", list.get(1).getContent());
+    }
+
+    @Test
+    public void updatesKeepUnloadedLazyColumns() {
+        Article a = dao.getById(1);
+        a.setTitle("a2");
+        dao.updateIncludeNullData(a);
+        Article b = dao.getById(2);
+        b.setTitle("b2");
+        dao.batchUpdate(Arrays.asList(b));
+        assertEquals("content a", jdbc.queryForObject("select content from t_article where id = 1", String.class));
+        assertEquals("content b", jdbc.queryForObject("select content from t_article where id = 2", String.class));
+        assertEquals("b2", jdbc.queryForObject("select title from t_article where id = 2", String.class));
+
+        dao.updateProperties(a, "content");
+        assertNull(jdbc.queryForObject("select content from t_article where id = 1", String.class));
+    }
+}
@@ -0,0 +1,102 @@
+import com.jxs.ld.utils.LobValue;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiangxingshang
+ */
+public class LobValueTest {
+
+    private JdbcTemplate jdbc;
+
+    @Before
+    public void setUp() {
+        jdbc = new JdbcTemplate(new DriverManagerDataSource("jdbc:h2:mem:lob;DB_CLOSE_DELAY=-1;MODE=MySQL"));
+        jdbc.execute("drop table if exists t_lob");
+        jdbc.execute("create table t_lob(id int primary key, data blob)");
+        jdbc.update("insert into t_lob(id, data) values(1, ?)", LobValue.wrap(new ByteArrayInputStream("hello".getBytes(StandardCharsets.UTF_8)), null));
+    }
+
+    private Object read(final Class<?> fieldType) {
+        return jdbc.query("select data from t_lob where id = 1", new ResultSetExtractor<Object>() {
+            @Override
+            public Object extractData(ResultSet rs) throws SQLException {
+                rs.next();
+                return LobValue.read(rs, "data", fieldType, null);
+            }
+        });
+    }
+
+    @Test
+    public void readsToPathOwnedByCaller() throws IOException {
+        Path path = (Path) read(Path.class);
+        try {
+            assertArrayEquals("hello".getBytes(StandardCharsets.UTF_8), Files.readAllBytes(path));
+        } finally {
+            Files.delete(path);
+        }
+    }
+
+    @Test
+    public void readsToStream() throws IOException {
+        try(InputStream in = (InputStream) read(InputStream.class)) {
+            byte[] buf = new byte[16];
+            assertEquals(5, in.read(buf));
+        }
+    }
+
+    @Test
+    public void deletesTempFileWhenReadFails() throws IOException {
+        ResultSet rs = (ResultSet) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{ResultSet.class}, new InvocationHandler() {
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) {
+                if(!method.getName().equals("getBinaryStream")) throw new UnsupportedOperationException(method.getName());
+                return new InputStream() {
+                    @Override
+                    public int read() throws IOException {
+                        throw new IOException("broken");
+                    }
+                };
+            }
+        });
+        int before = tempFiles();
+        try {
+            LobValue.read(rs, 1, Path.class, null);
+            fail();
+        } catch(SQLException e) {
+            assertEquals("broken", e.getCause().getMessage());
+        }
+        assertEquals(before, tempFiles());
+    }
+
+    private static int tempFiles() throws IOException {
+        int n = 0;
+        try(DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(System.getProperty("java.io.tmpdir")), "light-dao-lob*")) {
+            for(Path ignored : files) {
+                n++;
+            }
+        }
+        return n;
+    }
+}
@@ -0,0 +1,84 @@
+import com.jxs.ld.sql.SqlBuilder;
+import com.jxs.ld.stream.PageIterator;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * 主键是"01"到"25"，name是主键的奇偶。
+ *
+ * @author jiangxingshang
+ */
+public class PageIteratorTest {
+
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:pages;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        for(int i = 1; i <= 25; i++) {
+            jdbc.update("insert into t_user(id, name, age) values(?, ?, ?)", String.format("%02d", i), i % 2 == 0 ? "even" : "odd", i);
+        }
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    private static List<String> ids(PageIterator<User> pages, int pageSize) {
+        List<String> ids = new ArrayList<>();
+        try {
+            while(pages.hasNext()) {
+                List<User> page = pages.next();
+                assertTrue(page.size() <= pageSize);
+                for(User u : page) {
+                    ids.add(u.getId());
+                }
+            }
+        } finally {
+            pages.close();
+        }
+        return ids;
+    }
+
+    @Test
+    public void pagesByOffset() {
+        List<String> ids = ids(dao.pages(dao.sql("select @columns from @tableName").order("@id"), 10), 10);
+        assertEquals(25, ids.size());
+        assertEquals("25", ids.get(24));
+    }
+
+    @Test
+    public void pagesByPrimaryKeyWithOr() {
+        SqlBuilder sql = dao.sql("select @columns from @tableName").where("@age < ?", true, 5).or("@name = ?", true, "even");
+        List<String> ids = ids(dao.pagesByPrimaryKey(sql, 3, sql.getValueArray()), 3);
+        //1到4，加上其余的偶数
+        assertEquals(14, ids.size());
+        assertEquals("24", ids.get(13));
+    }
+
+    @Test
+    public void pagesByPrimaryKeyWithRawWhere() {
+        SqlBuilder sql = dao.sql("select @columns from @tableName where @name = 'odd'");
+        List<String> ids = ids(dao.pagesByPrimaryKey(sql, 4), 4);
+        assertEquals(13, ids.size());
+        assertEquals("25", ids.get(12));
+    }
+
+    @Test
+    public void toSqlAndWrapsConditions() {
+        SqlBuilder sql = new SqlBuilder().sql("select * from (select * from t where a = 1) x").where("b = 1").or("c = 1");
+        assertEquals("select * from (select * from t where a = 1) x where (b = 1 or c = 1) and id > ?", sql.toSqlAnd("id > ?"));
+        assertEquals("select * from t where id > ? group by a", new SqlBuilder().sql("select * from t group by a").toSqlAnd("id > ?"));
+        SqlBuilder raw = new SqlBuilder().sql("select * from t where a = 1").and("b = 1");
+        assertEquals("select * from t where a = 1 and b = 1", raw.toSql());
+    }
+}
@@ -0,0 +1,168 @@
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.TableName;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * @author jiangxingshang
+ */
+public class PrimitiveMappingTest {
+
+    @TableName("t_metric")
+    public static class Metric {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private long id;
+        private int count;
+        private double score;
+        private boolean active;
+        private Integer total;
+        private Double ratio;
+
+        public long getId() {
+            return id;
+        }
+
+        public void setId(long id) {
+            this.id = id;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        public void setCount(int count) {
+            this.count = count;
+        }
+
+        public double getScore() {
+            return score;
+        }
+
+        public void setScore(double score) {
+            this.score = score;
+        }
+
+        public boolean isActive() {
+            return active;
+        }
+
+        public void setActive(boolean active) {
+            this.active = active;
+        }
+
+        public Integer getTotal() {
+            return total;
+        }
+
+        public void setTotal(Integer total) {
+            this.total = total;
+        }
+
+        public Double getRatio() {
+            return ratio;
+        }
+
+        public void setRatio(Double ratio) {
+            this.ratio = ratio;
+        }
+    }
+
+    public static class MetricDao extends BaseDao<Metric> {
+        public MetricDao() {
+            super(Metric.class);
+        }
+    }
+
+    private JdbcTemplate jdbc;
+    private MetricDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:primitive;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_metric");
+        jdbc.execute("create table t_metric(id bigint primary key, count int, score double, active boolean, total int, ratio double)");
+        jdbc.update("insert into t_metric values(1, 3, 1.5, true, 7, 0.25)");
+        jdbc.update("insert into t_metric values(2, null, null, null, null, null)");
+        dao = new MetricDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void readsPrimitivesAndNulls() {
+        Metric m = dao.getById(1L);
+        assertEquals(1L, m.getId());
+        assertEquals(3, m.getCount());
+        assertEquals(1.5, m.getScore(), 0);
+        assertTrue(m.isActive());
+        assertEquals(Integer.valueOf(7), m.getTotal());
+        assertEquals(Double.valueOf(0.25), m.getRatio());
+
+        Metric empty = dao.getById(2L);
+        assertEquals(0, empty.getCount());
+        assertFalse(empty.isActive());
+        assertNull(empty.getTotal());
+        assertNull(empty.getRatio());
+    }
+
+    @Test
+    public void bindsPrimitivesOnUpdate() {
+        Metric m = dao.getById(1L);
+        m.setCount(4);
+        m.setActive(false);
+        m.setTotal(null);
+        dao.updateIncludeNullData(m);
+        Map<String, Object> row = jdbc.queryForMap("select count, active, total from t_metric where id = 1");
+        assertEquals(4, row.get("COUNT"));
+        assertEquals(false, row.get("ACTIVE"));
+        assertNull(row.get("TOTAL"));
+    }
+
+    @Test
+    public void mapsConcurrently() throws Exception {
+        for(int i = 3; i <= 200; i++) {
+            jdbc.update("insert into t_metric values(?, ?, ?, true, ?, null)", i, i, i / 2.0, i);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Integer>> futures = new ArrayList<>();
+            for(int t = 0; t < 8; t++) {
+                final boolean narrow = t % 2 == 0;
+                futures.add(executor.submit(new Callable<Integer>() {
+                    @Override
+                    public Integer call() {
+                        //不同线程使用不同字段顺序的结果集
+                        String sql = narrow ? "select total, id, count from t_metric where id > 2" : dao.select().where("@id > ?", true, 2).toSql();
+                        int bad = 0;
+                        for(Metric m : dao.query(sql, dao.getRowMapper(), narrow ? new Object[0] : new Object[]{2})) {
+                            if(m.getCount() != m.getId() || m.getTotal() != m.getId()) bad++;
+                        }
+                        return bad;
+                    }
+                }));
+            }
+            for(Future<Integer> f : futures) {
+                assertEquals(0, (int) f.get());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+import com.jxs.ld.sql.SqlBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * @author jiangxingshang
+ */
+public class ProjectionTest {
+
+    public static class UserName {
+        private String id;
+        private String name;
+        private Long age;
+
+        public String getId() {
+            return id;
+        }
+
+        public void setId(String id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Long getAge() {
+            return age;
+        }
+
+        public void setAge(Long age) {
+            this.age = age;
+        }
+    }
+
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:projection;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        jdbc.update("insert into t_user values('1', 'u1', 'p1', 'a', 10)");
+        jdbc.update("insert into t_user values('2', 'u2', 'p2', 'b', null)");
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void selectsExplicitColumns() {
+        assertEquals("select id, username, password, name, age from t_user", dao.sql("select @columns from @tableName").toSql());
+        assertEquals("select id, name from t_user", dao.select("id", "name").toSql());
+        List<User> users = dao.query(dao.select("id", "name").order("@id").toSql(), dao.getRowMapper());
+        assertEquals("a", users.get(0).getName());
+        assertNull(users.get(0).getPassword());
+    }
+
+    @Test
+    public void mapsToDto() {
+        SqlBuilder sql = dao.select(UserName.class).where("@id = ?", true, "1");
+        assertEquals("select id, name, age from t_user where id = ?", sql.toSql());
+        List<UserName> list = dao.query(UserName.class, sql, sql.getValueArray());
+        assertEquals(1, list.size());
+        assertEquals("a", list.get(0).getName());
+        assertEquals(Long.valueOf(10), list.get(0).getAge());
+
+        UserName empty = dao.query(UserName.class, dao.select(UserName.class).where("@id = ?", true, "2"), "2").get(0);
+        assertNull(empty.getAge());
+    }
+}
@@ -0,0 +1,75 @@
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+
+/**
+ * 主库和两个从库使用不同的H2内存库，同一条记录在每个库中的name不同，用name判断读操作使用了哪个库。
+ *
+ * @author jiangxingshang
+ */
+public class ReadDataSourcesTest {
+
+    private DataSource primary;
+    private UserDao dao;
+
+    private static DataSource database(String name) {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:" + name + ";DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        jdbc.update("insert into t_user(id, username, name) values('1', 'u', ?)", name);
+        return ds;
+    }
+
+    @Before
+    public void setUp() {
+        primary = database("primary");
+        dao = new UserDao();
+        dao.setDataSources(primary, database("replica1"), database("replica2"));
+    }
+
+    @Test
+    public void readsRoundRobinAcrossReplicas() {
+        Set<String> names = new HashSet<>();
+        String previous = null;
+        for(int i = 0; i < 4; i++) {
+            String name = dao.getById("1").getName();
+            if(previous != null) assertNotEquals(previous, name);
+            previous = name;
+            names.add(name);
+        }
+        assertEquals(2, names.size());
+        assertFalse(names.contains("primary"));
+    }
+
+    @Test
+    public void readsUsePrimaryInTransaction() {
+        String name = new TransactionTemplate(new DataSourceTransactionManager(primary)).execute(new TransactionCallback<String>() {
+            @Override
+            public String doInTransaction(TransactionStatus status) {
+                dao.getById("1");
+                return dao.getById("1").getName() + "," + dao.getCount("select count(0) from t_user where name = 'primary'");
+            }
+        });
+        assertEquals("primary,1", name);
+    }
+
+    @Test
+    public void writesUsePrimary() {
+        dao.update("1", "password", "secret");
+        assertEquals("secret", new JdbcTemplate(primary).queryForObject("select password from t_user where id = '1'", String.class));
+    }
+}
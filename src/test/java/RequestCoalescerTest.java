@@ -0,0 +1,105 @@
+import com.jxs.ld.RequestCoalescer;
+import com.jxs.ld.bean.Beans;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+
+
+/**
+ * @author jiangxingshang
+ */
+public class RequestCoalescerTest {
+
+    @Test
+    public void concurrentCallsShareOneQuery() throws Exception {
+        final RequestCoalescer coalescer = new RequestCoalescer();
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger loads = new AtomicInteger();
+        final Object result = new Object();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        List<Future<Object>> futures = new ArrayList<>();
+        for(int i = 0; i < 8; i++) {
+            futures.add(pool.submit(new Callable<Object>() {
+                @Override
+                public Object call() {
+                    return coalescer.execute("key", new RequestCoalescer.Loader<Object>() {
+                        @Override
+                        public Object load() {
+                            loads.incrementAndGet();
+                            try {
+                                release.await();
+                            } catch(InterruptedException e) {
+                                throw new RuntimeException(e);
+                            }
+                            return result;
+                        }
+                    });
+                }
+            }));
+        }
+        //等待所有调用者进入
+        while(coalescer.getRequests() < 8) {
+            Thread.sleep(5);
+        }
+        release.countDown();
+        for(Future<Object> f : futures) {
+            assertSame(result, f.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        assertEquals(1, loads.get());
+        assertEquals(7, coalescer.getCollapsed());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    public void coalescedEntitiesAreCopies() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:coalesce;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        jdbc.update("insert into t_user(id, name) values('1', 'u')");
+        UserDao dao = new UserDao();
+        dao.setDataSource(ds);
+        dao.setCoalescing(true);
+        User a = dao.getById("1");
+        User b = dao.getById("1");
+        assertNotSame(a, b);
+        assertEquals("u", b.getName());
+        assertEquals(2, dao.getCoalescer().getQueries());
+    }
+
+    @Test
+    public void copiesMutableValues() {
+        Date date = new Date();
+        Date copy = (Date) Beans.copyValue(date);
+        assertNotSame(date, copy);
+        assertEquals(date, copy);
+        ArrayList<String> list = new ArrayList<>(Arrays.asList("a", "b"));
+        assertNotSame(list, Beans.copyValue(list));
+        int[] array = {1, 2};
+        int[] arrayCopy = (int[]) Beans.copyValue(array);
+        assertNotSame(array, arrayCopy);
+        assertArrayEquals(array, arrayCopy);
+        String s = "s";
+        assertSame(s, Beans.copyValue(s));
+        assertNull(Beans.copyValue(null));
+    }
+}
@@ -0,0 +1,67 @@
+import com.jxs.ld.stream.RowExporter;
+import org.apache.commons.lang3.StringUtils;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author jiangxingshang
+ */
+public class RowExporterTest {
+
+    private JdbcTemplate jdbc;
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:exporter;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(20000), age int)");
+        jdbc.update("insert into t_user(id, username, name, age) values('1', 'a,b', '他说\"你好\"', 18)");
+        jdbc.update("insert into t_user(id, username, name) values('2', null, 'x\ny')");
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    private String export(RowExporter.Format format) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        assertEquals(2, dao.export(dao.select("id", "username", "name", "age").order("@id"), Channels.newChannel(out), format));
+        return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    @Test
+    public void exportsCsv() {
+        assertEquals("id,username,name,age\n1,\"a,b\",\"他说\"\"你好\"\"\",18\n2,,\"x\ny\",\n", export(RowExporter.Format.CSV));
+    }
+
+    @Test
+    public void exportsJsonLines() {
+        assertEquals("{\"id\":\"1\",\"username\":\"a,b\",\"name\":\"他说\\\"你好\\\"\",\"age\":18}\n"
+                + "{\"id\":\"2\",\"username\":null,\"name\":\"x\\ny\",\"age\":null}\n", export(RowExporter.Format.JSON_LINES));
+    }
+
+    @Test
+    public void exportsRowsLargerThanBuffer() throws IOException {
+        //多字节字符跨越字符缓冲区边界
+        String name = StringUtils.repeat("中", 10000);
+        jdbc.update("update t_user set name = ? where id = '1'", name);
+        Path file = Files.createTempFile("export", ".csv");
+        try {
+            dao.export(dao.select("name").where("@id = ?", true, "1"), file, RowExporter.Format.CSV, "1");
+            assertEquals("name\n" + name + "\n", new String(Files.readAllBytes(file), StandardCharsets.UTF_8));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,128 @@
+import com.jxs.ld.stream.RowPublisher;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Flow;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * java 8及以下不编译（见pom.xml的no-flow）。
+ *
+ * @author jiangxingshang
+ */
+public class RowPublisherTest {
+
+    private final AtomicInteger openConnections = new AtomicInteger();
+    private UserDao dao;
+
+    /**
+     * 记录未关闭的连接数。
+     */
+    private class CountingDataSource extends DriverManagerDataSource {
+
+        CountingDataSource(String url) {
+            super(url);
+        }
+
+        @Override
+        protected Connection getConnectionFromDriverManager(String url, Properties props) throws SQLException {
+            final Connection con = super.getConnectionFromDriverManager(url, props);
+            openConnections.incrementAndGet();
+            return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[]{Connection.class}, new InvocationHandler() {
+                @Override
+                public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                    if(method.getName().equals("close")) openConnections.decrementAndGet();
+                    try {
+                        return method.invoke(con, args);
+                    } catch(InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                }
+            });
+        }
+    }
+
+    private static class Recorder implements Flow.Subscriber<User> {
+        Flow.Subscription subscription;
+        final List<String> ids = new ArrayList<>();
+        boolean completed;
+        Throwable error;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+        }
+
+        @Override
+        public void onNext(User item) {
+            ids.add(item.getId());
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            error = throwable;
+        }
+
+        @Override
+        public void onComplete() {
+            completed = true;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new CountingDataSource("jdbc:h2:mem:publisher;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        for(int i = 1; i <= 5; i++) {
+            jdbc.update("insert into t_user(id, name, age) values(?, 'u', ?)", String.valueOf(i), i);
+        }
+        dao = new UserDao();
+        dao.setDataSource(ds);
+        openConnections.set(0);
+    }
+
+    @Test
+    public void emitsOnlyRequestedRows() {
+        Recorder recorder = new Recorder();
+        RowPublisher.of(dao, dao.sql("select @columns from @tableName where @age > ?").order("@age"), 1).subscribe(recorder);
+        assertEquals(0, openConnections.get());
+        recorder.subscription.request(2);
+        assertEquals("[2, 3]", recorder.ids.toString());
+        assertEquals(1, openConnections.get());
+        recorder.subscription.request(10);
+        assertEquals("[2, 3, 4, 5]", recorder.ids.toString());
+        assertTrue(recorder.completed);
+        assertEquals(0, openConnections.get());
+    }
+
+    @Test
+    public void cancelReleasesConnection() {
+        Recorder recorder = new Recorder();
+        RowPublisher.of(dao, dao.sql("select @columns from @tableName").order("@age")).subscribe(recorder);
+        recorder.subscription.request(1);
+        assertEquals(1, openConnections.get());
+        recorder.subscription.cancel();
+        assertEquals(0, openConnections.get());
+        recorder.subscription.request(1);
+        assertEquals("[1]", recorder.ids.toString());
+        assertFalse(recorder.completed);
+        assertEquals(null, recorder.error);
+    }
+}
@@ -0,0 +1,137 @@
+import com.jxs.ld.Page;
+import com.jxs.ld.shard.HashShardStrategy;
+import com.jxs.ld.shard.ShardedDao;
+import com.jxs.ld.sql.SqlBuilder;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * t_user按age分成t_user_00和t_user_01两个物理表，偶数age在t_user_00。
+ *
+ * @author jiangxingshang
+ */
+public class ShardedDaoTest {
+
+    private JdbcTemplate jdbc;
+    private ShardedDao<User> dao;
+
+    private static class UserPage implements Page<User> {
+        private final int start;
+        private final int limit;
+        private int total;
+        private List<User> data;
+
+        UserPage(int start, int limit) {
+            this.start = start;
+            this.limit = limit;
+        }
+
+        @Override
+        public int getStart() {
+            return start;
+        }
+
+        @Override
+        public int getLimit() {
+            return limit;
+        }
+
+        @Override
+        public Map<String, String> getParams() {
+            return new HashMap<>();
+        }
+
+        @Override
+        public void setTotal(int total) {
+            this.total = total;
+        }
+
+        @Override
+        public int getTotal() {
+            return total;
+        }
+
+        @Override
+        public void setData(List<User> data) {
+            this.data = data;
+        }
+
+        @Override
+        public List<User> getData() {
+            return data;
+        }
+    }
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:sharded;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        for(String table : new String[]{"t_user_00", "t_user_01"}) {
+            jdbc.execute("drop table if exists " + table);
+            jdbc.execute("create table " + table + "(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        }
+        dao = new ShardedDao<User>(User.class, "age", new HashShardStrategy(2)) {
+        };
+        dao.setDataSource(ds);
+        for(int i = 1; i <= 6; i++) {
+            User u = new User();
+            u.setName(i % 2 == 0 ? "even" : "odd");
+            u.setAge(i);
+            dao.insert(u);
+        }
+    }
+
+    @Test
+    public void routesByShardKey() {
+        assertEquals(3, (int) jdbc.queryForObject("select count(0) from t_user_00 where mod(age, 2) = 0", Integer.class));
+        assertEquals(3, (int) jdbc.queryForObject("select count(0) from t_user_01 where mod(age, 2) = 1", Integer.class));
+        String id = jdbc.queryForObject("select id from t_user_01 where age = 5", String.class);
+        assertEquals(5, (int) dao.getById(id).getAge());
+        assertEquals(5, (int) dao.getById(id, 5).getAge());
+        assertNull(dao.getById(id, 4));
+    }
+
+    @Test
+    public void rejectsGeneratedPrimaryShardKey() {
+        try {
+            new ShardedDao<User>(User.class, "id", new HashShardStrategy(2)) {
+            };
+            fail();
+        } catch(RuntimeException e) {
+            //UUID主键在插入时才生成
+        }
+    }
+
+    @Test
+    public void mergesOrderedPages() {
+        SqlBuilder sql = dao.sql("select @columns from @tableName").where("@age > ?", true, 1).order("-@age");
+        String before = sql.toSql();
+        Object[] values = sql.getValueArray();
+        assertEquals(5, dao.getCount(sql, values));
+        List<Integer> ages = new ArrayList<>();
+        for(User u : dao.query(dao.getRowMapper(), sql, values)) {
+            ages.add(u.getAge());
+        }
+        assertEquals("[6, 5, 4, 3, 2]", ages.toString());
+
+        Page<User> page = dao.query(new UserPage(1, 2), dao.getRowMapper(), sql, values);
+        assertEquals(5, page.getTotal());
+        assertEquals(2, page.getData().size());
+        assertEquals(5, (int) page.getData().get(0).getAge());
+        assertEquals(4, (int) page.getData().get(1).getAge());
+        //分片sql不修改调用者的构建器
+        assertEquals(before, sql.toSql());
+        assertEquals("select id, username, password, name, age from t_user where age > ? order by age desc", before);
+    }
+}
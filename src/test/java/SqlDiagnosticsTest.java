@@ -0,0 +1,109 @@
+import com.jxs.ld.diag.PlanReport;
+import com.jxs.ld.diag.SqlDiagnostics;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcOperations;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.PreparedStatementSetter;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * H2的EXPLAIN只有一列PLAN，mysql格式的解析使用覆盖了explain的诊断模拟。
+ *
+ * @author jiangxingshang
+ */
+public class SqlDiagnosticsTest {
+
+    /**
+     * 记录EXPLAIN次数，plan不为null时返回plan代替真正的EXPLAIN。
+     */
+    private static class CountingDiagnostics extends SqlDiagnostics {
+        int explains;
+        List<Map<String, Object>> plan;
+
+        CountingDiagnostics(long rowThreshold) {
+            super(rowThreshold);
+        }
+
+        @Override
+        protected List<Map<String, Object>> explain(JdbcOperations jdbc, String sql, PreparedStatementSetter setter) {
+            explains++;
+            return plan == null ? super.explain(jdbc, sql, setter) : plan;
+        }
+    }
+
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:diagnostics;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        jdbc.update("insert into t_user(id, name, age) values('1', 'a', 1)");
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void explainsEachSqlOnce() {
+        CountingDiagnostics diagnostics = new CountingDiagnostics(1000);
+        dao.setDiagnostics(diagnostics);
+        String sql = dao.sql("select @columns from @tableName where @age > ?").toSql();
+        for(int i = 0; i < 3; i++) {
+            assertEquals(1, dao.query(sql, dao.getRowMapper(), 0).size());
+        }
+        assertEquals(1, diagnostics.explains);
+        PlanReport report = diagnostics.getReport(sql);
+        assertFalse(report.getPlan().isEmpty());
+        assertFalse(report.hasIssues());
+
+        dao.update("1", "name", "b");
+        assertEquals(1, diagnostics.getReports().size());
+        dao.setDiagnostics(null);
+        dao.query(dao.sql("select @columns from @tableName").toSql(), dao.getRowMapper());
+        assertEquals(1, diagnostics.explains);
+    }
+
+    @Test
+    public void flagsLargeScans() {
+        CountingDiagnostics diagnostics = new CountingDiagnostics(1000);
+        Map<String, Object> row = new HashMap<>();
+        row.put("type", "ALL");
+        row.put("rows", 50000L);
+        row.put("Extra", "Using where; Using temporary; Using filesort");
+        diagnostics.plan = new ArrayList<>();
+        diagnostics.plan.add(row);
+        dao.setDiagnostics(diagnostics);
+        String big = dao.sql("select @columns from @tableName order by @name").toSql();
+        dao.query(big, dao.getRowMapper());
+
+        row = new HashMap<>(row);
+        row.put("rows", 10L);
+        diagnostics.plan = new ArrayList<>();
+        diagnostics.plan.add(row);
+        String small = dao.sql("select @columns from @tableName order by @age").toSql();
+        dao.query(small, dao.getRowMapper());
+
+        List<PlanReport> findings = diagnostics.getFindings();
+        assertEquals(1, findings.size());
+        assertEquals(big, findings.get(0).getSql());
+        assertEquals(50000, findings.get(0).getEstimatedRows());
+        assertEquals(EnumSet.allOf(PlanReport.Issue.class), findings.get(0).getIssues());
+        assertTrue(diagnostics.getReport(small).getIssues().isEmpty());
+
+        diagnostics.clear();
+        assertNull(diagnostics.getReport(big));
+    }
+}
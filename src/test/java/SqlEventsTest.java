@@ -0,0 +1,76 @@
+import com.jxs.ld.diag.SqlEvents;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * java 10及以下不编译（见pom.xml的no-jfr）。
+ *
+ * @author jiangxingshang
+ */
+public class SqlEventsTest {
+
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:events;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        JdbcTemplate jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        for(int i = 1; i <= 3; i++) {
+            jdbc.update("insert into t_user(id, name, age) values(?, 'u', ?)", String.valueOf(i), i);
+        }
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void disabledByDefault() {
+        assertNull(SqlEvents.begin());
+    }
+
+    @Test
+    public void recordsQueriesAndUpdates() throws IOException {
+        Path file = Files.createTempFile("light-dao", ".jfr");
+        try(Recording recording = new Recording()) {
+            recording.enable("com.jxs.ld.SqlExecution");
+            recording.start();
+            dao.query("select *\n  from t_user where age > ?", dao.getRowMapper(), 1);
+            dao.update("1", "name", "a");
+            recording.stop();
+            recording.dump(file);
+            Map<String, RecordedEvent> byOperation = new HashMap<>();
+            List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+            for(RecordedEvent e : events) {
+                if(e.getEventType().getName().equals("com.jxs.ld.SqlExecution")) {
+                    byOperation.put(e.getString("operation"), e);
+                }
+            }
+            RecordedEvent query = byOperation.get("query");
+            assertEquals(UserDao.class.getName(), query.getString("dao"));
+            assertEquals("select * from t_user where age > ?", query.getString("sql"));
+            assertEquals(2, query.getLong("rows"));
+            assertTrue(query.getLong("executionTime") > 0);
+            RecordedEvent update = byOperation.get("update");
+            assertEquals(1, update.getLong("rows"));
+        } finally {
+            Files.delete(file);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.TableName;
+import com.jxs.ld.stream.TableScanner;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * 主键分布不均匀：1到300连续，之后是10000、20000和1000000。
+ *
+ * @author jiangxingshang
+ */
+public class TableScannerTest {
+
+    @TableName("t_item")
+    public static class Item {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private Long id;
+
+        public Long getId() {
+            return id;
+        }
+
+        public void setId(Long id) {
+            this.id = id;
+        }
+    }
+
+    public static class ItemDao extends BaseDao<Item> {
+        public ItemDao() {
+            super(Item.class);
+        }
+    }
+
+    private JdbcTemplate jdbc;
+    private ItemDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:scanner;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_item");
+        jdbc.execute("create table t_item(id bigint primary key)");
+        for(int i = 1; i <= 300; i++) {
+            jdbc.update("insert into t_item values(?)", i);
+        }
+        jdbc.update("insert into t_item values(10000), (20000), (1000000)");
+        dao = new ItemDao();
+        dao.setDataSource(ds);
+    }
+
+    private static class Collector implements TableScanner.RowConsumer<Item> {
+        final Set<Long> ids = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+        final AtomicInteger rows = new AtomicInteger();
+        final Set<String> threads = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+        @Override
+        public void accept(Item row) {
+            ids.add(row.getId());
+            rows.incrementAndGet();
+            threads.add(Thread.currentThread().getName());
+        }
+    }
+
+    @Test
+    public void scansEveryRowOnce() {
+        Collector c = new Collector();
+        assertEquals(303, dao.scan(4, c));
+        assertEquals(303, c.rows.get());
+        assertEquals(303, c.ids.size());
+        assertTrue(c.ids.contains(1000000L));
+
+        Collector split = new Collector();
+        assertEquals(303, dao.scanner().parallelism(3).splitPoints(100, 200, 300, 5000000).run(split));
+        assertEquals(303, split.ids.size());
+        assertTrue(split.threads.size() > 1);
+    }
+
+    @Test
+    public void emptyTable() {
+        jdbc.execute("delete from t_item");
+        assertEquals(0, dao.scan(2, new Collector()));
+    }
+
+    @Test
+    public void stopsOnConsumerError() {
+        try {
+            dao.scan(2, new TableScanner.RowConsumer<Item>() {
+                @Override
+                public void accept(Item row) {
+                    if(row.getId() == 150) throw new IllegalStateException("bad row");
+                }
+            });
+            fail();
+        } catch(IllegalStateException e) {
+            assertEquals("bad row", e.getMessage());
+        }
+    }
+}
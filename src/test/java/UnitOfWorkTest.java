@@ -0,0 +1,131 @@
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.UnitOfWork;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.TableName;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.dao.DataAccessException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * t_book.user_id有外键约束，删除用户前必须先删除书。
+ *
+ * @author jiangxingshang
+ */
+public class UnitOfWorkTest {
+
+    @TableName("t_book")
+    public static class Book {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private Integer id;
+        private String userId;
+        private String title;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+
+        public void setUserId(String userId) {
+            this.userId = userId;
+        }
+
+        public String getTitle() {
+            return title;
+        }
+
+        public void setTitle(String title) {
+            this.title = title;
+        }
+    }
+
+    public static class BookDao extends BaseDao<Book> {
+        public BookDao() {
+            super(Book.class);
+        }
+    }
+
+    private JdbcTemplate jdbc;
+    private UserDao userDao;
+    private BookDao bookDao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:unitOfWork;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_book");
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        jdbc.execute("create table t_book(id int primary key, user_id varchar(8) references t_user(id), title varchar(32))");
+        jdbc.update("insert into t_user(id, name, age) values('1', 'a', 1)");
+        jdbc.update("insert into t_user(id, password, name, age) values('2', 'p', 'b', 2)");
+        jdbc.update("insert into t_book values(1, '1', 'x')");
+        userDao = new UserDao();
+        userDao.setDataSource(ds);
+        bookDao = new BookDao();
+        bookDao.setDataSource(ds);
+    }
+
+    private int count(String sql) {
+        return jdbc.queryForObject(sql, Integer.class);
+    }
+
+    @Test
+    public void writesInDependencyOrder() {
+        Book book = new Book();
+        book.setId(2);
+        book.setUserId("2");
+        book.setTitle("y");
+        User user = new User();
+        user.setId("2");
+        user.setName("b2");
+        UnitOfWork uow = new UnitOfWork().order(userDao, bookDao);
+        uow.delete(userDao, "1");
+        uow.delete(bookDao, 1);
+        uow.insert(bookDao, book);
+        uow.update(userDao, user);
+        assertFalse(uow.isEmpty());
+        uow.commit();
+        assertTrue(uow.isEmpty());
+
+        assertEquals(0, count("select count(0) from t_user where id = '1'"));
+        assertEquals("y", jdbc.queryForObject("select title from t_book where id = 2", String.class));
+        assertEquals("b2", jdbc.queryForObject("select name from t_user where id = '2'", String.class));
+        //null值的属性不更新
+        assertEquals("p", jdbc.queryForObject("select password from t_user where id = '2'", String.class));
+    }
+
+    @Test
+    public void rollsBackAllWrites() {
+        User user = new User();
+        user.setName("c");
+        Book duplicate = new Book();
+        duplicate.setId(1);
+        duplicate.setUserId("2");
+        UnitOfWork uow = new UnitOfWork().order(userDao, bookDao);
+        uow.insert(userDao, user);
+        uow.insert(bookDao, duplicate);
+        try {
+            uow.commit();
+            fail();
+        } catch(DataAccessException e) {
+            //用户先插入成功，书的主键冲突
+        }
+        assertEquals(2, count("select count(0) from t_user"));
+        assertEquals("1", jdbc.queryForObject("select user_id from t_book where id = 1", String.class));
+    }
+}
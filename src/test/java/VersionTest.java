@@ -0,0 +1,134 @@
+import com.jxs.ld.BaseDao;
+import com.jxs.ld.OptimisticLockException;
+import com.jxs.ld.bean.Column;
+import com.jxs.ld.bean.IdGenerator;
+import com.jxs.ld.bean.TableName;
+import com.jxs.ld.bean.Version;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiangxingshang
+ */
+public class VersionTest {
+
+    @TableName("t_account")
+    public static class Account {
+        @Column(primaryKey = true, idGenerator = IdGenerator.ASSIGNED)
+        private Integer id;
+        private String name;
+        @Version
+        private Integer version;
+
+        public Integer getId() {
+            return id;
+        }
+
+        public void setId(Integer id) {
+            this.id = id;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public void setName(String name) {
+            this.name = name;
+        }
+
+        public Integer getVersion() {
+            return version;
+        }
+
+        public void setVersion(Integer version) {
+            this.version = version;
+        }
+    }
+
+    public static class AccountDao extends BaseDao<Account> {
+        public AccountDao() {
+            super(Account.class);
+        }
+    }
+
+    private JdbcTemplate jdbc;
+    private AccountDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:version;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_account");
+        jdbc.execute("create table t_account(id int primary key, name varchar(32), version int)");
+        dao = new AccountDao();
+        dao.setDataSource(ds);
+        for(int i = 1; i <= 2; i++) {
+            Account a = new Account();
+            a.setId(i);
+            a.setName("a" + i);
+            dao.insert(a);
+            assertEquals(Integer.valueOf(0), a.getVersion());
+        }
+    }
+
+    @Test
+    public void rejectsStaleUpdate() {
+        Account first = dao.getById(1);
+        Account second = dao.getById(1);
+        first.setName("first");
+        dao.update(first);
+        assertEquals(Integer.valueOf(1), first.getVersion());
+        second.setName("second");
+        try {
+            dao.update(second);
+            fail();
+        } catch(OptimisticLockException e) {
+            assertSame(second, e.getBean());
+        }
+        assertEquals("first", jdbc.queryForObject("select name from t_account where id = 1", String.class));
+        assertEquals(Integer.valueOf(0), second.getVersion());
+    }
+
+    @Test
+    public void rejectsStaleBatchUpdate() {
+        Account a1 = dao.getById(1);
+        Account a2 = dao.getById(2);
+        dao.batchUpdate(Arrays.asList(a1, a2));
+        assertEquals(Integer.valueOf(1), a2.getVersion());
+        a2.setVersion(0);
+        try {
+            dao.batchUpdate(Arrays.asList(a1, a2));
+            fail();
+        } catch(OptimisticLockException e) {
+            assertSame(a2, e.getBean());
+        }
+    }
+
+    @Test
+    public void propertyUpdateIncrementsVersion() {
+        Account held = dao.getById(1);
+        dao.update(1, "name", "changed");
+        assertEquals(1, (int) jdbc.queryForObject("select version from t_account where id = 1", Integer.class));
+        try {
+            dao.update(held);
+            fail();
+        } catch(OptimisticLockException e) {
+            //持有的是旧版本号
+        }
+        try {
+            dao.update(1, "version", 5);
+            fail();
+        } catch(RuntimeException e) {
+            //版本号不能直接更新
+            assertEquals("Version property [version] cannot be updated directly.", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,96 @@
+import com.jxs.ld.WriteBehindBuffer;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.fail;
+
+/**
+ * @author jiangxingshang
+ */
+public class WriteBehindBufferTest {
+
+    private JdbcTemplate jdbc;
+    private UserDao dao;
+
+    @Before
+    public void setUp() {
+        DriverManagerDataSource ds = new DriverManagerDataSource("jdbc:h2:mem:writeBehind;DB_CLOSE_DELAY=-1;MODE=MySQL");
+        jdbc = new JdbcTemplate(ds);
+        jdbc.execute("drop table if exists t_user_moved");
+        jdbc.execute("drop table if exists t_user");
+        jdbc.execute("create table t_user(id varchar(8) primary key, username varchar(32), password varchar(32), name varchar(32), age int)");
+        for(int i = 0; i < 10; i++) {
+            jdbc.update("insert into t_user(id, name, age) values(?, 'u', 0)", String.valueOf(i));
+        }
+        dao = new UserDao();
+        dao.setDataSource(ds);
+    }
+
+    @Test
+    public void mergesConcurrentIncrements() throws Exception {
+        final WriteBehindBuffer buffer = new WriteBehindBuffer(dao).maxPending(5);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        List<Future<?>> futures = new ArrayList<>();
+        for(int t = 0; t < 4; t++) {
+            futures.add(pool.submit(new Runnable() {
+                @Override
+                public void run() {
+                    for(int i = 0; i < 1000; i++) {
+                        buffer.increment(String.valueOf(i % 10), "age", 1);
+                    }
+                }
+            }));
+        }
+        for(Future<?> f : futures) {
+            f.get();
+        }
+        pool.shutdown();
+        buffer.flush();
+        assertEquals(4000, (int) jdbc.queryForObject("select sum(age) from t_user", Integer.class));
+        assertEquals(0, buffer.size());
+    }
+
+    @Test
+    public void rejectsNewUpdatesWhenFullAndFailing() {
+        WriteBehindBuffer buffer = new WriteBehindBuffer(dao).maxPending(100).capacity(2);
+        jdbc.execute("alter table t_user rename to t_user_moved");
+        buffer.set("1", "name", "a");
+        buffer.set("2", "name", "b");
+        try {
+            buffer.set("3", "name", "c");
+            fail();
+        } catch(RuntimeException e) {
+            assertNotNull(e.getCause());
+        }
+        assertEquals(1, buffer.getRejected());
+        assertEquals(1, buffer.getFailures());
+        //退避期间不会再次刷新
+        try {
+            buffer.set("4", "name", "d");
+            fail();
+        } catch(RuntimeException e) {
+            assertEquals(2, buffer.getRejected());
+        }
+        assertEquals(1, buffer.getFailures());
+        //已经缓冲的记录仍然可以合并
+        buffer.set("1", "name", "e");
+        assertEquals(2, buffer.size());
+
+        jdbc.execute("alter table t_user_moved rename to t_user");
+        buffer.flush();
+        assertEquals(0, buffer.size());
+        assertEquals("e", jdbc.queryForObject("select name from t_user where id = '1'", String.class));
+        buffer.set("3", "name", "c");
+        assertEquals(1, buffer.size());
+    }
+}